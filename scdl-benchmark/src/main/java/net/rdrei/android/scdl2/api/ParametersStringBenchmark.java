@@ -0,0 +1,56 @@
+package net.rdrei.android.scdl2.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query string building in {@link SoundcloudApiService#getParametersString(Map)}. Lives in the
+ * API package because the method is only visible to it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ParametersStringBenchmark {
+	private Map<String, String> mResolveParameters;
+	private Map<String, String> mSearchParameters;
+
+	@Setup
+	public void setUp() {
+		mResolveParameters = new HashMap<String, String>();
+		mResolveParameters.put("url",
+				"https://soundcloud.com/dj-newklear/newklear-contaminated-2?utm_source=clipboard");
+		mResolveParameters.put("client_id", "429caab2811564cb27f52a7a4964269b");
+
+		mSearchParameters = new HashMap<String, String>();
+		mSearchParameters.put("q", "newklear contaminated & friends");
+		mSearchParameters.put("limit", "50");
+		mSearchParameters.put("offset", "100");
+		mSearchParameters.put("linked_partitioning", "1");
+		mSearchParameters.put("client_id", "429caab2811564cb27f52a7a4964269b");
+	}
+
+	@Benchmark
+	public String resolveParameters() {
+		return SoundcloudApiService.getParametersString(mResolveParameters);
+	}
+
+	@Benchmark
+	public String searchParameters() {
+		return SoundcloudApiService.getParametersString(mSearchParameters);
+	}
+}
@@ -0,0 +1,117 @@
+package net.rdrei.android.scdl2.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import net.rdrei.android.scdl2.api.EntityDecoder;
+import net.rdrei.android.scdl2.api.entity.PlaylistEntity;
+import net.rdrei.android.scdl2.api.entity.TrackEntity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of API responses, as done by AbstractSoundcloudApiQueryImpl for every request.
+ * The "buffered" variants replay how responses were decoded before they were read straight
+ * from the stream, for comparison.
+ * <p/>
+ * The large playlist is about 1 MB. Run with the GC profiler (the jmh task's default) to see
+ * allocation per operation next to the time, e.g. {@code -PjmhArgs='LargePlaylist'}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EntityDecoderBenchmark {
+	private static final TypeToken<TrackEntity> TRACK_TYPE = new TypeToken<TrackEntity>() {
+	};
+	private static final TypeToken<PlaylistEntity> PLAYLIST_TYPE =
+			new TypeToken<PlaylistEntity>() {
+			};
+	private static final int LARGE_PLAYLIST_BYTES = 1024 * 1024;
+
+	private byte[] mTrack;
+	private byte[] mPlaylist;
+	private byte[] mLargePlaylist;
+	private String mTrackJson;
+
+	@Setup
+	public void setUp() throws IOException {
+		mTrack = Fixtures.read("track.json");
+		mPlaylist = Fixtures.read("playlist.json");
+		mLargePlaylist = Fixtures.largePlaylist(LARGE_PLAYLIST_BYTES);
+		mTrackJson = new String(mTrack, "UTF-8");
+	}
+
+	@Benchmark
+	public TrackEntity decodeTrack() throws IOException {
+		return EntityDecoder.decode(new ByteArrayInputStream(mTrack), TRACK_TYPE);
+	}
+
+	@Benchmark
+	public PlaylistEntity decodePlaylist() throws IOException {
+		return EntityDecoder.decode(new ByteArrayInputStream(mPlaylist), PLAYLIST_TYPE);
+	}
+
+	@Benchmark
+	public PlaylistEntity decodeLargePlaylist() throws IOException {
+		return EntityDecoder.decode(new ByteArrayInputStream(mLargePlaylist), PLAYLIST_TYPE);
+	}
+
+	@Benchmark
+	public TrackEntity decodeCachedTrack() {
+		return EntityDecoder.decode(mTrackJson, TRACK_TYPE);
+	}
+
+	@Benchmark
+	public TrackEntity decodeTrackBuffered() throws IOException {
+		final String json = readLines(new ByteArrayInputStream(mTrack));
+		return new Gson().fromJson(json, TRACK_TYPE.getType());
+	}
+
+	@Benchmark
+	public PlaylistEntity decodePlaylistBuffered() throws IOException {
+		final String json = readLines(new ByteArrayInputStream(mPlaylist));
+		return new Gson().fromJson(json, PLAYLIST_TYPE.getType());
+	}
+
+	@Benchmark
+	public PlaylistEntity decodeLargePlaylistBuffered() throws IOException {
+		final String json = readLines(new ByteArrayInputStream(mLargePlaylist));
+		return new Gson().fromJson(json, PLAYLIST_TYPE.getType());
+	}
+
+	private static String readLines(final InputStream stream) throws IOException {
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
+		final StringBuilder builder = new StringBuilder();
+		String line;
+
+		try {
+			while ((line = reader.readLine()) != null) {
+				builder.append(line);
+				builder.append('\n');
+			}
+		} finally {
+			reader.close();
+		}
+
+		return builder.toString();
+	}
+}
@@ -0,0 +1,60 @@
+package net.rdrei.android.scdl2.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads the recorded API responses shared with the unit tests.
+ */
+final class Fixtures {
+	private Fixtures() {
+	}
+
+	static byte[] read(final String name) throws IOException {
+		final InputStream stream = Fixtures.class.getResourceAsStream("/fixtures/" + name);
+		if (stream == null) {
+			throw new IOException("Missing fixture " + name);
+		}
+
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[8192];
+			int read;
+
+			while ((read = stream.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+
+			return out.toByteArray();
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Builds a playlist of at least the given size by repeating the tracks of the recorded one,
+	 * like the large sets the app gets to decode. Saves us from checking in a fixture of that
+	 * size.
+	 */
+	static byte[] largePlaylist(final int minBytes) throws IOException {
+		final JsonObject playlist = new JsonParser().parse(new String(read("playlist.json"),
+				"UTF-8")).getAsJsonObject();
+		final JsonArray tracks = playlist.getAsJsonArray("tracks");
+		final int count = tracks.size();
+
+		byte[] json = playlist.toString().getBytes("UTF-8");
+		while (json.length < minBytes) {
+			for (int i = 0; i < count; i++) {
+				tracks.add(tracks.get(i));
+			}
+			json = playlist.toString().getBytes("UTF-8");
+		}
+
+		return json;
+	}
+}
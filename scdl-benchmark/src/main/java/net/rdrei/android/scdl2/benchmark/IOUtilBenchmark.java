@@ -0,0 +1,72 @@
+package net.rdrei.android.scdl2.benchmark;
+
+import net.rdrei.android.scdl2.IOUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link IOUtil#copyFile(File, File)}, used to move finished downloads to local storage. Sizes
+ * cover a short clip up to a long DJ set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IOUtilBenchmark {
+	@Param({"1048576", "16777216", "134217728"})
+	public int size;
+
+	private File mSource;
+	private File mDestination;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		mSource = File.createTempFile("scdl", ".src");
+		mDestination = File.createTempFile("scdl", ".dst");
+
+		final byte[] buffer = new byte[64 * 1024];
+		new Random(42).nextBytes(buffer);
+
+		final OutputStream out = new FileOutputStream(mSource);
+		try {
+			for (int written = 0; written < size; written += buffer.length) {
+				out.write(buffer, 0, Math.min(buffer.length, size - written));
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		mSource.delete();
+		mDestination.delete();
+	}
+
+	@Benchmark
+	public long copyFile() throws IOException {
+		IOUtil.copyFile(mSource, mDestination);
+		return mDestination.length();
+	}
+}
@@ -0,0 +1,61 @@
+package net.rdrei.android.scdl2.benchmark;
+
+import android.net.Uri;
+
+import net.rdrei.android.scdl2.ShareIntentResolver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+/**
+ * Matching of resolved API URLs and normalizing of shared links in {@link ShareIntentResolver}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ShareUrlBenchmark {
+	private final String mTrackLocation =
+			"https://api.soundcloud.com/tracks/44276907.json?client_id=429caab2811564cb27f52a7a4964269b";
+	private final String mPlaylistLocation =
+			"https://api.soundcloud.com/playlists/13028824.json?client_id=429caab2811564cb27f52a7a4964269b";
+	private final Uri mSharedUri = Uri.parse(
+			"https://m.soundcloud.com/dj-newklear/newklear-contaminated-2/?utm_source=clipboard&utm_medium=text");
+
+	@Benchmark
+	public String matchTrackLocation() {
+		// Same order as resolvePendingDownload(): the playlist pattern is tried first.
+		final Matcher playlistMatcher = ShareIntentResolver.URL_PLAYLIST_PATTERN.matcher(
+				mTrackLocation);
+		if (playlistMatcher.find()) {
+			return playlistMatcher.group(1);
+		}
+
+		final Matcher idMatcher = ShareIntentResolver.URL_ID_PATTERN.matcher(mTrackLocation);
+		return idMatcher.find() ? idMatcher.group(1) : null;
+	}
+
+	@Benchmark
+	public String matchPlaylistLocation() {
+		final Matcher playlistMatcher = ShareIntentResolver.URL_PLAYLIST_PATTERN.matcher(
+				mPlaylistLocation);
+		return playlistMatcher.find() ? playlistMatcher.group(1) : null;
+	}
+
+	@Benchmark
+	public String normalizeSharedUri() {
+		return ShareIntentResolver.normalizeUri(mSharedUri);
+	}
+}
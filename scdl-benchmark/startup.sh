@@ -0,0 +1,45 @@
+#!/bin/sh
+# Cold start benchmark for the share intent path: launches DownloadActivity with a shared
+# SoundCloud link on the connected device, stopping the app before every run, and reports the
+# time to the first frame as measured by the activity manager (TotalTime of `am start -W`).
+#
+# The app has to be installed already, e.g. with ./gradlew :scdl:installPlayRelease. Compare
+# builds with Config.Features.DEFERRED_STARTUP switched on and off. Debug builds also record
+# the first_frame span, which can be exported from the menu.
+#
+# Usage: scdl-benchmark/startup.sh [runs] [url]
+
+set -e
+
+PACKAGE=net.rdrei.android.scdl2
+ACTIVITY=$PACKAGE/.ui.DownloadActivity
+RUNS=${1:-10}
+URL=${2:-https://soundcloud.com/dj-newklear/newklear-contaminated-2}
+
+TIMES=""
+i=0
+while [ "$i" -lt "$RUNS" ]; do
+    adb shell am force-stop "$PACKAGE"
+    # Lets the system settle after killing the process.
+    sleep 2
+
+    TIME=$(adb shell am start -W -a android.intent.action.SEND -t text/plain \
+        --es android.intent.extra.TEXT "$URL" -n "$ACTIVITY" \
+        | tr -d '\r' | sed -n 's/^TotalTime: //p')
+    if [ -z "$TIME" ]; then
+        echo "Launch $i didn't report a TotalTime." >&2
+        exit 1
+    fi
+
+    echo "Run $i: ${TIME}ms"
+    TIMES="$TIMES $TIME"
+    i=$((i + 1))
+done
+
+echo "$TIMES" | tr ' ' '\n' | sed '/^$/d' | sort -n | awk '
+    { times[NR] = $1; sum += $1 }
+    END {
+        median = NR % 2 ? times[(NR + 1) / 2] : (times[NR / 2] + times[NR / 2 + 1]) / 2
+        printf "Runs: %d, min: %dms, median: %.1fms, max: %dms, mean: %.1fms\n",
+            NR, times[1], median, times[NR], sum / NR
+    }'
@@ -13,6 +13,8 @@ import com.google.inject.Inject;
 public class ApplicationPreferences {
 	private static final String KEY_ADS_REMOVED = "adfree_please_actually_buy_this";
 
+	public static final String KEY_DOWNLOAD_CATEGORY = "download_preferences_category";
+
 	public static final String KEY_SSL_ENABLED = "download_preferences_enable_ssl";
 
 	public static final String DEFAULT_STORAGE_DIRECTORY = "Soundcloud";
@@ -20,6 +22,10 @@ public class ApplicationPreferences {
 	public static final String KEY_STORAGE_TYPE = "download_preferences_storage_type";
 
 	public static final String KEY_STORAGE_CUSTOM_PATH = "download_preferences_storage_custom_path";
+
+	public static final String KEY_RATE_LIMIT_FOREGROUND = "download_preferences_rate_limit_foreground";
+
+	public static final String KEY_RATE_LIMIT_BACKGROUND = "download_preferences_rate_limit_background";
 	public static final String KEY_DONATE = "about_donate";
 	public static final String KEY_RATE_APP = "about_rate_app";
 	public static final String KEY_ABOUT_ME = "about_me";
@@ -61,7 +67,39 @@ public class ApplicationPreferences {
 	}
 
 	public boolean getSSLEnabled() {
-		return mPreferences.getBoolean(KEY_SSL_ENABLED, false);
+		return getSSLEnabled(mPreferences);
+	}
+
+	/**
+	 * For those listening to preference changes that don't want to hold on to a context.
+	 */
+	public static boolean getSSLEnabled(final SharedPreferences preferences) {
+		return preferences.getBoolean(KEY_SSL_ENABLED, false);
+	}
+
+	/**
+	 * @return Bytes per second for downloads the user is waiting for, 0 for no limit.
+	 */
+	public long getForegroundRateLimit() {
+		return getRateLimit(KEY_RATE_LIMIT_FOREGROUND);
+	}
+
+	/**
+	 * @return Bytes per second shared by all background downloads, 0 for no limit.
+	 */
+	public long getBackgroundRateLimit() {
+		return getRateLimit(KEY_RATE_LIMIT_BACKGROUND);
+	}
+
+	/**
+	 * The preferences store kilobytes per second, as picked from a list.
+	 */
+	private long getRateLimit(final String key) {
+		try {
+			return Long.parseLong(mPreferences.getString(key, "0")) * 1024;
+		} catch (final NumberFormatException e) {
+			return 0;
+		}
 	}
 
 	public StorageType getStorageType() {
@@ -5,6 +5,22 @@ public interface Config {
 	interface Features {
 		boolean PLAYLIST_DOWNLOADS = false;
 		boolean NEW_DONATE = false;
+		// Use the in-process segmented download engine instead of the system DownloadManager.
+		boolean SEGMENTED_DOWNLOADS = false;
+		// Queue downloads in the DownloadSchedulerService instead of starting them right away.
+		boolean DOWNLOAD_SCHEDULER = false;
+		// Fetch the missing end of downloads that are shorter than SoundCloud said they'd be.
+		boolean REPAIR_DOWNLOADS = false;
+		// Write title, artist and artwork into finished downloads.
+		boolean WRITE_TAGS = false;
+		// Record latency spans from the share intent to the enqueued download.
+		boolean TRACING = BuildConfig.DEBUG;
+		// Resolve the download URL of a track while it's shown. Every resolve may count as a
+		// download on SoundCloud, whether the user taps the button or not.
+		boolean PREFETCH_DOWNLOAD_URIS = false;
+		// Start crash reporting and load ads once the first frame is drawn. Crashes before
+		// that aren't reported.
+		boolean DEFERRED_STARTUP = false;
 	}
 
 	enum MARKETPLACE_TYPE {
@@ -18,6 +34,68 @@ public interface Config {
 	// The SSL PIN can be extracted via `contrib/pin.py`
 	String API_SSL_PIN_HASH = "e9fe522cd8dd960dacc046380f2ad6b7e979f687";
 	String TMP_DOWNLOAD_POSTFIX = ".tmp";
+
+	// Tuning for the segmented download engine.
+	int DOWNLOAD_THREADS = 4;
+	// Downloads running at the same time, more of them wait for a free slot.
+	int DOWNLOAD_TRANSFERS = 2;
+	int DOWNLOAD_MAX_SEGMENTS = 4;
+	long DOWNLOAD_MIN_SEGMENT_SIZE = 1024 * 1024;
+	int DOWNLOAD_BUFFER_SIZE = 64 * 1024;
+	int DOWNLOAD_MAX_RETRIES = 3;
+	long DOWNLOAD_CHECKPOINT_INTERVAL_MS = 2000;
+	// Partial downloads nobody resumed within a week are removed.
+	long DOWNLOAD_CHECKPOINT_MAX_AGE_MS = 7 * 24 * 60 * 60 * 1000L;
+	// Number of download URLs resolved at the same time. Stays below the default keep-alive
+	// pool size (http.maxConnections), so every worker can hold on to its connection.
+	int RESOLVE_THREADS = 4;
+	// Download URLs without a recognizable expiry are kept this long. All of them are dropped
+	// a bit before they expire, so the download still has time to start.
+	long DOWNLOAD_URI_TTL_MS = 10 * 60 * 1000L;
+	long DOWNLOAD_URI_EXPIRY_MARGIN_MS = 60 * 1000L;
+
+	// API metadata cache. Entities are revalidated once they're older than their TTL, while
+	// permalinks hardly ever point somewhere else.
+	long METADATA_CACHE_TTL_MS = 10 * 60 * 1000L;
+	long RESOLVE_CACHE_TTL_MS = 7 * 24 * 60 * 60 * 1000L;
+	int METADATA_CACHE_MEMORY_ENTRIES = 64;
+	int METADATA_CACHE_DISK_ENTRIES = 512;
+	int RESOLVE_CACHE_MEMORY_ENTRIES = 32;
+	int RESOLVE_CACHE_DISK_ENTRIES = 256;
+
+	// DownloadManager downloads we never heard back from are forgotten after this time.
+	long DOWNLOAD_REGISTRY_MAX_AGE_MS = 7 * 24 * 60 * 60 * 1000L;
+
+	// Download scheduler. Bulk downloads leave at least one slot to interactive ones.
+	int SCHEDULER_MAX_CONCURRENT = 3;
+	int SCHEDULER_MAX_BULK = 2;
+	int SCHEDULER_MAX_PER_HOST = 2;
+	int SCHEDULER_MAX_ATTEMPTS = 3;
+	// Bulk downloads larger than this wait for an unmetered network.
+	long SCHEDULER_LARGE_DOWNLOAD_BYTES = 50 * 1024 * 1024;
+	// Resolved download URLs are signed and expire, so old ones are resolved again.
+	long SCHEDULER_URI_MAX_AGE_MS = 10 * 60 * 1000L;
+	// Running downloads we never hear back from give up their slot after this time.
+	long SCHEDULER_JOB_TIMEOUT_MS = 60 * 60 * 1000L;
+
+	// Finished downloads are handed to the media scanner in batches collected over this time.
+	long MEDIA_SCAN_BATCH_WINDOW_MS = 500;
+
+	// Tag writing. Padding is added whenever a tag has to grow, so the next rewrite fits.
+	int TAG_THREADS = 2;
+	int TAG_PADDING = 4 * 1024;
+
+	// Artwork cache. Images larger than ARTWORK_MAX_BYTES are neither cached nor embedded.
+	int ARTWORK_THREADS = 2;
+	int ARTWORK_MEMORY_CACHE_BYTES = 2 * 1024 * 1024;
+	long ARTWORK_DISK_CACHE_BYTES = 20 * 1024 * 1024;
+	int ARTWORK_MAX_BYTES = 1024 * 1024;
+
+	// Number of spans the tracer keeps, older ones are dropped.
+	int TRACE_BUFFER_SIZE = 2048;
+
+	// Download progress is coalesced and handed to the UI at this rate.
+	int PROGRESS_FRAMES_PER_SECOND = 4;
 	boolean PAID_BUILD = BuildConfig.PAID_BUILD;
 	MARKETPLACE_TYPE STORE = BuildConfig.STORE;
 }
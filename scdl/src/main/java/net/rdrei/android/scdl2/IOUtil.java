@@ -1,31 +1,251 @@
 package net.rdrei.android.scdl2;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.zip.Checksum;
 
 public class IOUtil {
-	public static void copyFile(final File sourceFile, final File destFile)
-			throws IOException {
-		if (!destFile.exists()) {
-			destFile.createNewFile();
+	private static final String PARTIAL_POSTFIX = ".part";
+
+	// Bytes per transferTo() call. Bounds the time between progress updates and cancellation
+	// checks, some kernels also give up on larger calls.
+	private static final long DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+	// Buffer for checksummed transfers, which have to pass the data through the heap.
+	private static final int CHECKSUM_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Copies or moves a single file. The copy is written next to the destination first and
+	 * synced to disk before it replaces the destination, so there is never a partial file
+	 * under the final name.
+	 */
+	public static class Transfer {
+
+		public interface Listener {
+			/**
+			 * Called after every chunk on the thread running the transfer.
+			 *
+			 * @param bytesPerSecond Average throughput so far.
+			 */
+			void onProgress(long transferred, long total, long bytesPerSecond);
 		}
 
-		FileChannel source = null;
-		FileChannel destination = null;
+		private final File mSource;
+		private final File mDestination;
+		private long mChunkSize = DEFAULT_CHUNK_SIZE;
+		private Listener mListener;
+		private Checksum mChecksum;
+		private Long mExpectedChecksum;
+		private volatile boolean mCancelled;
 
-		try {
-			source = new FileInputStream(sourceFile).getChannel();
-			destination = new FileOutputStream(destFile).getChannel();
-			destination.transferFrom(source, 0, source.size());
-		} finally {
-			if (source != null) {
-				source.close();
+		public Transfer(final File source, final File destination) {
+			mSource = source;
+			mDestination = destination;
+		}
+
+		public void setChunkSize(final long chunkSize) {
+			mChunkSize = chunkSize;
+		}
+
+		public void setListener(final Listener listener) {
+			mListener = listener;
+		}
+
+		/**
+		 * Feeds everything copied into the checksum. If an expected value is given, the copy
+		 * is discarded unless it matches. Without a checksum, data is copied in the kernel
+		 * with transferTo().
+		 *
+		 * @param expected Expected value or null to only calculate it.
+		 */
+		public void setChecksum(final Checksum checksum, final Long expected) {
+			mChecksum = checksum;
+			mExpectedChecksum = expected;
+		}
+
+		/**
+		 * Stops the transfer after the current chunk. It fails with an
+		 * {@link InterruptedIOException} then.
+		 */
+		public void cancel() {
+			mCancelled = true;
+		}
+
+		/**
+		 * Moves the source to the destination. Within the same filesystem this is a plain
+		 * rename, otherwise the file is copied and the source removed.
+		 *
+		 * @throws IOException If the file couldn't be moved. The source is left untouched then.
+		 */
+		public void move() throws IOException {
+			// Renaming skips the checksum, but then there's nothing that could go wrong with
+			// the data either.
+			if (mSource.renameTo(mDestination)) {
+				return;
+			}
+
+			copy();
+			mSource.delete();
+		}
+
+		/**
+		 * Copies the source to the destination. <b>This is blocking the current thread!</b>
+		 *
+		 * @throws IOException If the copy failed, there isn't enough space for it or the
+		 *                     checksum didn't match.
+		 */
+		public void copy() throws IOException {
+			final File directory = mDestination.getAbsoluteFile().getParentFile();
+			final long size = mSource.length();
+
+			if (directory.getUsableSpace() < size) {
+				throw new IOException(String.format("Not enough space in %s to copy %d bytes.",
+						directory, size));
 			}
-			if (destination != null) {
+
+			final File partialFile = new File(directory, mDestination.getName() + PARTIAL_POSTFIX);
+			FileInputStream source = null;
+			FileOutputStream destination = null;
+			boolean renamed = false;
+
+			try {
+				source = new FileInputStream(mSource);
+				destination = new FileOutputStream(partialFile);
+
+				if (mChecksum == null) {
+					transfer(source.getChannel(), destination.getChannel());
+				} else {
+					transferChecksummed(source.getChannel(), destination.getChannel());
+				}
+
+				destination.getFD().sync();
+				source.close();
 				destination.close();
+
+				if (!partialFile.renameTo(mDestination)) {
+					throw new IOException(String.format("Can't rename %s to %s.", partialFile,
+							mDestination));
+				}
+				renamed = true;
+			} finally {
+				// Whatever went wrong, the partial file is of no use.
+				if (!renamed) {
+					closeQuietly(source, destination);
+					partialFile.delete();
+				}
+			}
+		}
+
+		/**
+		 * Copies in chunks, transferTo() is allowed to stop short of what was asked for.
+		 */
+		private void transfer(final FileChannel source, final FileChannel destination)
+				throws IOException {
+			final long size = source.size();
+			final long started = System.nanoTime();
+			long position = 0;
+
+			while (position < size) {
+				checkCancelled(position, size);
+				final long transferred = source.transferTo(position,
+						Math.min(mChunkSize, size - position), destination);
+
+				if (transferred <= 0) {
+					throw new IOException(String.format("Copy stopped after %d of %d bytes.",
+							position, size));
+				}
+
+				position += transferred;
+				notifyProgress(position, size, started);
+			}
+		}
+
+		private void transferChecksummed(final FileChannel source,
+				final FileChannel destination) throws IOException {
+			final long size = source.size();
+			final long started = System.nanoTime();
+			final ByteBuffer buffer = ByteBuffer.allocate(
+					(int) Math.min(CHECKSUM_BUFFER_SIZE, mChunkSize));
+			long position = 0;
+			int read;
+
+			while (position < size) {
+				checkCancelled(position, size);
+				buffer.clear();
+
+				if ((read = source.read(buffer)) == -1) {
+					throw new IOException(String.format("Copy stopped after %d of %d bytes.",
+							position, size));
+				}
+
+				mChecksum.update(buffer.array(), 0, read);
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					destination.write(buffer);
+				}
+
+				position += read;
+				notifyProgress(position, size, started);
+			}
+
+			if (mExpectedChecksum != null && mChecksum.getValue() != mExpectedChecksum) {
+				throw new IOException(String.format("Checksum of %s is %x instead of %x.",
+						mSource, mChecksum.getValue(), mExpectedChecksum));
+			}
+		}
+
+		private void checkCancelled(final long position, final long size)
+				throws InterruptedIOException {
+			if (mCancelled) {
+				final InterruptedIOException e = new InterruptedIOException(String.format(
+						"Copy of %s cancelled after %d of %d bytes.", mSource, position, size));
+				e.bytesTransferred = (int) Math.min(Integer.MAX_VALUE, position);
+				throw e;
+			}
+		}
+
+		private void notifyProgress(final long transferred, final long total,
+				final long started) {
+			if (mListener == null) {
+				return;
+			}
+
+			final long elapsed = Math.max(1, System.nanoTime() - started);
+			mListener.onProgress(transferred, total, transferred * 1000000000L / elapsed);
+		}
+	}
+
+	/**
+	 * @see Transfer#move()
+	 */
+	public static void moveFile(final File sourceFile, final File destFile) throws IOException {
+		new Transfer(sourceFile, destFile).move();
+	}
+
+	/**
+	 * @see Transfer#copy()
+	 */
+	public static void copyFile(final File sourceFile, final File destFile)
+			throws IOException {
+		new Transfer(sourceFile, destFile).copy();
+	}
+
+	private static void closeQuietly(final Closeable... closeables) {
+		for (final Closeable closeable : closeables) {
+			if (closeable == null) {
+				continue;
+			}
+
+			try {
+				closeable.close();
+			} catch (final IOException e) {
+				// Already failing with a better exception.
 			}
 		}
 	}
@@ -7,6 +7,11 @@ import android.os.Build;
 import android.os.StrictMode;
 import com.crashlytics.android.Crashlytics;
 
+import net.rdrei.android.scdl2.api.EntityDecoder;
+import net.rdrei.android.scdl2.api.entity.PlaylistEntity;
+import net.rdrei.android.scdl2.api.entity.ResolveEntity;
+import net.rdrei.android.scdl2.api.entity.TrackEntity;
+
 import roboguice.util.Ln;
 
 public class SCDLApplication extends Application {
@@ -22,9 +27,31 @@ public class SCDLApplication extends Application {
 				this.enableStrictMode();
 			}
 		} else {
-            Ln.d("Setting up Crashlytics.");
-            Crashlytics.start(this);
-        }
+			StartupScheduler.runWhenIdle(new Runnable() {
+				@Override
+				public void run() {
+					Ln.d("Setting up Crashlytics.");
+					Crashlytics.start(SCDLApplication.this);
+				}
+			});
+		}
+
+		prepareEntityDecoder();
+	}
+
+	/**
+	 * Have the JSON adapters ready by the time the first API response arrives.
+	 */
+	private void prepareEntityDecoder() {
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				EntityDecoder.prepare(ResolveEntity.class, TrackEntity.class,
+						PlaylistEntity.class);
+			}
+		}, "scdl-decoder-warmup");
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
 	}
 
 	public boolean isDebuggable() {
@@ -0,0 +1,373 @@
+package net.rdrei.android.scdl2;
+
+import android.app.DownloadManager;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Message;
+
+import com.google.android.gms.analytics.HitBuilders;
+import com.google.android.gms.analytics.Tracker;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.name.Named;
+
+import net.rdrei.android.scdl2.ApplicationPreferences.StorageType;
+import net.rdrei.android.scdl2.api.APIException;
+import net.rdrei.android.scdl2.api.ServiceManager;
+import net.rdrei.android.scdl2.api.URLConnectionFactory;
+import net.rdrei.android.scdl2.api.entity.TrackEntity;
+import net.rdrei.android.scdl2.download.BandwidthLimiter;
+import net.rdrei.android.scdl2.download.CheckpointJournal;
+import net.rdrei.android.scdl2.download.DownloadCheckpoint;
+import net.rdrei.android.scdl2.download.DownloadVerifier;
+import net.rdrei.android.scdl2.download.ProgressPublisher;
+import net.rdrei.android.scdl2.download.SegmentedDownload;
+import net.rdrei.android.scdl2.guice.DownloadExecutorProvider;
+import net.rdrei.android.scdl2.guice.TransferExecutorProvider;
+import net.rdrei.android.scdl2.receiver.DownloadCompleteReceiver;
+import net.rdrei.android.scdl2.receiver.DownloadFinishedReceiver;
+import net.rdrei.android.scdl2.trace.Tracer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+
+import roboguice.util.Ln;
+import roboguice.util.SafeAsyncTask;
+
+/**
+ * Downloads tracks in-process with {@link SegmentedDownload} instead of handing them off to the
+ * system DownloadManager. The result is reported to {@link DownloadFinishedReceiver}, so
+ * post-processing and notifications are the same for both implementations.
+ * <p/>
+ * Downloads are written to a temporary file and their progress is kept in the
+ * {@link CheckpointJournal}, so a failed or killed download continues where it stopped the next
+ * time the same track is downloaded.
+ * <p/>
+ * Finished downloads are checked against the size SoundCloud reported for the track and their
+ * checksum is handed on to the receiver, which verifies the file with it if it has to copy it.
+ */
+public class SegmentedTrackDownloaderImpl implements TrackDownloader {
+
+	@Inject
+	private Context mContext;
+
+	@Inject
+	private ApplicationPreferences mPreferences;
+
+	@Inject
+	private Tracker mTracker;
+
+	@Inject
+	private URLConnectionFactory mConnectionFactory;
+
+	@Inject
+	private CheckpointJournal mJournal;
+
+	@Inject
+	private BandwidthLimiter mBandwidthLimiter;
+
+	@Inject
+	private ProgressPublisher mProgressPublisher;
+
+	@Inject
+	private DownloadVerifier mVerifier;
+
+	@Inject
+	private Tracer mTracer;
+
+	@Inject
+	private ServiceManager mServiceManager;
+
+	@Inject
+	@Named(DownloadExecutorProvider.NAME)
+	private ExecutorService mExecutor;
+
+	@Inject
+	@Named(TransferExecutorProvider.NAME)
+	private ExecutorService mTransferExecutor;
+
+	private final Uri mUri;
+	private final TrackEntity mTrack;
+	private final Handler mHandler;
+	private boolean mBackground;
+
+	@Inject
+	public SegmentedTrackDownloaderImpl(@Assisted final Uri uri,
+			@Assisted final TrackEntity track, @Assisted final Handler handler) {
+		super();
+		mUri = uri;
+		mTrack = track;
+		mHandler = handler;
+	}
+
+	@Override
+	public void enqueue() throws IOException {
+		final StartDownloadTask startDownloadTask = new StartDownloadTask(mHandler);
+		startDownloadTask.execute();
+	}
+
+	@Override
+	public void setBackground(final boolean background) {
+		mBackground = background;
+	}
+
+	/**
+	 * Determines the temporary file to write to. It lives in the directory the DownloadManager
+	 * based implementation would use.
+	 *
+	 * @throws IOException If directory can't be used for saving the file.
+	 */
+	private File getTemporaryFile() throws IOException {
+		final File typePath = mPreferences.getStorageDirectory();
+		final String filename = mTrack.getDownloadFilename() + Config.TMP_DOWNLOAD_POSTFIX;
+
+		if (!TrackDownloaderImpl.checkAndCreateTypePath(typePath)) {
+			throw new IOException(
+					String.format("Can't open directory %s to write.", typePath.toString()));
+		}
+
+		return new File(typePath, filename);
+	}
+
+	/**
+	 * Continue from the journal if we've been here before with the same file.
+	 */
+	private DownloadCheckpoint getCheckpoint(final File target) {
+		final DownloadCheckpoint checkpoint = mJournal.load(mTrack.getId());
+
+		if (checkpoint != null && target.getAbsolutePath().equals(checkpoint.getPath())) {
+			return checkpoint;
+		}
+
+		return new DownloadCheckpoint(mTrack.getId(), target);
+	}
+
+	/**
+	 * Runs the download and hands the outcome to {@link DownloadFinishedReceiver}. A download
+	 * that waited for its transfer slot longer than its URL stays valid is started again once
+	 * with a freshly resolved URL.
+	 *
+	 * @param target        Temporary file to download to.
+	 * @param keepTemporary If true, the receiver takes care of moving the file to its final
+	 *                      location, like it does for DownloadManager downloads to local storage.
+	 */
+	private void download(final File target, final boolean keepTemporary) {
+		URL url;
+		try {
+			url = new URL(mUri.toString());
+		} catch (final IOException e) {
+			Ln.e(e, "Invalid download URL %s.", mUri);
+			broadcastResult(target, DownloadManager.STATUS_FAILED, DownloadManager.ERROR_UNKNOWN,
+					false);
+			return;
+		}
+
+		mJournal.prune(Config.DOWNLOAD_CHECKPOINT_MAX_AGE_MS);
+		final DownloadCheckpoint checkpoint = getCheckpoint(target);
+		mBandwidthLimiter.update(mPreferences);
+
+		SegmentedDownload download;
+		try {
+			try {
+				download = transfer(url, target, checkpoint);
+			} catch (final SegmentedDownload.HttpStatusException e) {
+				if (!e.isExpired()) {
+					throw e;
+				}
+
+				Ln.i(e, "Download URL of track %d expired, resolving it again.", mTrack.getId());
+				url = resolveUrl();
+				download = transfer(url, target, checkpoint);
+			}
+		} catch (final SegmentedDownload.HttpStatusException e) {
+			// The next attempt can still continue with what we've got.
+			Ln.w(e, "Download of %s failed.", mUri);
+			broadcastResult(target, DownloadManager.STATUS_FAILED, e.getCode(),
+					checkpoint.isResumable(target));
+			return;
+		} catch (final SegmentedDownload.InsufficientSpaceException e) {
+			Ln.w(e, "Not enough space for %s.", target);
+			discard(target);
+			broadcastResult(target, DownloadManager.STATUS_FAILED,
+					DownloadManager.ERROR_INSUFFICIENT_SPACE, false);
+			return;
+		} catch (final IOException e) {
+			Ln.w(e, "Download of %s failed.", mUri);
+			broadcastResult(target, DownloadManager.STATUS_FAILED, DownloadManager.ERROR_UNKNOWN,
+					checkpoint.isResumable(target));
+			return;
+		} finally {
+			mProgressPublisher.finish(mTrack.getId());
+		}
+
+		mJournal.remove(mTrack.getId());
+		Ln.d("Download of %s finished.", target);
+
+		final long size = target.length();
+		if (!mVerifier.check(url, target, mTrack.getOriginalContentSize())) {
+			discard(target);
+			broadcastResult(target, DownloadManager.STATUS_FAILED,
+					DownloadManager.ERROR_FILE_ERROR, false);
+			return;
+		}
+
+		// Bytes fetched by a repair are not part of the checksum.
+		final long checksum = target.length() == size ? download.getChecksum() : -1;
+
+		if (keepTemporary) {
+			broadcastResult(target, DownloadManager.STATUS_SUCCESSFUL, 0, false, checksum);
+			return;
+		}
+
+		final String path = target.getPath();
+		final File file = new File(
+				path.substring(0, path.length() - Config.TMP_DOWNLOAD_POSTFIX.length()));
+
+		try {
+			IOUtil.moveFile(target, file);
+		} catch (final IOException e) {
+			Ln.w(e, "Failed to move %s to %s.", target, file);
+			target.delete();
+			broadcastResult(target, DownloadManager.STATUS_FAILED,
+					DownloadManager.ERROR_FILE_ERROR, false);
+			return;
+		}
+
+		broadcastResult(file, DownloadManager.STATUS_SUCCESSFUL, 0, false, checksum);
+	}
+
+	/**
+	 * Downloads from the given URL, continuing from the checkpoint.
+	 */
+	private SegmentedDownload transfer(final URL url, final File target,
+			final DownloadCheckpoint checkpoint) throws IOException {
+		final SegmentedDownload download = new SegmentedDownload(mConnectionFactory, mExecutor,
+				url, target);
+
+		download.setCheckpoint(mJournal, checkpoint);
+		download.setRateLimiter(mBandwidthLimiter.getLimiter(mBackground));
+		download.setListener(new SegmentedDownload.Listener() {
+			@Override
+			public void onProgress(final long transferredBytes, final long totalBytes) {
+				mProgressPublisher.publish(mTrack.getId(), mTrack.getTitle(), transferredBytes,
+						totalBytes);
+			}
+		});
+
+		download.download();
+		return download;
+	}
+
+	/**
+	 * Asks SoundCloud for a new signed download URL of the track.
+	 */
+	private URL resolveUrl() throws IOException {
+		final Uri uri;
+		try {
+			uri = mServiceManager.downloadService().resolveUri(String.valueOf(mTrack.getId()));
+		} catch (final APIException e) {
+			throw new IOException("Resolving the download URL failed.", e);
+		}
+
+		return new URL(uri.toString());
+	}
+
+	private void discard(final File target) {
+		target.delete();
+		mJournal.remove(mTrack.getId());
+	}
+
+	private void broadcastResult(final File file, final int status, final int reason,
+			final boolean resumable) {
+		broadcastResult(file, status, reason, resumable, -1);
+	}
+
+	/**
+	 * @param checksum Adler-32 of the file or -1 if it's not known.
+	 */
+	private void broadcastResult(final File file, final int status, final int reason,
+			final boolean resumable, final long checksum) {
+		final Intent intent = new Intent(mContext, DownloadFinishedReceiver.class);
+		intent.setAction(DownloadCompleteReceiver.ACTION_DOWNLOAD_FINISHED);
+		intent.putExtra(DownloadCompleteReceiver.EXTRA_TITLE, mTrack.getTitle());
+		intent.putExtra(DownloadCompleteReceiver.EXTRA_PATH, Uri.fromFile(file).toString());
+		intent.putExtra(DownloadCompleteReceiver.EXTRA_STATUS, status);
+		intent.putExtra(DownloadCompleteReceiver.EXTRA_REASON, reason);
+		intent.putExtra(DownloadCompleteReceiver.EXTRA_RESUMABLE, resumable);
+		intent.putExtra(DownloadCompleteReceiver.EXTRA_CHECKSUM, checksum);
+		intent.putExtra(DownloadCompleteReceiver.EXTRA_TRACK_ID, mTrack.getId());
+
+		mContext.sendBroadcast(intent);
+	}
+
+	private class StartDownloadTask extends SafeAsyncTask<Void> {
+
+		public StartDownloadTask(final Handler handler) {
+			super(handler);
+		}
+
+		/**
+		 * Only errors while preparing the download bubble up to the handler. The transfer runs
+		 * on a pool of its own instead of RoboGuice's shared executor, which it would otherwise
+		 * block for minutes. Its errors end up in a notification just like with the
+		 * DownloadManager.
+		 */
+		@Override
+		public Void call() throws Exception {
+			Ln.d("Starting segmented download of %s.", mUri.toString());
+			final File target = getTemporaryFile();
+			final boolean keepTemporary = mPreferences.getStorageType() == StorageType.LOCAL;
+
+			mTransferExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						download(target, keepTemporary);
+					} catch (final RuntimeException e) {
+						// Would take down the whole app on a pool thread.
+						Ln.e(e, "Download of %s failed unexpectedly.", mUri);
+						broadcastResult(target, DownloadManager.STATUS_FAILED,
+								DownloadManager.ERROR_UNKNOWN, false);
+					}
+				}
+			});
+			mTracer.endAsync(TRACE_SHARE_TO_ENQUEUE);
+			return null;
+		}
+
+		@Override
+		protected void onException(final Exception e) throws RuntimeException {
+			super.onException(e);
+			final Message msg;
+
+			Ln.i("Track download exception encountered.", e);
+			if (handler == null) {
+				trackDownloadError("DOWNLOAD_HANDLER_ERROR");
+				return;
+			}
+
+			if (e instanceof IOException) {
+				msg = handler.obtainMessage(MSG_DOWNLOAD_STORAGE_ERROR);
+				trackDownloadError("DOWNLOAD_STORAGE_ERROR");
+			} else {
+				msg = handler.obtainMessage(MSG_DOWNLOAD_ERROR);
+				trackDownloadError("DOWNLOAD_REQUEST_ERROR");
+			}
+
+			handler.sendMessage(msg);
+		}
+
+		private void trackDownloadError(final String description) {
+			mTracker.send(
+					new HitBuilders.ExceptionBuilder()
+							.setDescription(description)
+							.setFatal(false)
+							.build()
+			);
+		}
+	}
+}
@@ -12,10 +12,14 @@ import net.rdrei.android.scdl2.api.APIException;
 import net.rdrei.android.scdl2.api.MediaDownloadType;
 import net.rdrei.android.scdl2.api.PendingDownload;
 import net.rdrei.android.scdl2.api.ServiceManager;
+import net.rdrei.android.scdl2.api.cache.ResolutionCache;
 import net.rdrei.android.scdl2.api.entity.ResolveEntity;
 import net.rdrei.android.scdl2.api.service.ResolveService;
+import net.rdrei.android.scdl2.trace.Tracer;
 
 import java.net.HttpURLConnection;
+import java.util.Locale;
+import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -26,6 +30,12 @@ public class ShareIntentResolver {
 	@Inject
 	private ServiceManager mServiceManager;
 
+	@Inject
+	private ResolutionCache mResolutionCache;
+
+	@Inject
+	private Tracer mTracer;
+
 	public static final Pattern URL_ID_PATTERN = Pattern.compile(
 			"^https?://api.soundcloud.com/tracks/(\\d+)\\.json");
 
@@ -38,6 +48,12 @@ public class ShareIntentResolver {
 
 	private static final String[] ALLOWED_HOSTS = {"soundcloud.com", "snd.sc", "m.soundcloud.com"};
 
+	private static final String MOBILE_HOST_PREFIX = "m.";
+
+	// Added by the share dialogs and apps passing the link on, they don't change the target.
+	private static final String TRACKING_PARAMETER_PREFIX = "utm_";
+	private static final String[] TRACKING_PARAMETERS = {"si", "ref"};
+
 	public static class ShareIntentResolverException extends APIException {
 		private static final long serialVersionUID = 1L;
 
@@ -164,9 +180,13 @@ public class ShareIntentResolver {
 		final Matcher idMatcher = URL_ID_PATTERN.matcher(url);
 		final Matcher playlistMatcher = URL_PLAYLIST_PATTERN.matcher(url);
 
-		if (!Config.Features.PLAYLIST_DOWNLOADS && playlistMatcher.find()) {
-			throw new UnsupportedPlaylistUrlException(
-					mActivity.getString(R.string.track_error_unsupported_playlist));
+		if (playlistMatcher.find()) {
+			if (!Config.Features.PLAYLIST_DOWNLOADS) {
+				throw new UnsupportedPlaylistUrlException(
+						mActivity.getString(R.string.track_error_unsupported_playlist));
+			}
+
+			return new PendingDownload(playlistMatcher.group(1), MediaDownloadType.PLAYLIST);
 		}
 
 		if (idMatcher.find()) {
@@ -176,7 +196,7 @@ public class ShareIntentResolver {
 					String.format("Could not parse ID from URL '%s'.", url));
 		}
 
-			return new PendingDownload(id, MediaDownloadType.TRACK);
+		return new PendingDownload(id, MediaDownloadType.TRACK);
 	}
 
 	protected boolean isValidUri(final Uri uri) {
@@ -206,10 +226,72 @@ public class ShareIntentResolver {
 	}
 
 	protected String resolveUri(final Uri uri) throws APIException {
-		final ResolveService service = mServiceManager.resolveService();
-		final ResolveEntity entity = service.resolve(uri.toString());
+		final Tracer.Span span = mTracer.begin("resolve_uri");
+		try {
+			return mResolutionCache.get(normalizeUri(uri), new ResolutionCache.Resolver() {
+				@Override
+				public String resolve() throws APIException {
+					final ResolveService service = mServiceManager.resolveService();
+					final ResolveEntity entity = service.resolve(uri.toString());
+
+					return entity.getLocation();
+				}
+			});
+		} finally {
+			span.end();
+		}
+	}
+
+	/**
+	 * Reduces the different ways of sharing the same link to one cache key. The scheme is
+	 * left out, as well as the mobile subdomain, trailing slashes, fragments and tracking
+	 * parameters. Other query parameters are kept in a stable order.
+	 *
+	 * @param uri A URI that passed {@link #isValidUri(Uri)}.
+	 */
+	public static String normalizeUri(final Uri uri) {
+		String host = uri.getHost().toLowerCase(Locale.US);
+		if (host.startsWith(MOBILE_HOST_PREFIX)) {
+			host = host.substring(MOBILE_HOST_PREFIX.length());
+		}
 
-		return entity.getLocation();
+		String path = uri.getPath();
+		if (path == null) {
+			path = "";
+		}
+		while (path.endsWith("/")) {
+			path = path.substring(0, path.length() - 1);
+		}
+
+		final StringBuilder builder = new StringBuilder(host).append(path);
+		char separator = '?';
+
+		for (final String name : new TreeSet<>(uri.getQueryParameterNames())) {
+			if (isTrackingParameter(name)) {
+				continue;
+			}
+
+			for (final String value : uri.getQueryParameters(name)) {
+				builder.append(separator).append(name).append('=').append(value);
+				separator = '&';
+			}
+		}
+
+		return builder.toString();
+	}
+
+	private static boolean isTrackingParameter(final String name) {
+		if (name.startsWith(TRACKING_PARAMETER_PREFIX)) {
+			return true;
+		}
+
+		for (final String parameter : TRACKING_PARAMETERS) {
+			if (parameter.equals(name)) {
+				return true;
+			}
+		}
+
+		return false;
 	}
 
 }
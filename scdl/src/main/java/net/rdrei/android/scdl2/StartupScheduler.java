@@ -0,0 +1,33 @@
+package net.rdrei.android.scdl2;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+
+/**
+ * Runs work that isn't needed for the first frame once the main thread has nothing else to do,
+ * i.e. after the launched activity is drawn. Runs it right away unless
+ * {@link Config.Features#DEFERRED_STARTUP} is on.
+ */
+public final class StartupScheduler {
+	private StartupScheduler() {
+	}
+
+	/**
+	 * Must be called on the main thread.
+	 */
+	public static void runWhenIdle(final Runnable task) {
+		if (!Config.Features.DEFERRED_STARTUP) {
+			task.run();
+			return;
+		}
+
+		Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+			@Override
+			public boolean queueIdle() {
+				task.run();
+				// Only once.
+				return false;
+			}
+		});
+	}
+}
@@ -7,6 +7,8 @@ public interface TrackDownloader {
 	int MSG_DOWNLOAD_ERROR = -1;
 	int MSG_DOWNLOAD_STORAGE_ERROR = -2;
 	String EXTRA_ERROR = "ERROR";
+	// Async span from receiving a share intent until the download is enqueued.
+	String TRACE_SHARE_TO_ENQUEUE = "share_to_enqueue";
 
 	/**
 	 * Enqueues the job into the download manager.
@@ -15,4 +17,11 @@ public interface TrackDownloader {
 	 */
 	void enqueue() throws IOException;
 
+	/**
+	 * Marks the download as background work, e.g. part of a playlist. Those share a separate
+	 * bandwidth budget where the implementation supports it. Must be called before
+	 * {@link #enqueue()}.
+	 */
+	void setBackground(boolean background);
+
 }
\ No newline at end of file
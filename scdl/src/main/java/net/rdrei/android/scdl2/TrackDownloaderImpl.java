@@ -16,6 +16,8 @@ import com.google.inject.assistedinject.Assisted;
 
 import net.rdrei.android.scdl2.ApplicationPreferences.StorageType;
 import net.rdrei.android.scdl2.api.entity.TrackEntity;
+import net.rdrei.android.scdl2.download.DownloadRegistry;
+import net.rdrei.android.scdl2.trace.Tracer;
 
 import java.io.File;
 import java.io.IOException;
@@ -42,9 +44,16 @@ public class TrackDownloaderImpl implements TrackDownloader {
 	@Inject
 	private Tracker mTracker;
 
+	@Inject
+	private DownloadRegistry mRegistry;
+
+	@Inject
+	private Tracer mTracer;
+
 	private final Uri mUri;
 	private final TrackEntity mTrack;
 	private final Handler mHandler;
+	private Uri mDestinationUri;
 
 	@Inject
 	public TrackDownloaderImpl(@Assisted final Uri mUri, @Assisted final TrackEntity mTrack,
@@ -66,6 +75,13 @@ public class TrackDownloaderImpl implements TrackDownloader {
 		startDownloadTask.execute();
 	}
 
+	/**
+	 * The DownloadManager doesn't let us throttle its transfers, so there's nothing to do.
+	 */
+	@Override
+	public void setBackground(final boolean background) {
+	}
+
 	/**
 	 * Check if the given path is writable and attempts to create it.
 	 */
@@ -127,6 +143,7 @@ public class TrackDownloaderImpl implements TrackDownloader {
 		final Uri destinationUri = Uri.withAppendedPath(Uri.fromFile(typePath), filename);
 		Ln.d("Local destination URI: %s", destinationUri.toString());
 		request.setDestinationUri(destinationUri);
+		mDestinationUri = destinationUri;
 	}
 
 	private class StartDownloadTask extends SafeAsyncTask<Void> {
@@ -138,10 +155,20 @@ public class TrackDownloaderImpl implements TrackDownloader {
 		@Override
 		public Void call() throws Exception {
 			Ln.d("Starting download of %s.", mUri.toString());
-			final Request request;
-			request = createDownloadRequest(mUri);
+			final Tracer.Span span = mTracer.begin("enqueue");
+			try {
+				final Request request;
+				request = createDownloadRequest(mUri);
+
+				final long downloadId = mDownloadManager.enqueue(request);
+				// Lets the DownloadCompleteReceiver recognize the download as ours.
+				mRegistry.register(downloadId, mTrack.getId(), mDestinationUri.toString(),
+						mTrack.getOriginalContentSize());
+			} finally {
+				span.end();
+			}
 
-			mDownloadManager.enqueue(request);
+			mTracer.endAsync(TRACE_SHARE_TO_ENQUEUE);
 			return null;
 		}
 
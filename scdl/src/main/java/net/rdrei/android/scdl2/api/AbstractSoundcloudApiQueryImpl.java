@@ -2,12 +2,10 @@
 package net.rdrei.android.scdl2.api;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.net.URLConnection;
 import java.util.HashMap;
@@ -16,11 +14,16 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.zip.GZIPInputStream;
 
+import net.rdrei.android.scdl2.api.cache.CacheEntry;
+import net.rdrei.android.scdl2.api.cache.MetadataCache;
+import net.rdrei.android.scdl2.trace.HttpTimings;
+import net.rdrei.android.scdl2.trace.Tracer;
+
 import roboguice.util.Ln;
 
 import com.github.kevinsawicki.http.HttpRequest;
 import com.github.kevinsawicki.http.HttpRequest.SendCallback;
-import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
@@ -28,8 +31,13 @@ import com.google.inject.Injector;
 public abstract class AbstractSoundcloudApiQueryImpl<T extends SoundcloudEntity>
 		implements SoundcloudApiQuery<T> {
 
-	private static final String NEWLINE_FALLBACK = "\n";
 	private static final String GZIP = "gzip";
+	private static final String CHARSET = "UTF-8";
+
+	private static final String ETAG_HEADER_KEY = "ETag";
+	private static final String LAST_MODIFIED_HEADER_KEY = "Last-Modified";
+	private static final String IF_NONE_MATCH_HEADER_KEY = "If-None-Match";
+	private static final String IF_MODIFIED_SINCE_HEADER_KEY = "If-Modified-Since";
 
 	private static final String ACCEPT_HEADER_KEY = "Accept";
 	private static final String ACCEPT_HEADER_VALUE = "application/json";
@@ -44,6 +52,9 @@ public abstract class AbstractSoundcloudApiQueryImpl<T extends SoundcloudEntity>
 	@Inject
 	private Injector mInjector;
 
+	@Inject
+	private Tracer mTracer;
+
 	@Override
 	public void setSendCallback(final SendCallback sendCallback) {
 		mSendCallback = sendCallback;
@@ -76,6 +87,121 @@ public abstract class AbstractSoundcloudApiQueryImpl<T extends SoundcloudEntity>
 
 	@Override
 	public T execute(final int expected) throws APIException {
+		final HttpURLConnection connection = openConnection();
+		final int code = getResponseCode(connection);
+
+		if (code != expected) {
+			connection.disconnect();
+			throw new APIException(String.format(
+					"HTTP request failed with code %d.", code), code);
+		}
+
+		// Decoding from the stream avoids holding the whole response in memory as String.
+		try {
+			return EntityDecoder.decode(getWrappedResponseStream(connection),
+					mTypeToken);
+		} catch (final IOException | JsonParseException e) {
+			throw new APIException(e, -1);
+		}
+	}
+
+	@Override
+	public T executeCached(final int expected, final MetadataCache cache,
+			final String key, final long ttl) throws APIException {
+		if (mMethod != HttpMethod.GET) {
+			throw new IllegalStateException("Only GET requests can be cached.");
+		}
+
+		CacheEntry entry = cache.get(key);
+		if (entry != null && entry.isFresh(ttl)) {
+			Ln.d("Serving %s from cache.", key);
+			try {
+				return EntityDecoder.decode(entry.getBody(), mTypeToken);
+			} catch (final JsonParseException e) {
+				Ln.w(e, "Dropping unreadable %s from cache.", key);
+				cache.remove(key);
+				entry = null;
+			}
+		}
+
+		final HttpURLConnection connection = openConnection();
+		if (entry != null && entry.getEtag() != null) {
+			connection.setRequestProperty(IF_NONE_MATCH_HEADER_KEY,
+					entry.getEtag());
+		}
+		if (entry != null && entry.getLastModified() != null) {
+			connection.setRequestProperty(IF_MODIFIED_SINCE_HEADER_KEY,
+					entry.getLastModified());
+		}
+
+		final int code;
+		try {
+			code = getResponseCode(connection);
+		} catch (final APIException e) {
+			// Better outdated than nothing while we're offline.
+			if (entry != null) {
+				Ln.w(e, "Serving stale %s from cache.", key);
+				return decodeCached(cache, entry);
+			}
+			throw e;
+		}
+
+		if (code == HttpURLConnection.HTTP_NOT_MODIFIED && entry != null) {
+			Ln.d("%s has not been modified.", key);
+			cache.put(entry.revalidate());
+			return decodeCached(cache, entry);
+		}
+
+		if (code != expected) {
+			connection.disconnect();
+			throw new APIException(String.format(
+					"HTTP request failed with code %d.", code), code);
+		}
+
+		// We need the raw body for the cache, so no streaming here.
+		final String body;
+		try {
+			body = readResponse(connection);
+		} catch (final IOException e) {
+			throw new APIException(e, -1);
+		}
+
+		// Only what we can read back goes into the cache.
+		final T entity;
+		try {
+			entity = EntityDecoder.decode(body, mTypeToken);
+		} catch (final JsonParseException e) {
+			throw new APIException(e, -1);
+		}
+
+		cache.put(new CacheEntry(key, body,
+				connection.getHeaderField(ETAG_HEADER_KEY),
+				connection.getHeaderField(LAST_MODIFIED_HEADER_KEY)));
+		return entity;
+	}
+
+	/**
+	 * Decodes a cached body. Removes the entry if it can't be read, so the next request goes to
+	 * the network.
+	 */
+	private T decodeCached(final MetadataCache cache, final CacheEntry entry)
+			throws APIException {
+		try {
+			return EntityDecoder.decode(entry.getBody(), mTypeToken);
+		} catch (final JsonParseException e) {
+			cache.remove(entry.getKey());
+			throw new APIException(e, -1);
+		}
+	}
+
+	/**
+	 * Opens the connection for the configured method with all default
+	 * headers set.
+	 * 
+	 * @return
+	 * @throws APIException
+	 */
+	private HttpURLConnection openConnection() throws APIException {
 		final HttpURLConnection connection;
 
 		Ln.d("Executing API request for %s.", this.toString());
@@ -94,37 +220,41 @@ public abstract class AbstractSoundcloudApiQueryImpl<T extends SoundcloudEntity>
 		connection.setInstanceFollowRedirects(false);
 		setRequestHeaders(connection);
 
-		int code;
+		return connection;
+	}
+
+	private int getResponseCode(final HttpURLConnection connection)
+			throws APIException {
 		try {
-			code = connection.getResponseCode();
+			return HttpTimings.getResponseCode(mTracer, connection);
 		} catch (final IOException e) {
 			// I consider this a bug. A 401 without auth challenge causes
 			// an IOException, while it's perfectly valid in terms of RFC 2616.
 			if (e.getMessage().equals(
 					"Received authentication challenge is null")) {
-				code = HttpURLConnection.HTTP_UNAUTHORIZED;
+				return HttpURLConnection.HTTP_UNAUTHORIZED;
 			} else {
 				throw new APIException(e, -1);
 			}
 		}
+	}
 
-		if (code != expected) {
-			connection.disconnect();
-			throw new APIException(String.format(
-					"HTTP request failed with code %d.", code), code);
-		}
+	private static String readResponse(final HttpURLConnection connection)
+			throws IOException {
+		final InputStream stream = getWrappedResponseStream(connection);
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[8192];
 
-		final InputStream responseStream;
 		try {
-			responseStream = getWrappedResponseStream(connection);
-		} catch (final IOException e) {
-			throw new APIException(e, -1);
+			int read;
+			while ((read = stream.read(buffer)) != -1) {
+				output.write(buffer, 0, read);
+			}
+		} finally {
+			stream.close();
 		}
 
-		final String responseStr = convertStreamToString(responseStream);
-		final Type entityType = mTypeToken.getType();
-
-		return new Gson().fromJson(responseStr, entityType);
+		return output.toString(CHARSET);
 	}
 
 	protected abstract void setupPostRequest(HttpRequest request);
@@ -268,47 +398,6 @@ public abstract class AbstractSoundcloudApiQueryImpl<T extends SoundcloudEntity>
 				GZIP.equalsIgnoreCase(response.getContentEncoding()));
 	}
 
-	/**
-	 * Read an entire stream to end and assemble in a string.
-	 * 
-	 * @param is
-	 *            Stream to read.
-	 * @return Entire stream contents.
-	 */
-	protected static String convertStreamToString(final InputStream is) {
-		/*
-		 * To convert the InputStream to String we use the
-		 * BufferedReader.readLine() method. We iterate until the BufferedReader
-		 * returns null, which means there's no more data to read. Each line
-		 * will appended to a StringBuilder and returned as String.
-		 */
-		final BufferedReader reader = new BufferedReader(new InputStreamReader(
-				is));
-		final StringBuilder sb = new StringBuilder();
-
-		String line = null;
-		String newline = System.getProperty("line.seperator");
-		if (newline == null) {
-			newline = NEWLINE_FALLBACK;
-		}
-		try {
-			while ((line = reader.readLine()) != null) {
-				sb.append(line);
-				sb.append(newline);
-			}
-		} catch (final IOException e) {
-			Ln.e(e);
-		} finally {
-			try {
-				is.close();
-			} catch (final IOException e) {
-				Ln.e(e);
-			}
-		}
-
-		return sb.toString();
-	}
-
 	@Override
 	public String toString() {
 		return "SoundcloudApiQuery [method=" + mMethod + ", url=" + mUrl + "]";
@@ -0,0 +1,72 @@
+package net.rdrei.android.scdl2.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Decodes API entities straight from the response stream. All decoding goes through one shared
+ * Gson instance, which caches the reflective TypeAdapter of every type after its first use.
+ */
+public final class EntityDecoder {
+	private static final String CHARSET = "UTF-8";
+	private static final Gson GSON = new Gson();
+
+	private EntityDecoder() {
+	}
+
+	/**
+	 * Builds the TypeAdapters for the given classes ahead of time. The reflection involved is the
+	 * slowest part of decoding a type for the first time, so better do this off the UI thread.
+	 */
+	public static void prepare(final Class<?>... types) {
+		for (final Class<?> type : types) {
+			GSON.getAdapter(type);
+		}
+	}
+
+	/**
+	 * Reads one entity from the stream and closes it.
+	 * 
+	 * @return The entity or null if the stream was empty.
+	 * @throws IOException
+	 *             If reading from the stream failed.
+	 * @throws com.google.gson.JsonSyntaxException
+	 *             If the stream doesn't contain the expected JSON.
+	 */
+	public static <T> T decode(final InputStream stream, final TypeToken<T> typeToken)
+			throws IOException {
+		final JsonReader reader = new JsonReader(createReader(stream));
+
+		try {
+			return GSON.fromJson(reader, typeToken.getType());
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads one entity from a JSON string, e.g. one taken from the cache.
+	 * 
+	 * @return The entity or null if the string was empty.
+	 * @throws com.google.gson.JsonSyntaxException
+	 *             If the string doesn't contain the expected JSON.
+	 */
+	public static <T> T decode(final String json, final TypeToken<T> typeToken) {
+		return GSON.fromJson(json, typeToken.getType());
+	}
+
+	private static InputStreamReader createReader(final InputStream stream) {
+		try {
+			return new InputStreamReader(stream, CHARSET);
+		} catch (final UnsupportedEncodingException e) {
+			// UTF-8 is always there.
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -2,26 +2,21 @@ package net.rdrei.android.scdl2.api;
 
 import java.net.HttpURLConnection;
 import java.net.URLConnection;
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
 
 import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
-
-import org.thoughtcrime.ssl.pinning.PinningTrustManager;
+import javax.net.ssl.SSLSocketFactory;
 
 import com.github.kevinsawicki.http.HttpRequest;
 import com.google.gson.reflect.TypeToken;
 import com.google.inject.Inject;
-import com.google.inject.Injector;
+import com.google.inject.Provider;
 import com.google.inject.assistedinject.Assisted;
 
 public class SecureSoundcloudApiQueryImpl<T extends SoundcloudEntity> extends
 		AbstractSoundcloudApiQueryImpl<T> {
 
 	@Inject
-	private Injector mInjector;
+	private Provider<SSLSocketFactory> mSocketFactoryProvider;
 
 	@Inject
 	public SecureSoundcloudApiQueryImpl(@Assisted final URLWrapper url,
@@ -32,11 +27,11 @@ public class SecureSoundcloudApiQueryImpl<T extends SoundcloudEntity> extends
 
 	@Override
 	protected void setupPostRequest(final HttpRequest request) {
-		pinSSLConnection(request);
+		pinSSLConnection(request.getConnection());
 	}
 
 	/**
-	 * Applies the pinning SSL manager to the connection.
+	 * Applies the shared pinning socket factory to the connection.
 	 * 
 	 * @param connection
 	 */
@@ -45,37 +40,8 @@ public class SecureSoundcloudApiQueryImpl<T extends SoundcloudEntity> extends
 			throw new IllegalStateException("Not an SSL connection!");
 		}
 
-		final TrustManager[] trustManagers = getPinningTrustManagers();
-		final SSLContext sslContext;
-
-		try {
-			sslContext = SSLContext.getInstance("TLS");
-		} catch (final NoSuchAlgorithmException e) {
-			// Again, should not happen if I didn't type it wrong.
-			throw new IllegalArgumentException(e);
-		}
-
-		try {
-			sslContext.init(null, trustManagers, null);
-		} catch (final KeyManagementException e) {
-			throw new IllegalStateException(e);
-		}
-
-		((HttpsURLConnection) connection).setSSLSocketFactory(sslContext
-				.getSocketFactory());
-	}
-
-	private void pinSSLConnection(final HttpRequest request) {
-		request.applyTrustManager(getPinningTrustManagers());
-	}
-
-	/**
-	 * @return An array containing an instance of the PinningTrustManager.
-	 */
-	private TrustManager[] getPinningTrustManagers() {
-		final TrustManager[] trustManagers = new TrustManager[1];
-		trustManagers[0] = mInjector.getInstance(PinningTrustManager.class);
-		return trustManagers;
+		((HttpsURLConnection) connection).setSSLSocketFactory(mSocketFactoryProvider
+				.get());
 	}
 
 	@Override
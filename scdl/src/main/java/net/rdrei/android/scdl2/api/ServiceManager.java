@@ -1,9 +1,11 @@
 package net.rdrei.android.scdl2.api;
 
 import android.app.Application;
+import android.content.SharedPreferences;
 
 import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.google.inject.Singleton;
 
 import net.rdrei.android.scdl2.ApplicationPreferences;
 import net.rdrei.android.scdl2.api.service.DownloadService;
@@ -11,52 +13,79 @@ import net.rdrei.android.scdl2.api.service.PlaylistService;
 import net.rdrei.android.scdl2.api.service.ResolveService;
 import net.rdrei.android.scdl2.api.service.TrackService;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import roboguice.RoboGuice;
-import roboguice.inject.ContextSingleton;
 
 /**
  * Singleton managing creation of API services and setting them up with default parameters, in case
  * need to access APIs with authentication requirements.
+ * <p/>
+ * The services don't keep any state between requests, so every one of them is created once and
+ * shared by all threads. They're only created again when the SSL preference changes.
  *
  * @author pascal
  */
-@ContextSingleton
+@Singleton
 public class ServiceManager {
 	private final Injector mInjector;
+	private final SharedPreferences mPreferences;
+	private final Map<Class<? extends SoundcloudApiService>, SoundcloudApiService> mServices =
+			new HashMap<>();
 
-	@Inject
-	private ApplicationPreferences mPreferences;
+	// SharedPreferences only keeps a weak reference to its listeners.
+	private final SharedPreferences.OnSharedPreferenceChangeListener mPreferenceListener =
+			new SharedPreferences.OnSharedPreferenceChangeListener() {
+				@Override
+				public void onSharedPreferenceChanged(final SharedPreferences preferences,
+						final String key) {
+					if (ApplicationPreferences.KEY_SSL_ENABLED.equals(key)) {
+						invalidate();
+					}
+				}
+			};
 
 	@Inject
-	public ServiceManager(final Application application) {
+	public ServiceManager(final Application application, final SharedPreferences preferences) {
 		mInjector = RoboGuice.getBaseApplicationInjector(application);
-	}
-
-	private void setupService(final SoundcloudApiService service) {
-		service.setUseSSL(mPreferences.getSSLEnabled());
+		mPreferences = preferences;
+		mPreferences.registerOnSharedPreferenceChangeListener(mPreferenceListener);
 	}
 
 	public TrackService trackService() {
-		final TrackService service = mInjector.getInstance(TrackService.class);
-		setupService(service);
-		return service;
+		return getService(TrackService.class);
 	}
 
 	public ResolveService resolveService() {
-		final ResolveService service = mInjector.getInstance(ResolveService.class);
-		setupService(service);
-		return service;
+		return getService(ResolveService.class);
 	}
 
 	public DownloadService downloadService() {
-		final DownloadService service = mInjector.getInstance(DownloadService.class);
-		setupService(service);
-		return service;
+		return getService(DownloadService.class);
 	}
 
 	public PlaylistService playlistService() {
-		final PlaylistService service = mInjector.getInstance(PlaylistService.class);
-		setupService(service);
-		return service;
+		return getService(PlaylistService.class);
+	}
+
+	private synchronized <T extends SoundcloudApiService> T getService(final Class<T> type) {
+		SoundcloudApiService service = mServices.get(type);
+
+		if (service == null) {
+			service = mInjector.getInstance(type);
+			service.setUseSSL(ApplicationPreferences.getSSLEnabled(mPreferences));
+			mServices.put(type, service);
+		}
+
+		return type.cast(service);
+	}
+
+	/**
+	 * Services handed out before keep their setting, requests already on their way are not
+	 * affected.
+	 */
+	private synchronized void invalidate() {
+		mServices.clear();
 	}
 }
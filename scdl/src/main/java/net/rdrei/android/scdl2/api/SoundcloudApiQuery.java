@@ -2,6 +2,8 @@ package net.rdrei.android.scdl2.api;
 
 import java.io.File;
 
+import net.rdrei.android.scdl2.api.cache.MetadataCache;
+
 import com.github.kevinsawicki.http.HttpRequest.SendCallback;
 
 public interface SoundcloudApiQuery<T extends SoundcloudEntity> {
@@ -30,4 +32,23 @@ public interface SoundcloudApiQuery<T extends SoundcloudEntity> {
 	SoundcloudApiQuery<T> addPartParameters(String key, File file);
 
 	T execute(int expected) throws APIException;
+
+	/**
+	 * Like {@link #execute(int)}, but answers from the cache as long as the
+	 * entry is younger than ttl. Older entries are revalidated with a
+	 * conditional GET and still used if the network is unavailable.
+	 * <b>Only works for GET.</b>
+	 * 
+	 * @param expected
+	 *            Expected HTTP status code.
+	 * @param cache
+	 *            Cache to use.
+	 * @param key
+	 *            Unique key of the resource within the cache.
+	 * @param ttl
+	 *            Time in milliseconds an entry is used without asking the
+	 *            server.
+	 */
+	T executeCached(int expected, MetadataCache cache, String key, long ttl)
+			throws APIException;
 }
\ No newline at end of file
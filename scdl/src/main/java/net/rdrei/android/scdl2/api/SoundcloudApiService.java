@@ -1,21 +1,31 @@
 package net.rdrei.android.scdl2.api;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.URLConnection;
 import java.net.URLEncoder;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
 import net.rdrei.android.scdl2.Config;
 import roboguice.util.Ln;
 
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 
 public class SoundcloudApiService {
 	@Inject
 	private URLWrapperFactory mURLWrapperFactory;
 
+	@Inject
+	private Provider<SSLSocketFactory> mSocketFactoryProvider;
+
 	private static final String BASE_URL_HTTPS = "https://api.soundcloud.com";
 	private static final String BASE_URL_HTTP = "http://api.soundcloud.com";
 	private static final String CONTENT_ENCODING = "UTF-8";
@@ -70,6 +80,26 @@ public class SoundcloudApiService {
 		return mURLWrapperFactory.create(strUrl.toString());
 	}
 
+	/**
+	 * Opens a connection for the given URL. HTTPS connections are pinned to the SoundCloud
+	 * certificate with the shared socket factory.
+	 * 
+	 * @param url
+	 * @return Unconnected HttpURLConnection.
+	 * @throws IOException
+	 */
+	protected HttpURLConnection openConnection(final URLWrapper url)
+			throws IOException {
+		final URLConnection connection = url.openConnection();
+
+		if (connection instanceof HttpsURLConnection) {
+			((HttpsURLConnection) connection)
+					.setSSLSocketFactory(mSocketFactoryProvider.get());
+		}
+
+		return (HttpURLConnection) connection;
+	}
+
 	/**
 	 * Assemble a parameter string from a mapping.
 	 * 
@@ -0,0 +1,217 @@
+package net.rdrei.android.scdl2.api.cache;
+
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import roboguice.util.Ln;
+
+/**
+ * Two level cache for encoded artwork images: the most recently used ones in memory, all of
+ * them on disk. Unlike {@link MetadataCache}, both levels are bounded by bytes, not entries,
+ * since images vary a lot in size.
+ * <p/>
+ * Safe to use from any thread without locking out the others: files are written under a
+ * temporary name and renamed into place, trimming runs one at a time on its own lock. All
+ * methods but {@link #getPath(String)} touch the disk, so keep them off the main thread.
+ */
+public class ArtworkCache {
+	private static final String EXTENSION = ".img";
+	private static final String TMP_EXTENSION = ".img.tmp";
+	private static final String CHARSET = "UTF-8";
+
+	private final File mDirectory;
+	private final long mMaxDiskBytes;
+	private final LruCache<String, byte[]> mMemoryCache;
+	private final Object mTrimLock = new Object();
+
+	// Leaves out files that are still being written.
+	private static final FileFilter IMAGE_FILTER = new FileFilter() {
+		@Override
+		public boolean accept(final File file) {
+			return file.getName().endsWith(EXTENSION);
+		}
+	};
+
+	public ArtworkCache(final File directory, final int maxMemoryBytes,
+			final long maxDiskBytes) {
+		mDirectory = directory;
+		mMaxDiskBytes = maxDiskBytes;
+		mMemoryCache = new LruCache<String, byte[]>(maxMemoryBytes) {
+			@Override
+			protected int sizeOf(final String key, final byte[] value) {
+				return value.length;
+			}
+		};
+	}
+
+	/**
+	 * @return The image for the URL or null if it's not cached.
+	 */
+	public byte[] get(final String url) {
+		final byte[] cached = mMemoryCache.get(url);
+		if (cached != null) {
+			return cached;
+		}
+
+		final File file = getFile(url);
+		if (file == null) {
+			return null;
+		}
+
+		try {
+			final byte[] image = read(file);
+			mMemoryCache.put(url, image);
+			return image;
+		} catch (final IOException e) {
+			Ln.w(e, "Discarding unreadable artwork %s.", file);
+			file.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * @return The file holding the image for the URL or null if it's not cached. Counts as a
+	 * use of the image.
+	 */
+	public File getFile(final String url) {
+		final File file = getPath(url);
+		if (!file.exists()) {
+			return null;
+		}
+
+		// Keeps track of the usage for evicting from disk.
+		file.setLastModified(System.currentTimeMillis());
+		return file;
+	}
+
+	/**
+	 * @return Where the image for the URL is or would be stored. Doesn't touch the disk.
+	 */
+	public File getPath(final String url) {
+		return new File(mDirectory, hash(url) + EXTENSION);
+	}
+
+	public void put(final String url, final byte[] image) {
+		mMemoryCache.put(url, image);
+
+		try {
+			write(url, image);
+			trim();
+		} catch (final IOException e) {
+			Ln.w(e, "Failed to write artwork %s.", url);
+		}
+	}
+
+	public void clear() {
+		mMemoryCache.evictAll();
+
+		final File[] files = mDirectory.listFiles();
+		if (files != null) {
+			for (final File file : files) {
+				file.delete();
+			}
+		}
+	}
+
+	private void write(final String url, final byte[] image) throws IOException {
+		// Another thread may create it at the same time.
+		if (!mDirectory.mkdirs() && !mDirectory.isDirectory()) {
+			throw new IOException("Can't create cache directory " + mDirectory);
+		}
+
+		// Unique, so concurrent writes of the same image don't get into each other's way.
+		final File tmpFile = File.createTempFile(hash(url), TMP_EXTENSION, mDirectory);
+		final OutputStream output = new FileOutputStream(tmpFile);
+		try {
+			output.write(image);
+		} finally {
+			output.close();
+		}
+
+		if (!tmpFile.renameTo(getPath(url))) {
+			tmpFile.delete();
+			throw new IOException("Can't replace artwork " + url);
+		}
+	}
+
+	private static byte[] read(final File file) throws IOException {
+		final byte[] image = new byte[(int) file.length()];
+		final InputStream input = new FileInputStream(file);
+
+		try {
+			int offset = 0;
+			while (offset < image.length) {
+				final int read = input.read(image, offset, image.length - offset);
+				if (read == -1) {
+					throw new IOException("Unexpected end of " + file);
+				}
+				offset += read;
+			}
+		} finally {
+			input.close();
+		}
+
+		return image;
+	}
+
+	/**
+	 * Removes the least recently used files until the rest fits.
+	 */
+	private void trim() {
+		synchronized (mTrimLock) {
+			final File[] files = mDirectory.listFiles(IMAGE_FILTER);
+			if (files == null) {
+				return;
+			}
+
+			long size = 0;
+			for (final File file : files) {
+				size += file.length();
+			}
+			if (size <= mMaxDiskBytes) {
+				return;
+			}
+
+			Arrays.sort(files, new Comparator<File>() {
+				@Override
+				public int compare(final File lhs, final File rhs) {
+					return Long.valueOf(lhs.lastModified()).compareTo(rhs.lastModified());
+				}
+			});
+
+			for (int i = 0; i < files.length && size > mMaxDiskBytes; i++) {
+				size -= files[i].length();
+				files[i].delete();
+			}
+		}
+	}
+
+	private static String hash(final String key) {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("MD5");
+			final byte[] bytes = digest.digest(key.getBytes(CHARSET));
+			final StringBuilder builder = new StringBuilder(bytes.length * 2);
+
+			for (final byte b : bytes) {
+				builder.append(String.format("%02x", b));
+			}
+
+			return builder.toString();
+		} catch (final NoSuchAlgorithmException | UnsupportedEncodingException e) {
+			// Both are guaranteed to exist.
+			throw new IllegalStateException(e);
+		}
+	}
+}
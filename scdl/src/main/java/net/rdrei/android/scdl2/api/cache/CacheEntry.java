@@ -0,0 +1,66 @@
+package net.rdrei.android.scdl2.api.cache;
+
+/**
+ * A cached API response body together with the validators needed to revalidate it.
+ */
+public class CacheEntry {
+	private String key;
+	private String body;
+	private String etag;
+	private String lastModified;
+	private long fetched;
+
+	public CacheEntry() {
+	}
+
+	public CacheEntry(final String key, final String body, final String etag,
+			final String lastModified) {
+		this.key = key;
+		this.body = body;
+		this.etag = etag;
+		this.lastModified = lastModified;
+		this.fetched = System.currentTimeMillis();
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public String getBody() {
+		return body;
+	}
+
+	public String getEtag() {
+		return etag;
+	}
+
+	public String getLastModified() {
+		return lastModified;
+	}
+
+	public long getFetched() {
+		return fetched;
+	}
+
+	/**
+	 * @return True if the entry may be used without asking the server.
+	 */
+	public boolean isFresh(final long ttl) {
+		return System.currentTimeMillis() - fetched < ttl;
+	}
+
+	/**
+	 * @return Whether the server can tell us if this entry is still current.
+	 */
+	public boolean hasValidators() {
+		return etag != null || lastModified != null;
+	}
+
+	/**
+	 * @return A copy of this entry that counts as just fetched, after the server confirmed it
+	 * didn't change.
+	 */
+	public CacheEntry revalidate() {
+		return new CacheEntry(key, body, etag, lastModified);
+	}
+}
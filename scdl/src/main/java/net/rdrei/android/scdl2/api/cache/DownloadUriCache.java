@@ -0,0 +1,210 @@
+package net.rdrei.android.scdl2.api.cache;
+
+import android.net.Uri;
+import android.util.Base64;
+
+import net.rdrei.android.scdl2.api.APIException;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import roboguice.util.Ln;
+
+/**
+ * Keeps resolved download URLs until their signature expires, so a download can be started
+ * with a URL resolved in the background while the track was shown. Lookups of a track that is
+ * currently being resolved wait for the running request instead of starting another one.
+ */
+public class DownloadUriCache {
+
+	public interface Resolver {
+		/**
+		 * @return The signed download URL of the track.
+		 */
+		Uri resolve() throws APIException;
+	}
+
+	// S3 style signatures carry the expiry in seconds, CloudFront ones inside the policy.
+	private static final String EXPIRES_PARAMETER = "Expires";
+	private static final String POLICY_PARAMETER = "Policy";
+	private static final Pattern POLICY_EXPIRY_PATTERN = Pattern.compile(
+			"\"AWS:EpochTime\"\\s*:\\s*(\\d+)");
+
+	private static class Entry {
+		final Uri uri;
+		final long expiresAt;
+
+		Entry(final Uri uri, final long expiresAt) {
+			this.uri = uri;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private final Executor mExecutor;
+	private final long mDefaultTtl;
+	private final long mExpiryMargin;
+	private final ConcurrentMap<String, FutureTask<Entry>> mEntries = new ConcurrentHashMap<>();
+
+	/**
+	 * @param executor     Runs the prefetches.
+	 * @param defaultTtl   Lifetime of URLs we can't find an expiry in.
+	 * @param expiryMargin URLs are dropped this long before they expire, so the download still
+	 *                     has time to start.
+	 */
+	public DownloadUriCache(final Executor executor, final long defaultTtl,
+			final long expiryMargin) {
+		mExecutor = executor;
+		mDefaultTtl = defaultTtl;
+		mExpiryMargin = expiryMargin;
+	}
+
+	/**
+	 * Resolves the download URL of the track in the background unless it's cached or already
+	 * on its way.
+	 */
+	public void prefetch(final String id, final Resolver resolver) {
+		prune();
+
+		final FutureTask<Entry> task = createTask(resolver);
+		if (mEntries.putIfAbsent(id, task) == null) {
+			mExecutor.execute(task);
+		}
+	}
+
+	/**
+	 * Returns the cached download URL or resolves a new one if there is none or it expired.
+	 * Waits for a running prefetch of the track.
+	 * <p/>
+	 * <b>This is blocking the current thread!</b>
+	 */
+	public Uri get(final String id, final Resolver resolver) throws APIException {
+		final FutureTask<Entry> cached = mEntries.get(id);
+		if (cached != null) {
+			try {
+				final Entry entry = await(cached);
+				if (isValid(entry)) {
+					return entry.uri;
+				}
+				Ln.d("Download URL of %s expired.", id);
+			} catch (final APIException e) {
+				// The prefetch may have run into a problem that's gone by now.
+				Ln.d(e, "Prefetching the download URL of %s failed.", id);
+			}
+
+			mEntries.remove(id, cached);
+		}
+
+		final FutureTask<Entry> task = createTask(resolver);
+		task.run();
+
+		final Entry entry = await(task);
+		mEntries.put(id, task);
+		return entry.uri;
+	}
+
+	public void clear() {
+		mEntries.clear();
+	}
+
+	/**
+	 * @return Time in milliseconds the signature of the URL expires at or the given default if
+	 * the URL doesn't tell.
+	 */
+	public static long getExpiry(final Uri uri, final long defaultExpiry) {
+		final String expires = uri.getQueryParameter(EXPIRES_PARAMETER);
+		if (expires != null) {
+			try {
+				return Long.parseLong(expires) * 1000;
+			} catch (final NumberFormatException e) {
+				return defaultExpiry;
+			}
+		}
+
+		final String policy = uri.getQueryParameter(POLICY_PARAMETER);
+		if (policy != null) {
+			final Matcher matcher = POLICY_EXPIRY_PATTERN.matcher(decodePolicy(policy));
+			if (matcher.find()) {
+				return Long.parseLong(matcher.group(1)) * 1000;
+			}
+		}
+
+		return defaultExpiry;
+	}
+
+	/**
+	 * CloudFront replaces the Base64 characters that aren't safe in URLs with its own.
+	 */
+	private static String decodePolicy(final String policy) {
+		final String base64 = policy.replace('-', '+').replace('_', '=').replace('~', '/');
+
+		try {
+			return new String(Base64.decode(base64, Base64.DEFAULT), "UTF-8");
+		} catch (final IllegalArgumentException | UnsupportedEncodingException e) {
+			return "";
+		}
+	}
+
+	private FutureTask<Entry> createTask(final Resolver resolver) {
+		return new FutureTask<>(new Callable<Entry>() {
+			@Override
+			public Entry call() throws APIException {
+				final Uri uri = resolver.resolve();
+				return new Entry(uri,
+						getExpiry(uri, System.currentTimeMillis() + mDefaultTtl));
+			}
+		});
+	}
+
+	private boolean isValid(final Entry entry) {
+		return System.currentTimeMillis() < entry.expiresAt - mExpiryMargin;
+	}
+
+	/**
+	 * Removes expired and failed entries, running ones stay.
+	 */
+	private void prune() {
+		final Iterator<FutureTask<Entry>> iterator = mEntries.values().iterator();
+
+		while (iterator.hasNext()) {
+			final FutureTask<Entry> task = iterator.next();
+			if (!task.isDone()) {
+				continue;
+			}
+
+			try {
+				if (!isValid(await(task))) {
+					iterator.remove();
+				}
+			} catch (final APIException e) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private static Entry await(final FutureTask<Entry> task) throws APIException {
+		try {
+			return task.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new APIException(e, -1);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+
+			if (cause instanceof APIException) {
+				throw (APIException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+
+			throw new APIException(cause, -1);
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package net.rdrei.android.scdl2.api.cache;
+
+import android.util.LruCache;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import roboguice.util.Ln;
+
+/**
+ * Two level cache for API responses: the most recently used entries are kept in memory, all of
+ * them on disk, so they survive restarts. Both levels are bounded and drop the least recently
+ * used entries first.
+ */
+public class MetadataCache {
+	private static final String EXTENSION = ".json";
+	private static final String TMP_EXTENSION = ".json.tmp";
+	private static final String CHARSET = "UTF-8";
+
+	private final File mDirectory;
+	private final int mMaxDiskEntries;
+	private final LruCache<String, CacheEntry> mMemoryCache;
+	private final Gson mGson = new Gson();
+
+	public MetadataCache(final File directory, final int maxMemoryEntries,
+			final int maxDiskEntries) {
+		mDirectory = directory;
+		mMaxDiskEntries = maxDiskEntries;
+		mMemoryCache = new LruCache<>(maxMemoryEntries);
+	}
+
+	/**
+	 * @return The entry for the key or null if there is none, no matter how old it is.
+	 */
+	public synchronized CacheEntry get(final String key) {
+		final CacheEntry cached = mMemoryCache.get(key);
+		if (cached != null) {
+			return cached;
+		}
+
+		final File file = getFile(key);
+		final CacheEntry entry = read(file);
+
+		// Guard against the unlikely hash collision.
+		if (entry == null || !key.equals(entry.getKey())) {
+			return null;
+		}
+
+		// Keeps track of the usage for evicting from disk.
+		file.setLastModified(System.currentTimeMillis());
+		mMemoryCache.put(key, entry);
+		return entry;
+	}
+
+	public synchronized void put(final CacheEntry entry) {
+		mMemoryCache.put(entry.getKey(), entry);
+
+		try {
+			write(entry);
+			trim();
+		} catch (final IOException e) {
+			Ln.w(e, "Failed to write cache entry %s.", entry.getKey());
+		}
+	}
+
+	public synchronized void remove(final String key) {
+		mMemoryCache.remove(key);
+		getFile(key).delete();
+	}
+
+	public synchronized void clear() {
+		mMemoryCache.evictAll();
+
+		final File[] files = mDirectory.listFiles();
+		if (files != null) {
+			for (final File file : files) {
+				file.delete();
+			}
+		}
+	}
+
+	private File getFile(final String key) {
+		return new File(mDirectory, hash(key) + EXTENSION);
+	}
+
+	private void write(final CacheEntry entry) throws IOException {
+		if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+			throw new IOException("Can't create cache directory " + mDirectory);
+		}
+
+		final String name = hash(entry.getKey());
+		final File tmpFile = new File(mDirectory, name + TMP_EXTENSION);
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), CHARSET);
+		try {
+			mGson.toJson(entry, writer);
+		} finally {
+			writer.close();
+		}
+
+		if (!tmpFile.renameTo(new File(mDirectory, name + EXTENSION))) {
+			tmpFile.delete();
+			throw new IOException("Can't replace cache entry " + entry.getKey());
+		}
+	}
+
+	private CacheEntry read(final File file) {
+		if (!file.exists()) {
+			return null;
+		}
+
+		try {
+			final Reader reader = new InputStreamReader(new FileInputStream(file), CHARSET);
+			try {
+				return mGson.fromJson(reader, CacheEntry.class);
+			} finally {
+				reader.close();
+			}
+		} catch (final IOException | JsonParseException e) {
+			Ln.w(e, "Discarding unreadable cache entry %s.", file);
+			file.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * Removes the least recently used files once there are too many.
+	 */
+	private void trim() {
+		final File[] files = mDirectory.listFiles();
+		if (files == null || files.length <= mMaxDiskEntries) {
+			return;
+		}
+
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(final File lhs, final File rhs) {
+				return Long.valueOf(lhs.lastModified()).compareTo(rhs.lastModified());
+			}
+		});
+
+		for (int i = 0; i < files.length - mMaxDiskEntries; i++) {
+			files[i].delete();
+		}
+	}
+
+	private static String hash(final String key) {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("MD5");
+			final byte[] bytes = digest.digest(key.getBytes(CHARSET));
+			final StringBuilder builder = new StringBuilder(bytes.length * 2);
+
+			for (final byte b : bytes) {
+				builder.append(String.format("%02x", b));
+			}
+
+			return builder.toString();
+		} catch (final NoSuchAlgorithmException | UnsupportedEncodingException e) {
+			// Both are guaranteed to exist.
+			throw new IllegalStateException(e);
+		}
+	}
+}
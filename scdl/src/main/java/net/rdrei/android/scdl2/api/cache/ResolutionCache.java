@@ -0,0 +1,104 @@
+package net.rdrei.android.scdl2.api.cache;
+
+import net.rdrei.android.scdl2.api.APIException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import roboguice.util.Ln;
+
+/**
+ * Remembers which API URL a share URL points to. Lookups of a URL that is currently being
+ * resolved wait for the running request instead of starting another one.
+ */
+public class ResolutionCache {
+
+	public interface Resolver {
+		/**
+		 * @return The API URL the share URL points to.
+		 */
+		String resolve() throws APIException;
+	}
+
+	private final MetadataCache mCache;
+	private final long mTtl;
+	private final ConcurrentMap<String, FutureTask<String>> mInFlight =
+			new ConcurrentHashMap<>();
+
+	public ResolutionCache(final MetadataCache cache, final long ttl) {
+		mCache = cache;
+		mTtl = ttl;
+	}
+
+	/**
+	 * Returns the cached location for the key or uses the resolver to look it up.
+	 * <p/>
+	 * <b>This is blocking the current thread!</b>
+	 *
+	 * @param key      Normalized share URL.
+	 * @param resolver Called at most once at a time per key.
+	 * @throws APIException If the resolver failed and there is nothing cached to fall back to.
+	 */
+	public String get(final String key, final Resolver resolver) throws APIException {
+		final CacheEntry entry = mCache.get(key);
+		if (entry != null && entry.isFresh(mTtl)) {
+			return entry.getBody();
+		}
+
+		final FutureTask<String> task = new FutureTask<>(new Callable<String>() {
+			@Override
+			public String call() throws APIException {
+				final String location = resolver.resolve();
+				mCache.put(new CacheEntry(key, location, null, null));
+				return location;
+			}
+		});
+
+		final FutureTask<String> running = mInFlight.putIfAbsent(key, task);
+		if (running == null) {
+			try {
+				task.run();
+			} finally {
+				mInFlight.remove(key, task);
+			}
+		}
+
+		try {
+			return await(running == null ? task : running);
+		} catch (final APIException e) {
+			// Any other code is an answer from the server we shouldn't second-guess.
+			if (entry != null && e.getCode() == -1) {
+				Ln.w(e, "Resolving %s failed, using stale location.", key);
+				return entry.getBody();
+			}
+
+			throw e;
+		}
+	}
+
+	public void clear() {
+		mCache.clear();
+	}
+
+	private static String await(final FutureTask<String> task) throws APIException {
+		try {
+			return task.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new APIException(e, -1);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+
+			if (cause instanceof APIException) {
+				throw (APIException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+
+			throw new APIException(cause, -1);
+		}
+	}
+}
@@ -18,6 +18,7 @@ public class PlaylistEntity implements SoundcloudEntity, Parcelable {
 	private static final long serialVersionUID = 1L;
 
 	private long id;
+	private String title;
 	private String description;
 	private UserEntity user;
 	private List<TrackEntity> tracks;
@@ -37,6 +38,14 @@ public class PlaylistEntity implements SoundcloudEntity, Parcelable {
 		this.id = id;
 	}
 
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
 	public String getDescription() {
 		return description;
 	}
@@ -53,6 +62,10 @@ public class PlaylistEntity implements SoundcloudEntity, Parcelable {
 		this.tracks = tracks;
 	}
 
+	public UserEntity getUser() {
+		return user;
+	}
+
 	public String getArtworkUrl() {
 		return artworkUrl;
 	}
@@ -65,6 +78,7 @@ public class PlaylistEntity implements SoundcloudEntity, Parcelable {
 	@Override
 	public void writeToParcel(Parcel dest, int flags) {
 		dest.writeLong(this.id);
+		dest.writeString(this.title);
 		dest.writeString(this.description);
 		dest.writeParcelable(this.user, flags);
 		dest.writeList(this.tracks);
@@ -73,6 +87,7 @@ public class PlaylistEntity implements SoundcloudEntity, Parcelable {
 
 	private PlaylistEntity(Parcel in) {
 		this.id = in.readLong();
+		this.title = in.readString();
 		this.description = in.readString();
 		this.user = in.readParcelable(UserEntity.class.getClassLoader());
 		this.tracks = new ArrayList<TrackEntity>();
@@ -1,19 +1,138 @@
 package net.rdrei.android.scdl2.api.service;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
+import net.rdrei.android.scdl2.Config;
 import net.rdrei.android.scdl2.api.APIException;
 import net.rdrei.android.scdl2.api.SoundcloudApiService;
 import net.rdrei.android.scdl2.api.URLWrapper;
+import net.rdrei.android.scdl2.trace.HttpTimings;
+import net.rdrei.android.scdl2.trace.Tracer;
 import roboguice.util.Ln;
 import android.net.Uri;
 
+import com.google.inject.Inject;
+
 public class DownloadService extends SoundcloudApiService {
 
 	private static final String RESOURCE_URL = "/tracks/%s/download";
 
+	// Redirect bodies are tiny, anything bigger isn't worth reading to keep the connection.
+	private static final int MAX_DRAIN_BYTES = 8 * 1024;
+
+	// Batches nobody finishes or cancels must not keep the process alive.
+	private static final ThreadFactory RESOLVE_THREAD_FACTORY = new ThreadFactory() {
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "scdl-resolve");
+			thread.setDaemon(true);
+			return thread;
+		}
+	};
+
+	@Inject
+	private Tracer mTracer;
+
+	/**
+	 * Outcome of resolving a single ID as part of a {@link Batch}.
+	 */
+	public static class Resolution {
+		private final String mId;
+		private final Uri mUri;
+		private final APIException mError;
+
+		public Resolution(final String id, final Uri uri, final APIException error) {
+			mId = id;
+			mUri = uri;
+			mError = error;
+		}
+
+		public String getId() {
+			return mId;
+		}
+
+		/**
+		 * @return The download URI or null if resolving failed.
+		 */
+		public Uri getUri() {
+			return mUri;
+		}
+
+		/**
+		 * @return The reason resolving failed or null if it was successful.
+		 */
+		public APIException getError() {
+			return mError;
+		}
+
+		public boolean isSuccessful() {
+			return mError == null;
+		}
+	}
+
+	/**
+	 * Hands out the results of {@link #resolveUris(Collection, int)} in the order they finish.
+	 * Not thread-safe, meant to be consumed by a single thread.
+	 */
+	public static class Batch {
+		private final ExecutorService mExecutor;
+		private final CompletionService<Resolution> mCompletionService;
+		private int mRemaining;
+		private volatile boolean mCancelled;
+
+		private Batch(final ExecutorService executor, final int size) {
+			mExecutor = executor;
+			mCompletionService = new ExecutorCompletionService<>(executor);
+			mRemaining = size;
+		}
+
+		public boolean hasNext() {
+			return mRemaining > 0 && !mCancelled;
+		}
+
+		/**
+		 * Waits for the next ID to be resolved. <b>This is blocking the current thread!</b>
+		 */
+		public Resolution next() throws InterruptedException {
+			if (!hasNext()) {
+				throw new IllegalStateException("No more pending IDs.");
+			}
+
+			try {
+				return mCompletionService.take().get();
+			} catch (final InterruptedException e) {
+				cancel();
+				throw e;
+			} catch (final ExecutionException e) {
+				// The workers catch all exceptions.
+				throw new IllegalStateException(e.getCause());
+			} finally {
+				if (--mRemaining == 0) {
+					mExecutor.shutdown();
+				}
+			}
+		}
+
+		/**
+		 * Stops resolving. Requests already on the way are aborted.
+		 */
+		public void cancel() {
+			mCancelled = true;
+			mExecutor.shutdownNow();
+		}
+	}
+
 	/**
 	 * Resolve a an id to a download API.
 	 * 
@@ -22,6 +141,15 @@ public class DownloadService extends SoundcloudApiService {
 	 * @throws APIException
 	 */
 	public Uri resolveUri(final String id) throws APIException {
+		final Tracer.Span span = mTracer.begin("resolve_download_uri");
+		try {
+			return requestUri(id);
+		} finally {
+			span.end();
+		}
+	}
+
+	private Uri requestUri(final String id) throws APIException {
 		final String resource = String.format(RESOURCE_URL, id);
 		final URLWrapper url;
 
@@ -34,7 +162,7 @@ public class DownloadService extends SoundcloudApiService {
 		HttpURLConnection connection = null;
 		Ln.d("Opening connection at %s.", url.toString());
 		try {
-			connection = (HttpURLConnection) url.openConnection();
+			connection = openConnection(url);
 		} catch (final IOException e) {
 			throw new APIException(e, -1);
 		}
@@ -43,7 +171,7 @@ public class DownloadService extends SoundcloudApiService {
 		final int code;
 
 		try {
-			code = connection.getResponseCode();
+			code = HttpTimings.getResponseCode(mTracer, connection);
 		} catch (final IOException e) {
 			connection.disconnect();
 			throw new APIException(e, -1);
@@ -54,8 +182,87 @@ public class DownloadService extends SoundcloudApiService {
 			throw new APIException("Download is not available.", code);
 		}
 
-		final Uri uri = Uri.parse(connection.getHeaderField("Location"));
-		connection.disconnect();
-		return uri;
+		final String location = connection.getHeaderField("Location");
+		if (location == null) {
+			connection.disconnect();
+			throw new APIException("Redirect without a location.", code);
+		}
+
+		release(connection);
+		return Uri.parse(location);
+	}
+
+	/**
+	 * Resolves many IDs at once with {@link Config#RESOLVE_THREADS} workers.
+	 *
+	 * @see #resolveUris(Collection, int)
+	 */
+	public Batch resolveUris(final Collection<String> ids) {
+		return resolveUris(ids, Config.RESOLVE_THREADS);
+	}
+
+	/**
+	 * Resolves many IDs concurrently. Connections are kept alive between requests, so each
+	 * worker only pays for the TLS handshake once.
+	 *
+	 * @param ids         Track IDs to resolve.
+	 * @param concurrency Maximum number of requests in flight.
+	 * @return The results in the order they become available. Failures are reported per ID.
+	 * Cancel it if you stop before all results are taken.
+	 */
+	public Batch resolveUris(final Collection<String> ids, final int concurrency) {
+		final int threads = Math.max(1, Math.min(concurrency, ids.size()));
+		final Batch batch = new Batch(
+				Executors.newFixedThreadPool(threads, RESOLVE_THREAD_FACTORY), ids.size());
+
+		for (final String id : ids) {
+			batch.mCompletionService.submit(new Callable<Resolution>() {
+				@Override
+				public Resolution call() {
+					try {
+						return new Resolution(id, resolveUri(id), null);
+					} catch (final APIException e) {
+						return new Resolution(id, null, e);
+					} catch (final RuntimeException e) {
+						// Would otherwise fail the whole batch instead of a single ID.
+						Ln.w(e, "Resolving %s failed unexpectedly.", id);
+						return new Resolution(id, null, new APIException(e, -1));
+					}
+				}
+			});
+		}
+
+		if (ids.isEmpty()) {
+			batch.mExecutor.shutdown();
+		}
+
+		return batch;
+	}
+
+	/**
+	 * Reads what's left of the response, so the connection goes back into the keep-alive pool
+	 * instead of being torn down like {@link HttpURLConnection#disconnect()} would do.
+	 */
+	private static void release(final HttpURLConnection connection) {
+		try {
+			final InputStream stream = connection.getInputStream();
+			try {
+				final byte[] buffer = new byte[1024];
+				int drained = 0;
+				int read;
+
+				while (drained < MAX_DRAIN_BYTES && (read = stream.read(buffer)) != -1) {
+					drained += read;
+				}
+
+				if (drained >= MAX_DRAIN_BYTES) {
+					connection.disconnect();
+				}
+			} finally {
+				stream.close();
+			}
+		} catch (final IOException e) {
+			connection.disconnect();
+		}
 	}
 }
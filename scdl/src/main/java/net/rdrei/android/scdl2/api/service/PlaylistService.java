@@ -4,10 +4,12 @@ import com.google.gson.reflect.TypeToken;
 import com.google.inject.Inject;
 
 import net.rdrei.android.scdl2.ApplicationSoundcloudApiQueryFactory;
+import net.rdrei.android.scdl2.Config;
 import net.rdrei.android.scdl2.api.APIException;
 import net.rdrei.android.scdl2.api.SoundcloudApiQuery;
 import net.rdrei.android.scdl2.api.SoundcloudApiService;
 import net.rdrei.android.scdl2.api.URLWrapper;
+import net.rdrei.android.scdl2.api.cache.MetadataCache;
 import net.rdrei.android.scdl2.api.entity.PlaylistEntity;
 
 import java.net.HttpURLConnection;
@@ -26,6 +28,9 @@ public class PlaylistService extends SoundcloudApiService {
 	@Inject
 	private ApplicationSoundcloudApiQueryFactory mPlaylistQueryFactory;
 
+	@Inject
+	private MetadataCache mCache;
+
 	/**
 	 * Resolves a playlist based on its unique soundcloud ID.
 	 *
@@ -43,6 +48,7 @@ public class PlaylistService extends SoundcloudApiService {
 		}
 
 		return mPlaylistQueryFactory.create(url, SoundcloudApiQuery.HttpMethod.GET, TYPE_TOKEN)
-				.execute(HttpURLConnection.HTTP_OK);
+				.executeCached(HttpURLConnection.HTTP_OK, mCache, "playlist:" + id,
+						Config.METADATA_CACHE_TTL_MS);
 	}
 }
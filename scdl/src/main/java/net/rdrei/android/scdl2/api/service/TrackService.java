@@ -4,10 +4,12 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 
 import net.rdrei.android.scdl2.ApplicationSoundcloudApiQueryFactory;
+import net.rdrei.android.scdl2.Config;
 import net.rdrei.android.scdl2.api.APIException;
 import net.rdrei.android.scdl2.api.SoundcloudApiQuery.HttpMethod;
 import net.rdrei.android.scdl2.api.SoundcloudApiService;
 import net.rdrei.android.scdl2.api.URLWrapper;
+import net.rdrei.android.scdl2.api.cache.MetadataCache;
 import net.rdrei.android.scdl2.api.entity.TrackEntity;
 import roboguice.util.Ln;
 
@@ -23,6 +25,9 @@ public class TrackService extends SoundcloudApiService {
 	@Inject
 	private ApplicationSoundcloudApiQueryFactory mTrackQueryFactory;
 
+	@Inject
+	private MetadataCache mCache;
+
 	/**
 	 * Resolves a track based on its unique soundcloud ID.
 	 *
@@ -41,6 +46,7 @@ public class TrackService extends SoundcloudApiService {
 		}
 
 		return mTrackQueryFactory.create(url, HttpMethod.GET, TYPE_TOKEN)
-				.execute(HttpURLConnection.HTTP_OK);
+				.executeCached(HttpURLConnection.HTTP_OK, mCache, "track:" + id,
+						Config.METADATA_CACHE_TTL_MS);
 	}
 }
@@ -0,0 +1,62 @@
+package net.rdrei.android.scdl2.artwork;
+
+/**
+ * The sizes SoundCloud serves artwork in. The API hands out URLs of the 100x100 "large" format,
+ * the others are found by swapping the format's name in the URL.
+ */
+public enum ArtworkFormat {
+	MINI("mini", 16),
+	TINY("tiny", 20),
+	SMALL("small", 32),
+	BADGE("badge", 47),
+	T67X67("t67x67", 67),
+	LARGE("large", 100),
+	T300X300("t300x300", 300),
+	CROP("crop", 400),
+	T500X500("t500x500", 500);
+
+	private static final String API_FORMAT = "-large.";
+
+	private final String mName;
+	private final int mSize;
+
+	ArtworkFormat(final String name, final int size) {
+		mName = name;
+		mSize = size;
+	}
+
+	/**
+	 * @return Width and height in pixels.
+	 */
+	public int getSize() {
+		return mSize;
+	}
+
+	/**
+	 * @param artworkUrl Artwork URL as returned by the API.
+	 * @return URL of the artwork in this format. Unknown URLs are returned as they are.
+	 */
+	public String getUrl(final String artworkUrl) {
+		final int index = artworkUrl.lastIndexOf(API_FORMAT);
+		if (index == -1) {
+			return artworkUrl;
+		}
+
+		return artworkUrl.substring(0, index) + "-" + mName + "."
+				+ artworkUrl.substring(index + API_FORMAT.length());
+	}
+
+	/**
+	 * @return The smallest format that fills the given number of pixels without scaling up or
+	 * the largest one if none does.
+	 */
+	public static ArtworkFormat forSize(final int pixels) {
+		for (final ArtworkFormat format : values()) {
+			if (format.mSize >= pixels) {
+				return format;
+			}
+		}
+
+		return T500X500;
+	}
+}
@@ -0,0 +1,206 @@
+package net.rdrei.android.scdl2.artwork;
+
+import android.os.Handler;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import com.squareup.picasso.Picasso;
+
+import net.rdrei.android.scdl2.Config;
+import net.rdrei.android.scdl2.api.URLConnectionFactory;
+import net.rdrei.android.scdl2.api.cache.ArtworkCache;
+import net.rdrei.android.scdl2.trace.HttpTimings;
+import net.rdrei.android.scdl2.trace.Tracer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import roboguice.util.Ln;
+
+/**
+ * Fetches artwork into the {@link ArtworkCache}, so it's downloaded once for displaying and
+ * embedding it into tags. Prefetching as soon as an entity is known means the image is usually
+ * there by the time a view asks for it.
+ * <p/>
+ * The cache is only looked at on the loader's pool, the main thread never touches the disk.
+ */
+public class ArtworkLoader {
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private final ArtworkCache mCache;
+	private final URLConnectionFactory mConnectionFactory;
+	private final ExecutorService mExecutor;
+	private final Handler mHandler;
+	private final Tracer mTracer;
+
+	// Callbacks of running fetches by URL, so every image is only fetched once at a time. They
+	// are run on the handler once the image is on disk.
+	private final Map<String, List<Runnable>> mPending = new HashMap<>();
+
+	/**
+	 * @param handler Handler of the main thread, callbacks are run on it.
+	 */
+	public ArtworkLoader(final ArtworkCache cache, final URLConnectionFactory connectionFactory,
+			final ExecutorService executor, final Handler handler, final Tracer tracer) {
+		mCache = cache;
+		mConnectionFactory = connectionFactory;
+		mExecutor = executor;
+		mHandler = handler;
+		mTracer = tracer;
+	}
+
+	/**
+	 * Fetches the artwork in the background unless it's cached already.
+	 *
+	 * @param artworkUrl Artwork URL as returned by the API, may be null.
+	 */
+	public void prefetch(final String artworkUrl, final ArtworkFormat format) {
+		if (artworkUrl != null) {
+			fetchAsync(format.getUrl(artworkUrl), null);
+		}
+	}
+
+	/**
+	 * Loads the artwork into the view, in the smallest format that fills it.
+	 *
+	 * @param artworkUrl Artwork URL as returned by the API, may be null.
+	 */
+	public void display(final ImageView view, final String artworkUrl) {
+		if (artworkUrl == null) {
+			return;
+		}
+
+		final String url = getFormat(view).getUrl(artworkUrl);
+
+		// Doesn't keep the view and its activity around while fetching. Picasso reads the
+		// file on a thread of its own.
+		final WeakReference<ImageView> viewReference = new WeakReference<>(view);
+		fetchAsync(url, new Runnable() {
+			@Override
+			public void run() {
+				final ImageView view = viewReference.get();
+				if (view != null) {
+					Picasso.with(view.getContext()).load(mCache.getPath(url)).into(view);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns the artwork from the cache or fetches it. <b>This may block the current
+	 * thread!</b>
+	 *
+	 * @param artworkUrl Artwork URL as returned by the API.
+	 */
+	public byte[] get(final String artworkUrl, final ArtworkFormat format) throws IOException {
+		final String url = format.getUrl(artworkUrl);
+		final byte[] cached = mCache.get(url);
+
+		return cached != null ? cached : fetch(url);
+	}
+
+	private static ArtworkFormat getFormat(final ImageView view) {
+		final ViewGroup.LayoutParams params = view.getLayoutParams();
+		if (params == null || params.width <= 0 || params.height <= 0) {
+			return ArtworkFormat.LARGE;
+		}
+
+		return ArtworkFormat.forSize(Math.max(params.width, params.height));
+	}
+
+	private void fetchAsync(final String url, final Runnable callback) {
+		synchronized (mPending) {
+			List<Runnable> callbacks = mPending.get(url);
+			if (callbacks == null) {
+				callbacks = new ArrayList<>();
+				mPending.put(url, callbacks);
+				mExecutor.execute(new FetchTask(url));
+			}
+
+			if (callback != null) {
+				callbacks.add(callback);
+			}
+		}
+	}
+
+	private byte[] fetch(final String url) throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) mConnectionFactory.create(
+				new URL(url));
+
+		try {
+			final int code = HttpTimings.getResponseCode(mTracer, connection);
+			if (code != HttpURLConnection.HTTP_OK) {
+				throw new IOException(String.format(Locale.US, "Unexpected HTTP status %d.",
+						code));
+			}
+
+			final byte[] image = read(connection.getInputStream());
+			mCache.put(url, image);
+			return image;
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	private static byte[] read(final InputStream input) throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[BUFFER_SIZE];
+
+		try {
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				output.write(buffer, 0, read);
+				if (output.size() > Config.ARTWORK_MAX_BYTES) {
+					throw new IOException("Artwork is too large.");
+				}
+			}
+		} finally {
+			input.close();
+		}
+
+		return output.toByteArray();
+	}
+
+	private class FetchTask implements Runnable {
+		private final String mUrl;
+
+		public FetchTask(final String url) {
+			mUrl = url;
+		}
+
+		@Override
+		public void run() {
+			boolean available = false;
+			try {
+				if (mCache.getFile(mUrl) == null) {
+					fetch(mUrl);
+				}
+				available = true;
+			} catch (final IOException e) {
+				Ln.w(e, "Failed to fetch artwork %s.", mUrl);
+			} finally {
+				final List<Runnable> callbacks;
+				synchronized (mPending) {
+					callbacks = mPending.remove(mUrl);
+				}
+
+				// There's nothing to show if it failed.
+				if (available) {
+					for (final Runnable callback : callbacks) {
+						mHandler.post(callback);
+					}
+				}
+			}
+		}
+	}
+}
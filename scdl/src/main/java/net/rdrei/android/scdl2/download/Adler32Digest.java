@@ -0,0 +1,94 @@
+package net.rdrei.android.scdl2.download;
+
+import java.util.zip.Checksum;
+
+/**
+ * Adler-32 that, unlike {@link java.util.zip.Adler32}, can continue from a stored value and
+ * combine the checksums of consecutive pieces. Segments of a download are written in parallel,
+ * so each gets its own checksum and the whole file's is put together at the end, without
+ * reading the file again.
+ */
+public class Adler32Digest implements Checksum {
+	// Largest prime below 2^16.
+	private static final int BASE = 65521;
+	// Bytes that can be summed up before the sums may overflow a signed int.
+	private static final int NMAX = 3800;
+
+	private int mA;
+	private int mB;
+
+	public Adler32Digest() {
+		reset();
+	}
+
+	/**
+	 * Continues from a value returned by {@link #getValue()}.
+	 */
+	public Adler32Digest(final long value) {
+		mA = (int) (value & 0xffff);
+		mB = (int) ((value >>> 16) & 0xffff);
+	}
+
+	@Override
+	public void update(final int b) {
+		mA = (mA + (b & 0xff)) % BASE;
+		mB = (mB + mA) % BASE;
+	}
+
+	@Override
+	public void update(final byte[] buffer, int offset, int length) {
+		while (length > 0) {
+			final int chunk = Math.min(length, NMAX);
+			length -= chunk;
+
+			for (final int end = offset + chunk; offset < end; offset++) {
+				mA += buffer[offset] & 0xff;
+				mB += mA;
+			}
+
+			mA %= BASE;
+			mB %= BASE;
+		}
+	}
+
+	@Override
+	public long getValue() {
+		return ((long) mB << 16) | mA;
+	}
+
+	@Override
+	public void reset() {
+		mA = 1;
+		mB = 0;
+	}
+
+	/**
+	 * @param first  Checksum of the first piece.
+	 * @param second Checksum of the piece right after it.
+	 * @param length Length of the second piece.
+	 * @return Checksum of both pieces one after the other.
+	 */
+	public static long combine(final long first, final long second, final long length) {
+		final long remainder = length % BASE;
+		long a = first & 0xffff;
+		long b = (remainder * a) % BASE;
+
+		a += (second & 0xffff) + BASE - 1;
+		b += ((first >>> 16) & 0xffff) + ((second >>> 16) & 0xffff) + BASE - remainder;
+
+		if (a >= BASE) {
+			a -= BASE;
+		}
+		if (a >= BASE) {
+			a -= BASE;
+		}
+		if (b >= (BASE << 1)) {
+			b -= (BASE << 1);
+		}
+		if (b >= BASE) {
+			b -= BASE;
+		}
+
+		return (b << 16) | a;
+	}
+}
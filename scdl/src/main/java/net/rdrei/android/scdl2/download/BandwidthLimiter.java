@@ -0,0 +1,33 @@
+package net.rdrei.android.scdl2.download;
+
+import net.rdrei.android.scdl2.ApplicationPreferences;
+
+/**
+ * Keeps separate bandwidth budgets for downloads the user is waiting for and for background
+ * work like playlists, so a long queue doesn't eat up the whole connection.
+ */
+public class BandwidthLimiter {
+	private final RateLimiter mForeground;
+	private final RateLimiter mBackground;
+
+	/**
+	 * @param foreground Bytes per second for foreground transfers, 0 for no limit.
+	 * @param background Bytes per second shared by all background transfers, 0 for no limit.
+	 */
+	public BandwidthLimiter(final long foreground, final long background) {
+		mForeground = new RateLimiter(foreground);
+		mBackground = new RateLimiter(background);
+	}
+
+	public RateLimiter getLimiter(final boolean background) {
+		return background ? mBackground : mForeground;
+	}
+
+	/**
+	 * Applies the limits the user picked. Running transfers slow down or speed up right away.
+	 */
+	public void update(final ApplicationPreferences preferences) {
+		mForeground.setRate(preferences.getForegroundRateLimit());
+		mBackground.setRate(preferences.getBackgroundRateLimit());
+	}
+}
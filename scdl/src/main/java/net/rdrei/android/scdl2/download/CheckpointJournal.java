@@ -0,0 +1,137 @@
+package net.rdrei.android.scdl2.download;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import roboguice.util.Ln;
+
+/**
+ * Stores one {@link DownloadCheckpoint} per track as JSON file, so unfinished downloads survive
+ * the death of our process.
+ */
+public class CheckpointJournal {
+	private static final String EXTENSION = ".json";
+	private static final String TMP_EXTENSION = ".json.tmp";
+	private static final String CHARSET = "UTF-8";
+
+	private final File mDirectory;
+	private final Gson mGson = new Gson();
+
+	public CheckpointJournal(final File directory) {
+		mDirectory = directory;
+	}
+
+	private File getFile(final long trackId) {
+		return new File(mDirectory, trackId + EXTENSION);
+	}
+
+	/**
+	 * @return The checkpoint for the given track or null if there is none or it can't be read.
+	 */
+	public synchronized DownloadCheckpoint load(final long trackId) {
+		return read(getFile(trackId));
+	}
+
+	/**
+	 * Writes the checkpoint. The previous version is only replaced once the new one is
+	 * completely written, so a crash halfway through doesn't lose the old state.
+	 */
+	public synchronized void save(final DownloadCheckpoint checkpoint) throws IOException {
+		checkpoint.setUpdated(System.currentTimeMillis());
+
+		if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+			throw new IOException("Can't create checkpoint directory " + mDirectory);
+		}
+
+		final File tmpFile = new File(mDirectory, checkpoint.getTrackId() + TMP_EXTENSION);
+		final FileOutputStream stream = new FileOutputStream(tmpFile);
+		try {
+			final Writer writer = new OutputStreamWriter(stream, CHARSET);
+			mGson.toJson(checkpoint, writer);
+			writer.flush();
+			stream.getFD().sync();
+		} finally {
+			stream.close();
+		}
+
+		if (!tmpFile.renameTo(getFile(checkpoint.getTrackId()))) {
+			tmpFile.delete();
+			throw new IOException("Can't replace checkpoint for " + checkpoint.getTrackId());
+		}
+	}
+
+	public synchronized void remove(final long trackId) {
+		getFile(trackId).delete();
+	}
+
+	/**
+	 * @return All checkpoints currently stored.
+	 */
+	public synchronized List<DownloadCheckpoint> list() {
+		final List<DownloadCheckpoint> checkpoints = new ArrayList<>();
+		final File[] files = mDirectory.listFiles();
+
+		if (files == null) {
+			return checkpoints;
+		}
+
+		for (final File file : files) {
+			if (file.getName().endsWith(EXTENSION)) {
+				final DownloadCheckpoint checkpoint = read(file);
+				if (checkpoint != null) {
+					checkpoints.add(checkpoint);
+				}
+			}
+		}
+
+		return checkpoints;
+	}
+
+	/**
+	 * Removes checkpoints that haven't been touched for maxAgeMs, together with their partial
+	 * files. Nobody is going to finish those anymore.
+	 */
+	public synchronized void prune(final long maxAgeMs) {
+		final long threshold = System.currentTimeMillis() - maxAgeMs;
+
+		for (final DownloadCheckpoint checkpoint : list()) {
+			if (checkpoint.getUpdated() < threshold) {
+				Ln.d("Pruning stale checkpoint of track %d.", checkpoint.getTrackId());
+				if (checkpoint.getPath() != null) {
+					new File(checkpoint.getPath()).delete();
+				}
+				remove(checkpoint.getTrackId());
+			}
+		}
+	}
+
+	private DownloadCheckpoint read(final File file) {
+		if (!file.exists()) {
+			return null;
+		}
+
+		try {
+			final Reader reader = new InputStreamReader(new FileInputStream(file), CHARSET);
+			try {
+				return mGson.fromJson(reader, DownloadCheckpoint.class);
+			} finally {
+				reader.close();
+			}
+		} catch (final IOException | JsonParseException e) {
+			Ln.w(e, "Discarding unreadable checkpoint %s.", file);
+			file.delete();
+			return null;
+		}
+	}
+}
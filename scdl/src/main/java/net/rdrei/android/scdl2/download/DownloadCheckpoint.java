@@ -0,0 +1,164 @@
+package net.rdrei.android.scdl2.download;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persisted state of an unfinished in-process download. Records which byte ranges of the
+ * temporary file have been written and the validators needed to safely continue with an
+ * If-Range request later on.
+ */
+public class DownloadCheckpoint {
+	private long trackId;
+	private String path;
+	private String etag;
+	private String lastModified;
+	private long contentLength = -1;
+	private List<Range> ranges;
+	private long updated;
+
+	/**
+	 * A segment of the download. Everything from start up to (excluding) position is on disk and
+	 * checksum is the Adler-32 of those bytes.
+	 */
+	public static class Range {
+		private long start;
+		private long end;
+		private long position;
+		// Checkpoints written before checksums were tracked don't have one.
+		private long checksum = -1;
+
+		public Range() {
+		}
+
+		public Range(final long start, final long end, final long position,
+				final long checksum) {
+			this.start = start;
+			this.end = end;
+			this.position = position;
+			this.checksum = checksum;
+		}
+
+		public long getStart() {
+			return start;
+		}
+
+		public long getEnd() {
+			return end;
+		}
+
+		public long getPosition() {
+			return position;
+		}
+
+		public long getChecksum() {
+			return checksum;
+		}
+	}
+
+	public DownloadCheckpoint() {
+	}
+
+	public DownloadCheckpoint(final long trackId, final File file) {
+		this.trackId = trackId;
+		this.path = file.getAbsolutePath();
+	}
+
+	public long getTrackId() {
+		return trackId;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public String getEtag() {
+		return etag;
+	}
+
+	public String getLastModified() {
+		return lastModified;
+	}
+
+	public long getContentLength() {
+		return contentLength;
+	}
+
+	public List<Range> getRanges() {
+		return ranges;
+	}
+
+	public long getUpdated() {
+		return updated;
+	}
+
+	public void setUpdated(final long updated) {
+		this.updated = updated;
+	}
+
+	/**
+	 * @return The value to send as If-Range header or null if the server gave us nothing to
+	 * validate against.
+	 */
+	public String getValidator() {
+		return SegmentedDownload.getValidator(etag, lastModified);
+	}
+
+	/**
+	 * @return Number of bytes already on disk.
+	 */
+	public long getCompletedBytes() {
+		long completed = 0;
+
+		if (ranges != null) {
+			for (final Range range : ranges) {
+				completed += range.position - range.start;
+			}
+		}
+
+		return completed;
+	}
+
+	/**
+	 * Whether there is anything to continue from in the given file.
+	 */
+	public boolean isResumable(final File file) {
+		return ranges != null && !ranges.isEmpty() && contentLength > 0
+				&& getValidator() != null && file.getAbsolutePath().equals(path)
+				&& file.length() == contentLength;
+	}
+
+	/**
+	 * Forget all progress, e.g. because the file changed on the server.
+	 */
+	public void reset() {
+		etag = null;
+		lastModified = null;
+		contentLength = -1;
+		ranges = null;
+	}
+
+	void update(final String etag, final String lastModified, final long contentLength,
+			final List<SegmentedDownload.Segment> segments) {
+		this.etag = etag;
+		this.lastModified = lastModified;
+		this.contentLength = contentLength;
+
+		final List<Range> ranges = new ArrayList<>(segments.size());
+		for (final SegmentedDownload.Segment segment : segments) {
+			ranges.add(segment.toRange());
+		}
+		this.ranges = ranges;
+	}
+
+	List<SegmentedDownload.Segment> toSegments() {
+		final List<SegmentedDownload.Segment> segments = new ArrayList<>(ranges.size());
+		for (final Range range : ranges) {
+			segments.add(new SegmentedDownload.Segment(range.start, range.end, range.position,
+					range.checksum));
+		}
+
+		return segments;
+	}
+}
@@ -0,0 +1,113 @@
+package net.rdrei.android.scdl2.download;
+
+import android.net.Uri;
+
+import net.rdrei.android.scdl2.Config;
+import net.rdrei.android.scdl2.api.entity.TrackEntity;
+
+import java.io.File;
+
+/**
+ * A track waiting in, or running from, the {@link DownloadScheduler}. Stored as JSON together
+ * with the rest of the queue.
+ */
+public class DownloadJob {
+
+	/**
+	 * Lower ordinals are started first.
+	 */
+	public enum Priority {
+		// The user tapped the download button and waits for it.
+		INTERACTIVE,
+		// Part of a larger job, e.g. a playlist.
+		BULK
+	}
+
+	private TrackEntity track;
+	private Priority priority;
+	private String uri;
+	private long resolved;
+	private long sequence;
+	private long started;
+	private int attempts;
+
+	public DownloadJob() {
+	}
+
+	/**
+	 * @param uri Already resolved download URL or null to resolve it when the job starts.
+	 */
+	public DownloadJob(final TrackEntity track, final Uri uri, final Priority priority) {
+		this.track = track;
+		this.priority = priority;
+		setUri(uri);
+	}
+
+	public TrackEntity getTrack() {
+		return track;
+	}
+
+	public Priority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * @return The resolved download URL or null if the job never got one or it expired.
+	 */
+	public Uri getUri() {
+		if (uri == null || System.currentTimeMillis() - resolved > Config.SCHEDULER_URI_MAX_AGE_MS) {
+			return null;
+		}
+
+		return Uri.parse(uri);
+	}
+
+	public void setUri(final Uri uri) {
+		this.uri = uri == null ? null : uri.toString();
+		this.resolved = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return Host the download comes from or null if it isn't known yet.
+	 */
+	public String getHost() {
+		return uri == null ? null : Uri.parse(uri).getHost();
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public void setSequence(final long sequence) {
+		this.sequence = sequence;
+	}
+
+	public long getStarted() {
+		return started;
+	}
+
+	public void setStarted(final long started) {
+		this.started = started;
+	}
+
+	public int getAttempts() {
+		return attempts;
+	}
+
+	public void setAttempts(final int attempts) {
+		this.attempts = attempts;
+	}
+
+	/**
+	 * @return True if the file at the given path is this job's download, with or without the
+	 * temporary postfix.
+	 */
+	public boolean isDownloadOf(final String path) {
+		String name = new File(path).getName();
+		if (name.endsWith(Config.TMP_DOWNLOAD_POSTFIX)) {
+			name = name.substring(0, name.length() - Config.TMP_DOWNLOAD_POSTFIX.length());
+		}
+
+		return name.equals(track.getDownloadFilename());
+	}
+}
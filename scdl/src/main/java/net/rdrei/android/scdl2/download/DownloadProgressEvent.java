@@ -0,0 +1,77 @@
+package net.rdrei.android.scdl2.download;
+
+/**
+ * Posted on the Bus by the {@link ProgressPublisher}, at most once per frame and download.
+ */
+public final class DownloadProgressEvent {
+	private final long mTrackId;
+	private final String mTitle;
+	private final long mTransferredBytes;
+	private final long mTotalBytes;
+	private final long mBytesPerSecond;
+	private final boolean mFinished;
+
+	public DownloadProgressEvent(final long trackId, final String title,
+			final long transferredBytes, final long totalBytes, final long bytesPerSecond,
+			final boolean finished) {
+		mTrackId = trackId;
+		mTitle = title;
+		mTransferredBytes = transferredBytes;
+		mTotalBytes = totalBytes;
+		mBytesPerSecond = bytesPerSecond;
+		mFinished = finished;
+	}
+
+	public long getTrackId() {
+		return mTrackId;
+	}
+
+	public String getTitle() {
+		return mTitle;
+	}
+
+	public long getTransferredBytes() {
+		return mTransferredBytes;
+	}
+
+	/**
+	 * @return Size of the download or -1 if it's not known.
+	 */
+	public long getTotalBytes() {
+		return mTotalBytes;
+	}
+
+	public long getBytesPerSecond() {
+		return mBytesPerSecond;
+	}
+
+	/**
+	 * @return Percentage done or -1 if the size isn't known.
+	 */
+	public int getPercent() {
+		if (mTotalBytes <= 0) {
+			return -1;
+		}
+
+		return (int) (mTransferredBytes * 100 / mTotalBytes);
+	}
+
+	/**
+	 * @return Estimated seconds left or -1 if we can't tell.
+	 */
+	public long getRemainingSeconds() {
+		if (mTotalBytes <= 0 || mBytesPerSecond <= 0) {
+			return -1;
+		}
+
+		return Math.max(0, mTotalBytes - mTransferredBytes) / mBytesPerSecond;
+	}
+
+	/**
+	 * @return True if this is the last event for the download, successful or not. The outcome
+	 * is reported by the DownloadCompleteReceiver as usual.
+	 */
+	public boolean isFinished() {
+		return mFinished;
+	}
+}
@@ -0,0 +1,201 @@
+package net.rdrei.android.scdl2.download;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import roboguice.util.Ln;
+
+/**
+ * The ids of the downloads we handed to the system DownloadManager, so we can tell ours from
+ * everybody else's without asking the DownloadManager. Kept in memory and written to disk on
+ * every change.
+ */
+public class DownloadRegistry {
+	private static final String CHARSET = "UTF-8";
+	private static final String TMP_EXTENSION = ".tmp";
+
+	public static class Entry {
+		private long downloadId;
+		private long trackId;
+		private String path;
+		private long expectedSize;
+		private long registered;
+
+		public Entry() {
+		}
+
+		public Entry(final long downloadId, final long trackId, final String path,
+				final long expectedSize) {
+			this.downloadId = downloadId;
+			this.trackId = trackId;
+			this.path = path;
+			this.expectedSize = expectedSize;
+			this.registered = System.currentTimeMillis();
+		}
+
+		public long getDownloadId() {
+			return downloadId;
+		}
+
+		public long getTrackId() {
+			return trackId;
+		}
+
+		/**
+		 * @return URI of the file the download was asked to write to.
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * @return Size SoundCloud reported for the track or 0 if it's not known.
+		 */
+		public long getExpectedSize() {
+			return expectedSize;
+		}
+
+		public long getRegistered() {
+			return registered;
+		}
+	}
+
+	private final File mFile;
+	private final Gson mGson = new Gson();
+	private Map<Long, Entry> mEntries;
+
+	/**
+	 * @param file Where the registry is stored.
+	 */
+	public DownloadRegistry(final File file) {
+		mFile = file;
+	}
+
+	public synchronized void register(final long downloadId, final long trackId,
+			final String path, final long expectedSize) {
+		getEntries().put(downloadId, new Entry(downloadId, trackId, path, expectedSize));
+		save();
+	}
+
+	/**
+	 * @return True if the download is one of ours and hasn't been handled yet.
+	 */
+	public synchronized boolean contains(final long downloadId) {
+		return getEntries().containsKey(downloadId);
+	}
+
+	/**
+	 * @return Ids of all downloads that haven't been handled yet.
+	 */
+	public synchronized long[] getDownloadIds() {
+		final long[] ids = new long[getEntries().size()];
+		int i = 0;
+		for (final Long id : getEntries().keySet()) {
+			ids[i++] = id;
+		}
+
+		return ids;
+	}
+
+	/**
+	 * Removes the download from the registry. Only one caller gets the entry, so a download
+	 * that's reported twice is only handled once.
+	 *
+	 * @return The entry or null if the download isn't ours or was already taken.
+	 */
+	public synchronized Entry take(final long downloadId) {
+		final Entry entry = getEntries().remove(downloadId);
+		if (entry != null) {
+			save();
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Forgets about downloads the DownloadManager never reported back on.
+	 */
+	public synchronized void prune(final long maxAgeMs) {
+		final long threshold = System.currentTimeMillis() - maxAgeMs;
+		boolean changed = false;
+
+		for (final Iterator<Entry> it = getEntries().values().iterator(); it.hasNext(); ) {
+			if (it.next().getRegistered() < threshold) {
+				it.remove();
+				changed = true;
+			}
+		}
+
+		if (changed) {
+			save();
+		}
+	}
+
+	private Map<Long, Entry> getEntries() {
+		if (mEntries == null) {
+			mEntries = new HashMap<>();
+			final List<Entry> entries = read();
+			if (entries != null) {
+				for (final Entry entry : entries) {
+					mEntries.put(entry.getDownloadId(), entry);
+				}
+			}
+		}
+
+		return mEntries;
+	}
+
+	private void save() {
+		final File tmpFile = new File(mFile.getPath() + TMP_EXTENSION);
+		try {
+			final Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), CHARSET);
+			try {
+				mGson.toJson(new ArrayList<>(mEntries.values()), writer);
+			} finally {
+				writer.close();
+			}
+
+			if (!tmpFile.renameTo(mFile)) {
+				throw new IOException("Can't replace " + mFile);
+			}
+		} catch (final IOException e) {
+			Ln.w(e, "Failed to save the download registry.");
+			tmpFile.delete();
+		}
+	}
+
+	private List<Entry> read() {
+		if (!mFile.exists()) {
+			return null;
+		}
+
+		try {
+			final Reader reader = new InputStreamReader(new FileInputStream(mFile), CHARSET);
+			try {
+				return mGson.fromJson(reader, new TypeToken<List<Entry>>() {
+				}.getType());
+			} finally {
+				reader.close();
+			}
+		} catch (final IOException | JsonParseException e) {
+			Ln.w(e, "Discarding unreadable download registry %s.", mFile);
+			mFile.delete();
+			return null;
+		}
+	}
+}
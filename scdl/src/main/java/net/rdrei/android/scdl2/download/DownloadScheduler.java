@@ -0,0 +1,360 @@
+package net.rdrei.android.scdl2.download;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import net.rdrei.android.scdl2.Config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import roboguice.util.Ln;
+
+/**
+ * Decides which queued downloads may start. Interactive downloads go first, bulk downloads
+ * never take the last free slot, and no host gets more than a few connections. Bulk downloads
+ * of large files wait for an unmetered network and nothing starts while we're offline.
+ * <p/>
+ * The queue is written to disk on every change, so it survives the death of our process.
+ * Jobs are handed to the {@link Starter} and count as running until
+ * {@link #onFinished(String, boolean, boolean)} is called for their file.
+ */
+public class DownloadScheduler {
+	private static final String CHARSET = "UTF-8";
+	private static final String TMP_EXTENSION = ".tmp";
+
+	public interface Starter {
+		/**
+		 * Starts the job. Must not block, the scheduler is locked while this runs.
+		 */
+		void start(DownloadJob job);
+	}
+
+	/**
+	 * What ends up on disk.
+	 */
+	private static class State {
+		private List<DownloadJob> queued;
+		private List<DownloadJob> running;
+		private long sequence;
+	}
+
+	private static final Comparator<DownloadJob> ORDER = new Comparator<DownloadJob>() {
+		@Override
+		public int compare(final DownloadJob lhs, final DownloadJob rhs) {
+			final int priority = lhs.getPriority().compareTo(rhs.getPriority());
+			if (priority != 0) {
+				return priority;
+			}
+
+			return Long.valueOf(lhs.getSequence()).compareTo(rhs.getSequence());
+		}
+	};
+
+	private final File mFile;
+	private final Gson mGson = new Gson();
+	private final PriorityQueue<DownloadJob> mQueue = new PriorityQueue<>(11, ORDER);
+	private final List<DownloadJob> mRunning = new ArrayList<>();
+
+	private Starter mStarter;
+	private NetworkState mNetworkState = NetworkState.DISCONNECTED;
+	private long mSequence;
+
+	private int mMaxConcurrent = Config.SCHEDULER_MAX_CONCURRENT;
+	private int mMaxBulk = Config.SCHEDULER_MAX_BULK;
+	private int mMaxPerHost = Config.SCHEDULER_MAX_PER_HOST;
+	private long mLargeDownloadBytes = Config.SCHEDULER_LARGE_DOWNLOAD_BYTES;
+
+	/**
+	 * @param file Where the queue is stored.
+	 */
+	public DownloadScheduler(final File file) {
+		mFile = file;
+	}
+
+	public synchronized void setMaxConcurrent(final int maxConcurrent) {
+		mMaxConcurrent = maxConcurrent;
+	}
+
+	public synchronized void setMaxBulk(final int maxBulk) {
+		mMaxBulk = maxBulk;
+	}
+
+	public synchronized void setMaxPerHost(final int maxPerHost) {
+		mMaxPerHost = maxPerHost;
+	}
+
+	public synchronized void setLargeDownloadBytes(final long largeDownloadBytes) {
+		mLargeDownloadBytes = largeDownloadBytes;
+	}
+
+	/**
+	 * Jobs are only started while there is a starter.
+	 */
+	public synchronized void setStarter(final Starter starter) {
+		mStarter = starter;
+		schedule();
+	}
+
+	public synchronized void setNetworkState(final NetworkState networkState) {
+		if (networkState.isConnected() != mNetworkState.isConnected() ||
+				networkState.isMetered() != mNetworkState.isMetered()) {
+			Ln.d("Network is %s now.", networkState);
+		}
+
+		mNetworkState = networkState;
+		schedule();
+	}
+
+	/**
+	 * Restores the queue from disk.
+	 *
+	 * @param requeueRunning If true, jobs that were running when we died start over, e.g.
+	 *                       because they ran in our process. Otherwise they're expected to
+	 *                       report back eventually.
+	 */
+	public synchronized void load(final boolean requeueRunning) {
+		final State state = read();
+		if (state == null) {
+			return;
+		}
+
+		mSequence = state.sequence;
+		if (state.queued != null) {
+			mQueue.addAll(state.queued);
+		}
+
+		if (state.running != null) {
+			if (requeueRunning) {
+				for (final DownloadJob job : state.running) {
+					job.setStarted(0);
+					mQueue.add(job);
+				}
+			} else {
+				mRunning.addAll(state.running);
+			}
+		}
+
+		schedule();
+	}
+
+	/**
+	 * Adds the job to the queue, unless the same track is already queued or running.
+	 */
+	public synchronized void enqueue(final DownloadJob job) {
+		final long trackId = job.getTrack().getId();
+		if (find(mQueue, trackId) != null || find(mRunning, trackId) != null) {
+			Ln.d("Track %d is already scheduled.", trackId);
+			return;
+		}
+
+		job.setSequence(mSequence++);
+		mQueue.add(job);
+		save();
+		schedule();
+	}
+
+	/**
+	 * Frees the slot of the job downloading to path.
+	 *
+	 * @param resumable Failed downloads are queued again if they can continue where they stopped.
+	 */
+	public synchronized void onFinished(final String path, final boolean successful,
+			final boolean resumable) {
+		for (final Iterator<DownloadJob> it = mRunning.iterator(); it.hasNext(); ) {
+			final DownloadJob job = it.next();
+			if (job.isDownloadOf(path)) {
+				it.remove();
+				if (!successful && resumable) {
+					retry(job);
+				}
+				break;
+			}
+		}
+
+		save();
+		schedule();
+	}
+
+	/**
+	 * Frees the slot of a job that couldn't be started.
+	 *
+	 * @param retry If true, the job is queued again, e.g. because the network went away.
+	 */
+	public synchronized void onStartFailed(final DownloadJob job, final boolean retry) {
+		if (mRunning.remove(job) && retry) {
+			retry(job);
+		}
+
+		save();
+		schedule();
+	}
+
+	public synchronized boolean hasQueuedJobs() {
+		return !mQueue.isEmpty();
+	}
+
+	public synchronized int getRunningCount() {
+		return mRunning.size();
+	}
+
+	private void retry(final DownloadJob job) {
+		if (job.getAttempts() >= Config.SCHEDULER_MAX_ATTEMPTS) {
+			Ln.w("Giving up on track %d.", job.getTrack().getId());
+			return;
+		}
+
+		// Most likely the signature of the old URL expired.
+		job.setUri(null);
+		job.setStarted(0);
+		mQueue.add(job);
+	}
+
+	private void schedule() {
+		releaseTimedOut();
+
+		if (mStarter == null || !mNetworkState.isConnected()) {
+			return;
+		}
+
+		final List<DownloadJob> skipped = new ArrayList<>();
+		final List<DownloadJob> started = new ArrayList<>();
+		final Map<String, Integer> hosts = new HashMap<>();
+		int bulk = 0;
+
+		for (final DownloadJob job : mRunning) {
+			countHost(hosts, job.getHost());
+			if (job.getPriority() == DownloadJob.Priority.BULK) {
+				bulk++;
+			}
+		}
+
+		while (mRunning.size() < mMaxConcurrent && !mQueue.isEmpty()) {
+			final DownloadJob job = mQueue.poll();
+			final String host = job.getHost();
+			final boolean isBulk = job.getPriority() == DownloadJob.Priority.BULK;
+
+			if ((isBulk && bulk >= mMaxBulk) || !isAllowedOnNetwork(job) ||
+					(host != null && hosts.containsKey(host) && hosts.get(host) >= mMaxPerHost)) {
+				skipped.add(job);
+				continue;
+			}
+
+			job.setStarted(System.currentTimeMillis());
+			job.setAttempts(job.getAttempts() + 1);
+			mRunning.add(job);
+			started.add(job);
+			countHost(hosts, host);
+			if (isBulk) {
+				bulk++;
+			}
+		}
+
+		mQueue.addAll(skipped);
+
+		if (!started.isEmpty()) {
+			save();
+			for (final DownloadJob job : started) {
+				Ln.d("Starting download of track %d.", job.getTrack().getId());
+				mStarter.start(job);
+			}
+		}
+	}
+
+	/**
+	 * Large originals can cost a fortune on mobile data, those only run in bulk on Wi-Fi.
+	 * Interactive downloads are always allowed, the user asked for them explicitly.
+	 */
+	private boolean isAllowedOnNetwork(final DownloadJob job) {
+		return !mNetworkState.isMetered() || job.getPriority() == DownloadJob.Priority.INTERACTIVE ||
+				job.getTrack().getOriginalContentSize() <= mLargeDownloadBytes;
+	}
+
+	/**
+	 * Frees the slots of running jobs we never heard back from.
+	 */
+	private void releaseTimedOut() {
+		final long threshold = System.currentTimeMillis() - Config.SCHEDULER_JOB_TIMEOUT_MS;
+
+		for (final Iterator<DownloadJob> it = mRunning.iterator(); it.hasNext(); ) {
+			final DownloadJob job = it.next();
+			if (job.getStarted() < threshold) {
+				Ln.w("Download of track %d timed out.", job.getTrack().getId());
+				it.remove();
+			}
+		}
+	}
+
+	private static void countHost(final Map<String, Integer> hosts, final String host) {
+		if (host != null) {
+			final Integer count = hosts.get(host);
+			hosts.put(host, count == null ? 1 : count + 1);
+		}
+	}
+
+	private static DownloadJob find(final Iterable<DownloadJob> jobs, final long trackId) {
+		for (final DownloadJob job : jobs) {
+			if (job.getTrack().getId() == trackId) {
+				return job;
+			}
+		}
+
+		return null;
+	}
+
+	private void save() {
+		final State state = new State();
+		state.queued = new ArrayList<>(mQueue);
+		state.running = new ArrayList<>(mRunning);
+		state.sequence = mSequence;
+
+		final File tmpFile = new File(mFile.getPath() + TMP_EXTENSION);
+		try {
+			final Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), CHARSET);
+			try {
+				mGson.toJson(state, writer);
+			} finally {
+				writer.close();
+			}
+
+			if (!tmpFile.renameTo(mFile)) {
+				throw new IOException("Can't replace " + mFile);
+			}
+		} catch (final IOException e) {
+			Ln.w(e, "Failed to save the download queue.");
+			tmpFile.delete();
+		}
+	}
+
+	private State read() {
+		if (!mFile.exists()) {
+			return null;
+		}
+
+		try {
+			final Reader reader = new InputStreamReader(new FileInputStream(mFile), CHARSET);
+			try {
+				return mGson.fromJson(reader, State.class);
+			} finally {
+				reader.close();
+			}
+		} catch (final IOException | JsonParseException e) {
+			Ln.w(e, "Discarding unreadable download queue %s.", mFile);
+			mFile.delete();
+			return null;
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package net.rdrei.android.scdl2.download;
+
+import com.google.inject.Inject;
+
+import net.rdrei.android.scdl2.Config;
+import net.rdrei.android.scdl2.api.URLConnectionFactory;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Locale;
+
+import roboguice.util.Ln;
+
+/**
+ * Checks finished downloads against the size SoundCloud reported for the track and fetches
+ * what's missing from truncated ones. Only looks at the file's metadata, the content itself is
+ * covered by the checksums calculated while downloading.
+ */
+public class DownloadVerifier {
+	private static final String HEADER_RANGE = "Range";
+	private static final String HEADER_CONTENT_RANGE = "Content-Range";
+	private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+	private static final String ENCODING_IDENTITY = "identity";
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private final URLConnectionFactory mConnectionFactory;
+	private boolean mRepairEnabled = Config.Features.REPAIR_DOWNLOADS;
+
+	@Inject
+	public DownloadVerifier(final URLConnectionFactory connectionFactory) {
+		mConnectionFactory = connectionFactory;
+	}
+
+	/**
+	 * Whether {@link #check(URL, File, long)} tries to fetch missing bytes again.
+	 */
+	public void setRepairEnabled(final boolean repairEnabled) {
+		mRepairEnabled = repairEnabled;
+	}
+
+	/**
+	 * Verifies the file and repairs it if that's enabled and possible.
+	 * <b>This may block the current thread!</b>
+	 *
+	 * @return True if the file is (now) complete.
+	 */
+	public boolean check(final URL url, final File file, final long expectedSize) {
+		if (verify(file, expectedSize)) {
+			return true;
+		}
+
+		if (!mRepairEnabled || !isRepairable(file, expectedSize)) {
+			return false;
+		}
+
+		try {
+			repair(url, file, expectedSize);
+			return true;
+		} catch (final IOException e) {
+			Ln.w(e, "Failed to repair %s.", file);
+			return false;
+		}
+	}
+
+	/**
+	 * @param expectedSize Size of the download or 0 if it's not known, which always passes.
+	 * @return True if the file has the expected size.
+	 */
+	public boolean verify(final File file, final long expectedSize) {
+		if (expectedSize <= 0) {
+			return true;
+		}
+
+		final long size = file.length();
+		if (size != expectedSize) {
+			Ln.w("%s has %d bytes, expected %d.", file, size, expectedSize);
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Whether {@link #repair(URL, File, long)} has a chance to fix the file. Only missing bytes
+	 * at the end can be fetched again, there's no telling which bytes of a too large file are
+	 * wrong.
+	 */
+	public boolean isRepairable(final File file, final long expectedSize) {
+		return expectedSize > 0 && file.exists() && file.length() < expectedSize;
+	}
+
+	/**
+	 * Appends the bytes missing at the end of the file with a single range request.
+	 * <b>This is blocking the current thread!</b>
+	 *
+	 * @param url Where the file was downloaded from.
+	 * @throws IOException If the server doesn't answer with exactly the missing range or the
+	 *                     file still has the wrong size afterwards.
+	 */
+	public void repair(final URL url, final File file, final long expectedSize)
+			throws IOException {
+		final long start = file.length();
+		Ln.i("Fetching bytes %d-%d of %s again.", start, expectedSize - 1, file);
+
+		final HttpURLConnection connection = (HttpURLConnection) mConnectionFactory.create(url);
+		// Transparent gzip would make the byte offsets meaningless.
+		connection.setRequestProperty(HEADER_ACCEPT_ENCODING, ENCODING_IDENTITY);
+		connection.setRequestProperty(HEADER_RANGE,
+				String.format(Locale.US, "bytes=%d-%d", start, expectedSize - 1));
+
+		try {
+			final int code = connection.getResponseCode();
+			if (code != HttpURLConnection.HTTP_PARTIAL) {
+				throw new SegmentedDownload.HttpStatusException(code);
+			}
+
+			final long total = SegmentedDownload.parseTotalLength(
+					connection.getHeaderField(HEADER_CONTENT_RANGE));
+			if (total != expectedSize) {
+				throw new IOException(String.format(Locale.US,
+						"Server reports %d bytes for %s, expected %d.", total, url,
+						expectedSize));
+			}
+
+			append(connection.getInputStream(), file, expectedSize - start);
+		} finally {
+			connection.disconnect();
+		}
+
+		if (!verify(file, expectedSize)) {
+			throw new EOFException(String.format(Locale.US, "%s is still incomplete.", file));
+		}
+	}
+
+	private static void append(final InputStream input, final File file, long remaining)
+			throws IOException {
+		final OutputStream output = new FileOutputStream(file, true);
+		final byte[] buffer = new byte[BUFFER_SIZE];
+
+		try {
+			while (remaining > 0) {
+				final int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+				if (read == -1) {
+					break;
+				}
+
+				output.write(buffer, 0, read);
+				remaining -= read;
+			}
+		} finally {
+			input.close();
+			output.close();
+		}
+	}
+}
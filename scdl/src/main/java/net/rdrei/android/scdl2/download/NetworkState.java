@@ -0,0 +1,45 @@
+package net.rdrei.android.scdl2.download;
+
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.support.v4.net.ConnectivityManagerCompat;
+
+/**
+ * The parts of the current connectivity the {@link DownloadScheduler} cares about.
+ */
+public class NetworkState {
+	public static final NetworkState DISCONNECTED = new NetworkState(false, false);
+	public static final NetworkState UNMETERED = new NetworkState(true, false);
+	public static final NetworkState METERED = new NetworkState(true, true);
+
+	private final boolean mConnected;
+	private final boolean mMetered;
+
+	private NetworkState(final boolean connected, final boolean metered) {
+		mConnected = connected;
+		mMetered = metered;
+	}
+
+	public static NetworkState fromConnectivityManager(final ConnectivityManager manager) {
+		final NetworkInfo info = manager.getActiveNetworkInfo();
+
+		if (info == null || !info.isConnected()) {
+			return DISCONNECTED;
+		}
+
+		return ConnectivityManagerCompat.isActiveNetworkMetered(manager) ? METERED : UNMETERED;
+	}
+
+	public boolean isConnected() {
+		return mConnected;
+	}
+
+	public boolean isMetered() {
+		return mMetered;
+	}
+
+	@Override
+	public String toString() {
+		return mConnected ? (mMetered ? "metered" : "unmetered") : "disconnected";
+	}
+}
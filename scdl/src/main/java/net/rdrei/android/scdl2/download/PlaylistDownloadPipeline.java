@@ -0,0 +1,224 @@
+package net.rdrei.android.scdl2.download;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+
+import net.rdrei.android.scdl2.Config;
+import net.rdrei.android.scdl2.TrackDownloader;
+import net.rdrei.android.scdl2.TrackDownloaderFactory;
+import net.rdrei.android.scdl2.api.APIException;
+import net.rdrei.android.scdl2.api.ServiceManager;
+import net.rdrei.android.scdl2.api.entity.PlaylistEntity;
+import net.rdrei.android.scdl2.api.entity.TrackEntity;
+import net.rdrei.android.scdl2.api.service.DownloadService;
+import net.rdrei.android.scdl2.service.DownloadSchedulerService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import roboguice.util.Ln;
+import roboguice.util.SafeAsyncTask;
+
+/**
+ * Downloads all tracks of a playlist in three stages:
+ * <ol>
+ * <li>Resolve the download URL of every track, several at a time.</li>
+ * <li>Enqueue each track with a {@link TrackDownloader}, or the download scheduler if enabled, as
+ * soon as its URL is known.</li>
+ * <li>Report the outcome of every track and the final tally to the {@link Listener}.</li>
+ * </ol>
+ * Post-processing of the finished files happens in the DownloadCompleteReceiver, just like for
+ * single tracks.
+ */
+public class PlaylistDownloadPipeline {
+
+	/**
+	 * Called on the thread of the handler passed in.
+	 */
+	public interface Listener {
+		void onTrackQueued(final TrackEntity track);
+
+		void onTrackFailed(final TrackEntity track, final Exception e);
+
+		void onFinished(final int queued, final int failed);
+	}
+
+	/**
+	 * A track that has been through the resolve stage, successful or not.
+	 */
+	private static class ResolvedTrack {
+		private final TrackEntity mTrack;
+		private final Uri mUri;
+		private final Exception mError;
+
+		public ResolvedTrack(final TrackEntity track, final Uri uri, final Exception error) {
+			mTrack = track;
+			mUri = uri;
+			mError = error;
+		}
+	}
+
+	@Inject
+	private ServiceManager mServiceManager;
+
+	@Inject
+	private TrackDownloaderFactory mDownloaderFactory;
+
+	@Inject
+	private Context mContext;
+
+	private final PlaylistEntity mPlaylist;
+	private final Handler mHandler;
+	private final Listener mListener;
+
+	private int mConcurrency = Config.RESOLVE_THREADS;
+	private int mQueued;
+	private int mFailed;
+	private volatile boolean mCancelled;
+	private volatile DownloadService.Batch mBatch;
+
+	/**
+	 * @param handler Used for all callbacks and passed on to every {@link TrackDownloader}, so
+	 *                errors while enqueuing end up there.
+	 */
+	@Inject
+	public PlaylistDownloadPipeline(@Assisted final PlaylistEntity playlist,
+			@Assisted final Handler handler, @Assisted final Listener listener) {
+		mPlaylist = playlist;
+		mHandler = handler;
+		mListener = listener;
+	}
+
+	/**
+	 * Number of download URLs resolved in parallel.
+	 */
+	public void setConcurrency(final int concurrency) {
+		mConcurrency = Math.max(1, concurrency);
+	}
+
+	/**
+	 * Runs the pipeline in the background.
+	 */
+	public void start() {
+		new SafeAsyncTask<Void>(mHandler) {
+			@Override
+			public Void call() throws Exception {
+				PlaylistDownloadPipeline.this.run();
+				return null;
+			}
+		}.execute();
+	}
+
+	/**
+	 * Stops resolving further tracks. Tracks already handed to a downloader keep going.
+	 */
+	public void cancel() {
+		mCancelled = true;
+
+		final DownloadService.Batch batch = mBatch;
+		if (batch != null) {
+			batch.cancel();
+		}
+	}
+
+	/**
+	 * Runs the pipeline. <b>This is blocking the current thread!</b>
+	 */
+	public void run() {
+		final List<TrackEntity> tracks = mPlaylist.getTracks();
+		final Map<String, TrackEntity> pending = new HashMap<>();
+
+		if (tracks != null) {
+			for (final TrackEntity track : tracks) {
+				if (track.isDownloadable()) {
+					pending.put(String.valueOf(track.getId()), track);
+				} else {
+					post(new ResolvedTrack(track, null,
+							new APIException("Download is not available.", -1)));
+				}
+			}
+		}
+
+		final DownloadService service = mServiceManager.downloadService();
+		final DownloadService.Batch batch = service.resolveUris(
+				new ArrayList<>(pending.keySet()), mConcurrency);
+
+		mBatch = batch;
+		if (mCancelled) {
+			batch.cancel();
+		}
+
+		try {
+			// Hand out results in the order they finish, not in playlist order.
+			while (batch.hasNext()) {
+				final DownloadService.Resolution resolution = batch.next();
+				post(new ResolvedTrack(pending.get(resolution.getId()), resolution.getUri(),
+						resolution.getError()));
+			}
+		} catch (final InterruptedException e) {
+			Ln.d("Resolving playlist %d was interrupted.", mPlaylist.getId());
+			Thread.currentThread().interrupt();
+		} finally {
+			// Releases the workers if we didn't take all results.
+			batch.cancel();
+			mBatch = null;
+
+			mHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					mListener.onFinished(mQueued, mFailed);
+				}
+			});
+		}
+	}
+
+	private void post(final ResolvedTrack resolved) {
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				enqueue(resolved);
+			}
+		});
+	}
+
+	private void enqueue(final ResolvedTrack resolved) {
+		if (mCancelled) {
+			return;
+		}
+
+		if (resolved.mError != null) {
+			Ln.w(resolved.mError, "Skipping track %d.", resolved.mTrack.getId());
+			mFailed++;
+			mListener.onTrackFailed(resolved.mTrack, resolved.mError);
+			return;
+		}
+
+		if (Config.Features.DOWNLOAD_SCHEDULER) {
+			// The scheduler decides when the track actually starts.
+			DownloadSchedulerService.enqueue(mContext, resolved.mTrack, resolved.mUri,
+					DownloadJob.Priority.BULK);
+		} else {
+			final TrackDownloader downloader = mDownloaderFactory.create(resolved.mUri,
+					resolved.mTrack, mHandler);
+			downloader.setBackground(true);
+			try {
+				downloader.enqueue();
+			} catch (final IOException e) {
+				Ln.w(e, "Failed to enqueue track %d.", resolved.mTrack.getId());
+				mFailed++;
+				mListener.onTrackFailed(resolved.mTrack, e);
+				return;
+			}
+		}
+
+		mQueued++;
+		mListener.onTrackQueued(resolved.mTrack);
+	}
+}
@@ -0,0 +1,17 @@
+package net.rdrei.android.scdl2.download;
+
+import android.os.Handler;
+
+import net.rdrei.android.scdl2.api.entity.PlaylistEntity;
+
+public interface PlaylistDownloadPipelineFactory {
+	/**
+	 * Creates a new pipeline for downloading every track of the playlist.
+	 *
+	 * @param playlist The playlist, including its tracks.
+	 * @param handler  Handler of the thread to receive the listener callbacks on.
+	 * @param listener Notified about every track and once everything is done.
+	 */
+	PlaylistDownloadPipeline create(PlaylistEntity playlist, Handler handler,
+			PlaylistDownloadPipeline.Listener listener);
+}
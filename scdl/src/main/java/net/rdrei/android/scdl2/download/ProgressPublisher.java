@@ -0,0 +1,154 @@
+package net.rdrei.android.scdl2.download;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import com.squareup.otto.Bus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns the raw progress of running downloads into {@link DownloadProgressEvent}s on the Bus.
+ * Downloads report from their own threads as often as they like, the latest state of every
+ * download is posted on the handler's thread once per frame. Many concurrent transfers thus
+ * cost the main thread one event per download and frame, no matter how fast they read.
+ */
+public class ProgressPublisher {
+	// Weight of the latest frame in the displayed rate, smooths out bursty reads.
+	private static final double RATE_SMOOTHING = 0.3;
+
+	private static class Progress {
+		private String mTitle;
+		private long mTransferredBytes;
+		private long mTotalBytes = -1;
+		private boolean mFinished;
+		private boolean mDirty;
+
+		private long mFrameBytes;
+		private long mFrameTime;
+		private long mBytesPerSecond;
+	}
+
+	private final Bus mBus;
+	private final Handler mHandler;
+	private final long mFrameIntervalMs;
+	private final Map<Long, Progress> mDownloads = new HashMap<>();
+	private boolean mFrameScheduled;
+
+	private final Runnable mFrame = new Runnable() {
+		@Override
+		public void run() {
+			onFrame();
+		}
+	};
+
+	/**
+	 * @param handler         Events are posted on this handler's thread, usually the main thread
+	 *                        the Bus insists on.
+	 * @param frameIntervalMs Minimum time between two events of the same download.
+	 */
+	public ProgressPublisher(final Bus bus, final Handler handler, final long frameIntervalMs) {
+		mBus = bus;
+		mHandler = handler;
+		mFrameIntervalMs = frameIntervalMs;
+	}
+
+	/**
+	 * Records the progress of a download. Can be called from any thread.
+	 *
+	 * @param totalBytes Size of the download or -1 if it's not known.
+	 */
+	public synchronized void publish(final long trackId, final String title,
+			final long transferredBytes, final long totalBytes) {
+		Progress progress = mDownloads.get(trackId);
+		if (progress == null) {
+			progress = new Progress();
+			// Resumed downloads start out with bytes that didn't come in just now.
+			progress.mFrameBytes = transferredBytes;
+			progress.mFrameTime = SystemClock.elapsedRealtime();
+			mDownloads.put(trackId, progress);
+		}
+
+		progress.mTitle = title;
+		progress.mTransferredBytes = transferredBytes;
+		progress.mTotalBytes = totalBytes;
+		progress.mDirty = true;
+		scheduleFrame();
+	}
+
+	/**
+	 * Sends the last event for the download with the next frame and forgets about it.
+	 */
+	public synchronized void finish(final long trackId) {
+		final Progress progress = mDownloads.get(trackId);
+		if (progress == null) {
+			return;
+		}
+
+		progress.mFinished = true;
+		progress.mDirty = true;
+		scheduleFrame();
+	}
+
+	private void scheduleFrame() {
+		if (!mFrameScheduled) {
+			mFrameScheduled = true;
+			mHandler.postDelayed(mFrame, mFrameIntervalMs);
+		}
+	}
+
+	private void onFrame() {
+		final List<DownloadProgressEvent> events = new ArrayList<>();
+
+		synchronized (this) {
+			mFrameScheduled = false;
+			final long now = SystemClock.elapsedRealtime();
+
+			for (final Iterator<Map.Entry<Long, Progress>> it = mDownloads.entrySet().iterator();
+					it.hasNext(); ) {
+				final Map.Entry<Long, Progress> entry = it.next();
+				final Progress progress = entry.getValue();
+				if (!progress.mDirty) {
+					continue;
+				}
+
+				updateRate(progress, now);
+				progress.mDirty = false;
+				events.add(new DownloadProgressEvent(entry.getKey(), progress.mTitle,
+						progress.mTransferredBytes, progress.mTotalBytes,
+						progress.mBytesPerSecond, progress.mFinished));
+
+				if (progress.mFinished) {
+					it.remove();
+				}
+			}
+		}
+
+		// Subscribers may be slow, don't let them hold up the downloads.
+		for (final DownloadProgressEvent event : events) {
+			mBus.post(event);
+		}
+	}
+
+	private static void updateRate(final Progress progress, final long now) {
+		final long elapsed = now - progress.mFrameTime;
+		if (elapsed <= 0) {
+			return;
+		}
+
+		final long rate = (progress.mTransferredBytes - progress.mFrameBytes) * 1000 / elapsed;
+		if (progress.mBytesPerSecond == 0) {
+			progress.mBytesPerSecond = rate;
+		} else {
+			progress.mBytesPerSecond = (long) (progress.mBytesPerSecond * (1 - RATE_SMOOTHING) +
+					rate * RATE_SMOOTHING);
+		}
+
+		progress.mFrameBytes = progress.mTransferredBytes;
+		progress.mFrameTime = now;
+	}
+}
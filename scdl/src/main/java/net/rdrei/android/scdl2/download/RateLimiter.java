@@ -0,0 +1,114 @@
+package net.rdrei.android.scdl2.download;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Token bucket shared by all transfers that should stay below a common rate. The bucket holds
+ * one second worth of bytes, so short bursts pass without delay. Transfers pay after reading,
+ * going into debt if necessary, and sleep until the debt is paid off.
+ * <p/>
+ * The rate can be changed at any time, running transfers pick it up with their next read.
+ */
+public class RateLimiter {
+	private static final long NANOS_PER_SECOND = 1000000000L;
+	private static final long NANOS_PER_MILLI = 1000000L;
+
+	/**
+	 * Where the limiter takes the time from and how it waits, so tests don't depend on the
+	 * wall clock.
+	 */
+	public interface Clock {
+		long nanoTime();
+
+		void sleep(long nanos) throws InterruptedException;
+	}
+
+	private static final Clock SYSTEM_CLOCK = new Clock() {
+		@Override
+		public long nanoTime() {
+			return System.nanoTime();
+		}
+
+		@Override
+		public void sleep(final long nanos) throws InterruptedException {
+			Thread.sleep(nanos / NANOS_PER_MILLI, (int) (nanos % NANOS_PER_MILLI));
+		}
+	};
+
+	private final Clock mClock;
+	private long mBytesPerSecond;
+	private double mTokens;
+	private long mLastRefill;
+
+	/**
+	 * @param bytesPerSecond Allowed rate, 0 for no limit.
+	 */
+	public RateLimiter(final long bytesPerSecond) {
+		this(bytesPerSecond, SYSTEM_CLOCK);
+	}
+
+	/**
+	 * @param bytesPerSecond Allowed rate, 0 for no limit.
+	 */
+	public RateLimiter(final long bytesPerSecond, final Clock clock) {
+		mClock = clock;
+		setRate(bytesPerSecond);
+	}
+
+	/**
+	 * @param bytesPerSecond Allowed rate, 0 for no limit.
+	 */
+	public synchronized void setRate(final long bytesPerSecond) {
+		if (bytesPerSecond == mBytesPerSecond) {
+			return;
+		}
+
+		mBytesPerSecond = Math.max(0, bytesPerSecond);
+		mTokens = mBytesPerSecond;
+		mLastRefill = mClock.nanoTime();
+	}
+
+	public synchronized long getRate() {
+		return mBytesPerSecond;
+	}
+
+	/**
+	 * Takes bytes out of the bucket and blocks until the bucket isn't in debt anymore.
+	 *
+	 * @throws InterruptedIOException If the thread was interrupted while waiting.
+	 */
+	public void acquire(final int bytes) throws InterruptedIOException {
+		final long waitNanos = take(bytes);
+		if (waitNanos <= 0) {
+			return;
+		}
+
+		try {
+			mClock.sleep(waitNanos);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while throttled.");
+		}
+	}
+
+	/**
+	 * @return Nanoseconds to wait before the bytes may pass.
+	 */
+	private synchronized long take(final int bytes) {
+		if (mBytesPerSecond == 0) {
+			return 0;
+		}
+
+		final long now = mClock.nanoTime();
+		mTokens = Math.min(mBytesPerSecond,
+				mTokens + (double) (now - mLastRefill) * mBytesPerSecond / NANOS_PER_SECOND);
+		mLastRefill = now;
+		mTokens -= bytes;
+
+		if (mTokens >= 0) {
+			return 0;
+		}
+
+		return (long) (-mTokens * NANOS_PER_SECOND / mBytesPerSecond);
+	}
+}
@@ -0,0 +1,773 @@
+package net.rdrei.android.scdl2.download;
+
+import net.rdrei.android.scdl2.Config;
+import net.rdrei.android.scdl2.api.URLConnectionFactory;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import roboguice.util.Ln;
+
+/**
+ * Downloads a single URL into a local file using parallel HTTP Range requests.
+ * <p/>
+ * The target file is preallocated to the full content length, so every segment writes its bytes
+ * straight to their final position and the file is complete once the last segment finishes.
+ * Servers that don't honour Range requests are downloaded over a single connection instead.
+ * <p/>
+ * Every segment keeps an Adler-32 of the bytes it wrote, which are combined into the checksum
+ * of the whole file at the end. That way the file never has to be read again to verify it.
+ */
+public class SegmentedDownload {
+	private static final String HEADER_RANGE = "Range";
+	private static final String HEADER_CONTENT_RANGE = "Content-Range";
+	private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+	private static final String HEADER_IF_RANGE = "If-Range";
+	private static final String HEADER_ETAG = "ETag";
+	private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+	private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+	private static final String ENCODING_IDENTITY = "identity";
+	private static final long RETRY_BACKOFF_MS = 500;
+
+	private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile(
+			"^bytes (\\d+)-(\\d+)/(\\d+)$");
+
+	/**
+	 * Receives progress updates. <b>Called from the worker threads!</b>
+	 */
+	public interface Listener {
+		void onProgress(long transferredBytes, long totalBytes);
+	}
+
+	/**
+	 * Raised when the server answered with an unexpected HTTP status code.
+	 */
+	public static class HttpStatusException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		private final int mCode;
+
+		public HttpStatusException(final int code) {
+			super(String.format(Locale.US, "Unexpected HTTP status %d.", code));
+			mCode = code;
+		}
+
+		public int getCode() {
+			return mCode;
+		}
+
+		/**
+		 * Server errors are usually temporary, everything else (like an expired signature) is
+		 * not going to change by asking again.
+		 */
+		public boolean isRetriable() {
+			return mCode >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+		}
+
+		/**
+		 * @return True if the signature of the URL has most likely expired, so a freshly
+		 * resolved one would work.
+		 */
+		public boolean isExpired() {
+			return mCode == HttpURLConnection.HTTP_FORBIDDEN
+					|| mCode == HttpURLConnection.HTTP_GONE;
+		}
+	}
+
+	/**
+	 * Raised if the target file system can't hold the whole download.
+	 */
+	public static class InsufficientSpaceException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		public InsufficientSpaceException(final String detailMessage) {
+			super(detailMessage);
+		}
+	}
+
+	/**
+	 * Raised if the file changed on the server since we started, i.e. If-Range didn't match.
+	 */
+	public static class ResourceChangedException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		public ResourceChangedException(final String detailMessage) {
+			super(detailMessage);
+		}
+	}
+
+	/**
+	 * An inclusive byte range of the download, the position up to which it has been written and
+	 * the checksum of what's been written so far.
+	 */
+	public static class Segment {
+		private final long mStart;
+		private final long mEnd;
+		private volatile long mPosition;
+		// Null if we resumed without knowing the checksum of the bytes already on disk.
+		private final Adler32Digest mDigest;
+
+		public Segment(final long start, final long end) {
+			this(start, end, start, new Adler32Digest().getValue());
+		}
+
+		/**
+		 * @param checksum Adler-32 of the bytes from start to position or -1 if unknown.
+		 */
+		public Segment(final long start, final long end, final long position,
+				final long checksum) {
+			mStart = start;
+			mEnd = end;
+			mPosition = position;
+			if (checksum >= 0) {
+				mDigest = new Adler32Digest(checksum);
+			} else {
+				mDigest = position == start ? new Adler32Digest() : null;
+			}
+		}
+
+		public long getStart() {
+			return mStart;
+		}
+
+		public long getEnd() {
+			return mEnd;
+		}
+
+		public long getPosition() {
+			return mPosition;
+		}
+
+		public long getRemaining() {
+			return mEnd - mPosition + 1;
+		}
+
+		public boolean isComplete() {
+			return mPosition > mEnd;
+		}
+
+		/**
+		 * @return Adler-32 of the bytes written so far or -1 if it's not known.
+		 */
+		public synchronized long getChecksum() {
+			return mDigest == null ? -1 : mDigest.getValue();
+		}
+
+		/**
+		 * Position and checksum at the same point in time, for checkpoints.
+		 */
+		synchronized DownloadCheckpoint.Range toRange() {
+			return new DownloadCheckpoint.Range(mStart, mEnd, mPosition, getChecksum());
+		}
+
+		synchronized void advance(final byte[] buffer, final int length) {
+			if (mDigest != null) {
+				mDigest.update(buffer, 0, length);
+			}
+			mPosition += length;
+		}
+
+		@Override
+		public String toString() {
+			return "Segment{" + mStart + "-" + mEnd + ", position=" + mPosition + '}';
+		}
+	}
+
+	private final URLConnectionFactory mConnectionFactory;
+	private final ExecutorService mExecutor;
+	private final URL mUrl;
+	private final File mTarget;
+	private final AtomicLong mTransferredBytes = new AtomicLong();
+
+	private int mMaxSegments = Config.DOWNLOAD_MAX_SEGMENTS;
+	private long mMinSegmentSize = Config.DOWNLOAD_MIN_SEGMENT_SIZE;
+	private int mBufferSize = Config.DOWNLOAD_BUFFER_SIZE;
+	private int mMaxRetries = Config.DOWNLOAD_MAX_RETRIES;
+	private Listener mListener;
+	private RateLimiter mRateLimiter;
+	private CheckpointJournal mJournal;
+	private DownloadCheckpoint mCheckpoint;
+	private volatile long mTotalBytes = -1;
+	private long mChecksum = -1;
+	private volatile boolean mCancelled;
+	private volatile boolean mAborted;
+
+	// Validators of the entity we're downloading, sent along as If-Range.
+	private String mEtag;
+	private String mLastModified;
+	private String mValidator;
+
+	// Only set while segments are running, used for checkpointing.
+	private List<Segment> mSegments;
+	private FileChannel mOpenChannel;
+	private volatile long mLastCheckpoint;
+
+	/**
+	 * @param connectionFactory Factory used to open all connections.
+	 * @param executor          Executor the segments are run on. Must not be the thread calling
+	 *                          {@link #download()}.
+	 * @param url               Resolved media URL, i.e. the target of the download redirect.
+	 * @param target            File to write to. Will be overwritten.
+	 */
+	public SegmentedDownload(final URLConnectionFactory connectionFactory,
+			final ExecutorService executor, final URL url, final File target) {
+		mConnectionFactory = connectionFactory;
+		mExecutor = executor;
+		mUrl = url;
+		mTarget = target;
+	}
+
+	public void setMaxSegments(final int maxSegments) {
+		mMaxSegments = maxSegments;
+	}
+
+	public void setMinSegmentSize(final long minSegmentSize) {
+		mMinSegmentSize = minSegmentSize;
+	}
+
+	public void setBufferSize(final int bufferSize) {
+		mBufferSize = bufferSize;
+	}
+
+	public void setMaxRetries(final int maxRetries) {
+		mMaxRetries = maxRetries;
+	}
+
+	public void setListener(final Listener listener) {
+		mListener = listener;
+	}
+
+	/**
+	 * Limits the combined rate of all segments.
+	 */
+	public void setRateLimiter(final RateLimiter rateLimiter) {
+		mRateLimiter = rateLimiter;
+	}
+
+	/**
+	 * Enables resuming. If the checkpoint describes a partial download of the target, only the
+	 * missing ranges are fetched. Progress is written back to the journal periodically and when
+	 * the download fails, but it's up to the caller to remove it once the download is done.
+	 */
+	public void setCheckpoint(final CheckpointJournal journal,
+			final DownloadCheckpoint checkpoint) {
+		mJournal = journal;
+		mCheckpoint = checkpoint;
+	}
+
+	public File getTarget() {
+		return mTarget;
+	}
+
+	/**
+	 * @return Size of the download or -1 if it's not known (yet).
+	 */
+	public long getTotalBytes() {
+		return mTotalBytes;
+	}
+
+	/**
+	 * @return Adler-32 of the completed download or -1 if it's not known, e.g. because the
+	 * download was resumed from a checkpoint written by an older version.
+	 */
+	public long getChecksum() {
+		return mChecksum;
+	}
+
+	/**
+	 * Stops all running segments. {@link #download()} will throw an
+	 * {@link InterruptedIOException} shortly after.
+	 */
+	public void cancel() {
+		mCancelled = true;
+	}
+
+	/**
+	 * Runs the download. <b>This is blocking the current thread!</b>
+	 *
+	 * @return The completed target file.
+	 * @throws IOException If the download failed, see {@link HttpStatusException} and {@link
+	 *                     InsufficientSpaceException} for the interesting cases.
+	 */
+	public File download() throws IOException {
+		if (mCheckpoint != null && mCheckpoint.isResumable(mTarget)) {
+			try {
+				if (resume()) {
+					return mTarget;
+				}
+			} catch (final ResourceChangedException e) {
+				// Same as failing the initial validation.
+			}
+
+			Ln.i("%s changed since the last attempt, starting over.", mUrl);
+			reset();
+		}
+
+		try {
+			return downloadFresh();
+		} catch (final ResourceChangedException e) {
+			Ln.i("%s changed while downloading, starting over.", mUrl);
+			reset();
+			return downloadFresh();
+		}
+	}
+
+	/**
+	 * Continues the download described by the checkpoint.
+	 *
+	 * @return False if the checkpoint doesn't match the file on the server anymore.
+	 */
+	private boolean resume() throws IOException {
+		mEtag = mCheckpoint.getEtag();
+		mLastModified = mCheckpoint.getLastModified();
+		mValidator = mCheckpoint.getValidator();
+
+		// With If-Range the server only answers with a partial response if nothing changed.
+		final HttpURLConnection probe = openConnection(0, 0);
+		final int code;
+		final String contentRange;
+
+		try {
+			code = probe.getResponseCode();
+			contentRange = probe.getHeaderField(HEADER_CONTENT_RANGE);
+		} finally {
+			probe.disconnect();
+		}
+
+		if (code == HttpURLConnection.HTTP_OK) {
+			return false;
+		} else if (code != HttpURLConnection.HTTP_PARTIAL) {
+			throw new HttpStatusException(code);
+		} else if (parseTotalLength(contentRange) != mCheckpoint.getContentLength()) {
+			return false;
+		}
+
+		mTotalBytes = mCheckpoint.getContentLength();
+		mTransferredBytes.set(mCheckpoint.getCompletedBytes());
+		Ln.d("Resuming %s with %d of %d bytes on disk.", mUrl, mTransferredBytes.get(),
+				mTotalBytes);
+
+		downloadSegments(mCheckpoint.toSegments());
+		return true;
+	}
+
+	private void reset() {
+		if (mCheckpoint != null) {
+			mCheckpoint.reset();
+		}
+
+		mEtag = null;
+		mLastModified = null;
+		mValidator = null;
+		mTotalBytes = -1;
+		mChecksum = -1;
+		mTransferredBytes.set(0);
+	}
+
+	private File downloadFresh() throws IOException {
+		// Probing with a single byte tells us both the size and whether ranges are supported.
+		final HttpURLConnection probe = openConnection(0, 0);
+		final int code;
+
+		try {
+			code = probe.getResponseCode();
+		} catch (final IOException e) {
+			probe.disconnect();
+			throw e;
+		}
+
+		if (code == HttpURLConnection.HTTP_OK) {
+			Ln.d("Server ignored Range header, downloading %s in one piece.", mUrl);
+			downloadSingle(probe);
+			return mTarget;
+		}
+
+		final String contentRange = probe.getHeaderField(HEADER_CONTENT_RANGE);
+		mEtag = probe.getHeaderField(HEADER_ETAG);
+		mLastModified = probe.getHeaderField(HEADER_LAST_MODIFIED);
+		probe.disconnect();
+		if (code != HttpURLConnection.HTTP_PARTIAL) {
+			throw new HttpStatusException(code);
+		}
+
+		final long total = parseTotalLength(contentRange);
+		if (total <= 0) {
+			Ln.d("No usable Content-Range, downloading %s in one piece.", mUrl);
+			downloadSingle(openConnection());
+			return mTarget;
+		}
+
+		mTotalBytes = total;
+		mValidator = getValidator(mEtag, mLastModified);
+		downloadSegments(split(total, mMaxSegments, mMinSegmentSize));
+		return mTarget;
+	}
+
+	/**
+	 * @return The value to send as If-Range or null if there is none. Weak ETags are not allowed
+	 * in If-Range, the modification date is the next best thing then.
+	 */
+	static String getValidator(final String etag, final String lastModified) {
+		if (etag != null && !etag.startsWith("W/")) {
+			return etag;
+		}
+
+		return lastModified;
+	}
+
+	/**
+	 * Splits a download of the given size into at most maxSegments segments of at least
+	 * minSegmentSize bytes each.
+	 */
+	public static List<Segment> split(final long total, final int maxSegments,
+			final long minSegmentSize) {
+		final int count = (int) Math.max(1, Math.min(maxSegments, total / minSegmentSize));
+		final long size = total / count;
+		final List<Segment> segments = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			final long start = i * size;
+			final long end = (i == count - 1) ? total - 1 : start + size - 1;
+			segments.add(new Segment(start, end));
+		}
+
+		return segments;
+	}
+
+	/**
+	 * Combines the checksums of consecutive segments into the one of the whole range.
+	 *
+	 * @return The checksum or -1 if any of the segments doesn't know its own.
+	 */
+	static long combineChecksums(final List<Segment> segments) {
+		long checksum = new Adler32Digest().getValue();
+
+		for (final Segment segment : segments) {
+			final long segmentChecksum = segment.getChecksum();
+			if (segmentChecksum < 0) {
+				return -1;
+			}
+			checksum = Adler32Digest.combine(checksum, segmentChecksum,
+					segment.getPosition() - segment.getStart());
+		}
+
+		return checksum;
+	}
+
+	private void downloadSegments(final List<Segment> segments) throws IOException {
+		checkFreeSpace(mTotalBytes - mTransferredBytes.get());
+		Ln.d("Downloading %d bytes in %d segments.", mTotalBytes, segments.size());
+
+		mAborted = false;
+		final RandomAccessFile file = new RandomAccessFile(mTarget, "rw");
+		try {
+			file.setLength(mTotalBytes);
+			final FileChannel channel = file.getChannel();
+			final List<Future<Void>> futures = new ArrayList<>(segments.size());
+
+			synchronized (this) {
+				mOpenChannel = channel;
+				mSegments = segments;
+			}
+			// Early, so the validators are known even if we die right away.
+			saveCheckpoint();
+
+			for (final Segment segment : segments) {
+				futures.add(mExecutor.submit(new SegmentTask(segment, channel)));
+			}
+
+			awaitAll(futures);
+			mChecksum = combineChecksums(segments);
+		} catch (final ResourceChangedException e) {
+			throw e;
+		} catch (final IOException e) {
+			saveCheckpoint();
+			throw e;
+		} finally {
+			synchronized (this) {
+				mOpenChannel = null;
+				mSegments = null;
+			}
+			file.close();
+		}
+	}
+
+	/**
+	 * Writes the current progress to the journal. Positions are captured before syncing the
+	 * file, so the checkpoint never claims bytes that aren't on disk yet.
+	 */
+	private synchronized void saveCheckpoint() {
+		if (mJournal == null || mCheckpoint == null || mSegments == null) {
+			return;
+		}
+
+		try {
+			mCheckpoint.update(mEtag, mLastModified, mTotalBytes, mSegments);
+			if (mOpenChannel.isOpen()) {
+				mOpenChannel.force(false);
+			}
+			mJournal.save(mCheckpoint);
+			mLastCheckpoint = System.currentTimeMillis();
+		} catch (final IOException e) {
+			Ln.w(e, "Failed to save checkpoint for %s.", mTarget);
+		}
+	}
+
+	private void awaitAll(final List<Future<Void>> futures) throws IOException {
+		try {
+			for (final Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (final InterruptedException e) {
+			cancelAll(futures);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for segments.");
+		} catch (final ExecutionException e) {
+			cancelAll(futures);
+			final Throwable cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	private void cancelAll(final List<Future<Void>> futures) {
+		mAborted = true;
+
+		// Not interrupting here, that would close the shared FileChannel under our feet.
+		for (final Future<Void> future : futures) {
+			future.cancel(false);
+		}
+	}
+
+	private void downloadSingle(final HttpURLConnection connection) throws IOException {
+		try {
+			final int code = connection.getResponseCode();
+			if (code != HttpURLConnection.HTTP_OK) {
+				throw new HttpStatusException(code);
+			}
+
+			mTotalBytes = parseLong(connection.getHeaderField(HEADER_CONTENT_LENGTH));
+			checkFreeSpace(mTotalBytes);
+
+			final RandomAccessFile file = new RandomAccessFile(mTarget, "rw");
+			try {
+				file.setLength(0);
+				final Segment segment = new Segment(0, Long.MAX_VALUE - 1);
+				copy(connection.getInputStream(), file.getChannel(), segment);
+
+				if (mTotalBytes >= 0 && segment.getPosition() != mTotalBytes) {
+					throw new EOFException(String.format(Locale.US,
+							"Expected %d bytes, but received %d.", mTotalBytes,
+							segment.getPosition()));
+				}
+				mChecksum = segment.getChecksum();
+			} finally {
+				file.close();
+			}
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Copies the stream into the channel, starting at the current position of the segment and
+	 * stopping at its end or at the end of the stream, whatever comes first.
+	 */
+	private void copy(final InputStream input, final FileChannel channel, final Segment segment)
+			throws IOException {
+		final byte[] buffer = new byte[mBufferSize];
+
+		try {
+			while (!segment.isComplete()) {
+				checkCancelled();
+				final int read = input.read(buffer, 0,
+						(int) Math.min(buffer.length, segment.getRemaining()));
+				if (read == -1) {
+					return;
+				}
+
+				writeFully(channel, ByteBuffer.wrap(buffer, 0, read), segment.getPosition());
+				segment.advance(buffer, read);
+				onBytesTransferred(read);
+
+				if (mRateLimiter != null) {
+					mRateLimiter.acquire(read);
+				}
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	private static void writeFully(final FileChannel channel, final ByteBuffer buffer,
+			long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	private void onBytesTransferred(final int bytes) {
+		final long transferred = mTransferredBytes.addAndGet(bytes);
+		if (mListener != null) {
+			mListener.onProgress(transferred, mTotalBytes);
+		}
+
+		if (mJournal != null && System.currentTimeMillis() - mLastCheckpoint
+				>= Config.DOWNLOAD_CHECKPOINT_INTERVAL_MS) {
+			saveCheckpoint();
+		}
+	}
+
+	private void checkCancelled() throws InterruptedIOException {
+		if (mCancelled || mAborted) {
+			throw new InterruptedIOException("Download was cancelled.");
+		}
+	}
+
+	private void checkFreeSpace(final long required) throws InsufficientSpaceException {
+		final File directory = mTarget.getAbsoluteFile().getParentFile();
+		if (required > 0 && directory != null && directory.getUsableSpace() < required) {
+			throw new InsufficientSpaceException(String.format(Locale.US,
+					"%d bytes required, but only %d available in %s.", required,
+					directory.getUsableSpace(), directory));
+		}
+	}
+
+	private HttpURLConnection openConnection() throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) mConnectionFactory.create(mUrl);
+		// Transparent gzip would make the byte offsets meaningless.
+		connection.setRequestProperty(HEADER_ACCEPT_ENCODING, ENCODING_IDENTITY);
+		return connection;
+	}
+
+	private HttpURLConnection openConnection(final long start, final long end)
+			throws IOException {
+		final HttpURLConnection connection = openConnection();
+		connection.setRequestProperty(HEADER_RANGE,
+				String.format(Locale.US, "bytes=%d-%d", start, end));
+
+		if (mValidator != null) {
+			connection.setRequestProperty(HEADER_IF_RANGE, mValidator);
+		}
+		return connection;
+	}
+
+	/**
+	 * Extracts the complete length from a header like "bytes 0-0/1234".
+	 *
+	 * @return The length or -1 if the header is missing or malformed.
+	 */
+	static long parseTotalLength(final String contentRange) {
+		if (contentRange == null) {
+			return -1;
+		}
+
+		final Matcher matcher = CONTENT_RANGE_PATTERN.matcher(contentRange.trim());
+		if (!matcher.matches()) {
+			return -1;
+		}
+
+		return parseLong(matcher.group(3));
+	}
+
+	private static long parseLong(final String value) {
+		if (value == null) {
+			return -1;
+		}
+
+		try {
+			return Long.parseLong(value.trim());
+		} catch (final NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private class SegmentTask implements Callable<Void> {
+		private final Segment mSegment;
+		private final FileChannel mChannel;
+
+		public SegmentTask(final Segment segment, final FileChannel channel) {
+			mSegment = segment;
+			mChannel = channel;
+		}
+
+		@Override
+		public Void call() throws Exception {
+			int attempt = 0;
+
+			while (true) {
+				try {
+					transfer();
+					return null;
+				} catch (final HttpStatusException e) {
+					if (!e.isRetriable() || ++attempt > mMaxRetries) {
+						throw e;
+					}
+					Ln.w(e, "%s failed, retrying (%d/%d).", mSegment, attempt, mMaxRetries);
+				} catch (final InterruptedIOException | ResourceChangedException e) {
+					throw e;
+				} catch (final IOException e) {
+					if (mCancelled || mAborted || ++attempt > mMaxRetries) {
+						throw e;
+					}
+					Ln.w(e, "%s failed, retrying (%d/%d).", mSegment, attempt, mMaxRetries);
+				}
+
+				Thread.sleep(RETRY_BACKOFF_MS * attempt);
+			}
+		}
+
+		/**
+		 * Fetches whatever is left of the segment. Called again on retries, so a retry continues
+		 * where the previous attempt stopped.
+		 */
+		private void transfer() throws IOException {
+			if (mSegment.isComplete()) {
+				return;
+			}
+
+			final HttpURLConnection connection = openConnection(mSegment.getPosition(),
+					mSegment.getEnd());
+			try {
+				final int code = connection.getResponseCode();
+				if (code == HttpURLConnection.HTTP_OK && mValidator != null) {
+					throw new ResourceChangedException(String.format(
+							"If-Range %s didn't match for %s.", mValidator, mSegment));
+				} else if (code != HttpURLConnection.HTTP_PARTIAL) {
+					throw new HttpStatusException(code);
+				}
+
+				copy(connection.getInputStream(), mChannel, mSegment);
+
+				if (!mSegment.isComplete()) {
+					throw new EOFException(String.format(Locale.US,
+							"Connection closed with %d bytes left in %s.",
+							mSegment.getRemaining(), mSegment));
+				}
+			} finally {
+				connection.disconnect();
+			}
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package net.rdrei.android.scdl2.guice;
+
+import android.content.Context;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import net.rdrei.android.scdl2.Config;
+import net.rdrei.android.scdl2.api.cache.ArtworkCache;
+
+import java.io.File;
+
+public class ArtworkCacheProvider implements Provider<ArtworkCache> {
+	private static final String DIRECTORY = "artwork";
+
+	@Inject
+	private Context mContext;
+
+	@Override
+	public ArtworkCache get() {
+		return new ArtworkCache(new File(mContext.getCacheDir(), DIRECTORY),
+				Config.ARTWORK_MEMORY_CACHE_BYTES, Config.ARTWORK_DISK_CACHE_BYTES);
+	}
+}
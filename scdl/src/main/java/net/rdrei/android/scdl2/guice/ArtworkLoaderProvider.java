@@ -0,0 +1,52 @@
+package net.rdrei.android.scdl2.guice;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import net.rdrei.android.scdl2.Config;
+import net.rdrei.android.scdl2.api.URLConnectionFactory;
+import net.rdrei.android.scdl2.api.cache.ArtworkCache;
+import net.rdrei.android.scdl2.artwork.ArtworkLoader;
+import net.rdrei.android.scdl2.trace.Tracer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bind this as a Singleton, otherwise every loader gets a pool of its own.
+ */
+public class ArtworkLoaderProvider implements Provider<ArtworkLoader> {
+
+	@Inject
+	private ArtworkCache mCache;
+
+	@Inject
+	private URLConnectionFactory mConnectionFactory;
+
+	@Inject
+	private Tracer mTracer;
+
+	@Override
+	public ArtworkLoader get() {
+		final ExecutorService executor = Executors.newFixedThreadPool(Config.ARTWORK_THREADS,
+				new ThreadFactory() {
+					private final AtomicInteger mCount = new AtomicInteger();
+
+					@Override
+					public Thread newThread(final Runnable runnable) {
+						final Thread thread = new Thread(runnable,
+								"scdl-artwork-" + mCount.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+
+		return new ArtworkLoader(mCache, mConnectionFactory, executor,
+				new Handler(Looper.getMainLooper()), mTracer);
+	}
+}
@@ -0,0 +1,16 @@
+package net.rdrei.android.scdl2.guice;
+
+import com.google.inject.Provider;
+
+import net.rdrei.android.scdl2.download.BandwidthLimiter;
+
+public class BandwidthLimiterProvider implements Provider<BandwidthLimiter> {
+
+	/**
+	 * Starts out unlimited, the preferences are applied by whoever holds them.
+	 */
+	@Override
+	public BandwidthLimiter get() {
+		return new BandwidthLimiter(0, 0);
+	}
+}
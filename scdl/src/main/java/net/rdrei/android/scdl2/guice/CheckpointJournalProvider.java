@@ -0,0 +1,20 @@
+package net.rdrei.android.scdl2.guice;
+
+import android.content.Context;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import net.rdrei.android.scdl2.download.CheckpointJournal;
+
+public class CheckpointJournalProvider implements Provider<CheckpointJournal> {
+	private static final String DIRECTORY = "checkpoints";
+
+	@Inject
+	private Context mContext;
+
+	@Override
+	public CheckpointJournal get() {
+		return new CheckpointJournal(mContext.getDir(DIRECTORY, Context.MODE_PRIVATE));
+	}
+}
@@ -0,0 +1,34 @@
+package net.rdrei.android.scdl2.guice;
+
+import com.google.inject.Provider;
+
+import net.rdrei.android.scdl2.Config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool running the segments of all in-process downloads. Bind this as a Singleton,
+ * otherwise the bound is per injection.
+ */
+public class DownloadExecutorProvider implements Provider<ExecutorService> {
+	public static final String NAME = "download_executor";
+
+	@Override
+	public ExecutorService get() {
+		return Executors.newFixedThreadPool(Config.DOWNLOAD_THREADS, new ThreadFactory() {
+			private final AtomicInteger mCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable,
+						"scdl-download-" + mCount.incrementAndGet());
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+	}
+}
@@ -0,0 +1,22 @@
+package net.rdrei.android.scdl2.guice;
+
+import android.content.Context;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import net.rdrei.android.scdl2.download.DownloadRegistry;
+
+import java.io.File;
+
+public class DownloadRegistryProvider implements Provider<DownloadRegistry> {
+	private static final String FILENAME = "download_registry.json";
+
+	@Inject
+	private Context mContext;
+
+	@Override
+	public DownloadRegistry get() {
+		return new DownloadRegistry(new File(mContext.getFilesDir(), FILENAME));
+	}
+}
@@ -0,0 +1,28 @@
+package net.rdrei.android.scdl2.guice;
+
+import android.content.Context;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import net.rdrei.android.scdl2.Config;
+import net.rdrei.android.scdl2.download.DownloadScheduler;
+
+import java.io.File;
+
+public class DownloadSchedulerProvider implements Provider<DownloadScheduler> {
+	private static final String FILENAME = "download_queue.json";
+
+	@Inject
+	private Context mContext;
+
+	@Override
+	public DownloadScheduler get() {
+		final DownloadScheduler scheduler = new DownloadScheduler(
+				new File(mContext.getFilesDir(), FILENAME));
+
+		// Segmented downloads die with our process, DownloadManager ones report back later.
+		scheduler.load(Config.Features.SEGMENTED_DOWNLOADS);
+		return scheduler;
+	}
+}
@@ -0,0 +1,27 @@
+package net.rdrei.android.scdl2.guice;
+
+import com.google.inject.Provider;
+
+import net.rdrei.android.scdl2.Config;
+import net.rdrei.android.scdl2.api.cache.DownloadUriCache;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Bind this as a Singleton, the fragment has to find what the loader prefetched.
+ */
+public class DownloadUriCacheProvider implements Provider<DownloadUriCache> {
+	@Override
+	public DownloadUriCache get() {
+		// Only one track is shown at a time, so one thread is plenty.
+		return new DownloadUriCache(Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "scdl-prefetch");
+				thread.setDaemon(true);
+				return thread;
+			}
+		}), Config.DOWNLOAD_URI_TTL_MS, Config.DOWNLOAD_URI_EXPIRY_MARGIN_MS);
+	}
+}
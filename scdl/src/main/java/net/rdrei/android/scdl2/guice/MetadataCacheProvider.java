@@ -0,0 +1,24 @@
+package net.rdrei.android.scdl2.guice;
+
+import android.content.Context;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import net.rdrei.android.scdl2.Config;
+import net.rdrei.android.scdl2.api.cache.MetadataCache;
+
+import java.io.File;
+
+public class MetadataCacheProvider implements Provider<MetadataCache> {
+	private static final String DIRECTORY = "metadata";
+
+	@Inject
+	private Context mContext;
+
+	@Override
+	public MetadataCache get() {
+		return new MetadataCache(new File(mContext.getCacheDir(), DIRECTORY),
+				Config.METADATA_CACHE_MEMORY_ENTRIES, Config.METADATA_CACHE_DISK_ENTRIES);
+	}
+}
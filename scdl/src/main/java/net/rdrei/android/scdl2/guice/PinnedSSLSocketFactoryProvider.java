@@ -0,0 +1,41 @@
+package net.rdrei.android.scdl2.guice;
+
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+
+import org.thoughtcrime.ssl.pinning.PinningTrustManager;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+/**
+ * Builds the socket factory pinned to the SoundCloud API certificate. Meant to be bound as
+ * singleton: the system trust store is only loaded once and all API connections share the
+ * session cache of one SSLContext, so TLS sessions get resumed instead of renegotiated.
+ */
+public class PinnedSSLSocketFactoryProvider implements Provider<SSLSocketFactory> {
+	private static final String PROTOCOL = "TLS";
+
+	@Inject
+	private PinningTrustManager mTrustManager;
+
+	@Override
+	public SSLSocketFactory get() {
+		final SSLContext sslContext;
+
+		try {
+			sslContext = SSLContext.getInstance(PROTOCOL);
+			sslContext.init(null, new TrustManager[] { mTrustManager }, null);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalArgumentException(e);
+		} catch (final KeyManagementException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return sslContext.getSocketFactory();
+	}
+}
@@ -0,0 +1,42 @@
+package net.rdrei.android.scdl2.guice;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.squareup.otto.Bus;
+
+import net.rdrei.android.scdl2.Config;
+import net.rdrei.android.scdl2.download.ProgressPublisher;
+import net.rdrei.android.scdl2.ui.DownloadProgressNotification;
+
+public class ProgressPublisherProvider implements Provider<ProgressPublisher> {
+
+	@Inject
+	private Context mContext;
+
+	@Inject
+	private Bus mBus;
+
+	/**
+	 * The notification lives as long as the publisher. Downloads may ask for the publisher
+	 * from a background thread, so it subscribes on the main thread the Bus insists on.
+	 */
+	@Override
+	public ProgressPublisher get() {
+		final Handler handler = new Handler(Looper.getMainLooper());
+		final DownloadProgressNotification notification =
+				new DownloadProgressNotification(mContext);
+
+		handler.post(new Runnable() {
+			@Override
+			public void run() {
+				mBus.register(notification);
+			}
+		});
+
+		return new ProgressPublisher(mBus, handler, 1000 / Config.PROGRESS_FRAMES_PER_SECOND);
+	}
+}
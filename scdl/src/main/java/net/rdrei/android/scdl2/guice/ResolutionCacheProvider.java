@@ -0,0 +1,26 @@
+package net.rdrei.android.scdl2.guice;
+
+import android.content.Context;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import net.rdrei.android.scdl2.Config;
+import net.rdrei.android.scdl2.api.cache.MetadataCache;
+import net.rdrei.android.scdl2.api.cache.ResolutionCache;
+
+import java.io.File;
+
+public class ResolutionCacheProvider implements Provider<ResolutionCache> {
+	private static final String DIRECTORY = "resolutions";
+
+	@Inject
+	private Context mContext;
+
+	@Override
+	public ResolutionCache get() {
+		final MetadataCache cache = new MetadataCache(new File(mContext.getCacheDir(), DIRECTORY),
+				Config.RESOLVE_CACHE_MEMORY_ENTRIES, Config.RESOLVE_CACHE_DISK_ENTRIES);
+		return new ResolutionCache(cache, Config.RESOLVE_CACHE_TTL_MS);
+	}
+}
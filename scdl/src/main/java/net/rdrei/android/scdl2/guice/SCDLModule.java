@@ -9,11 +9,14 @@ import com.google.android.gms.analytics.Tracker;
 import com.google.inject.AbstractModule;
 import com.google.inject.Singleton;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
+import com.google.inject.name.Names;
 import com.squareup.otto.Bus;
 
+import net.rdrei.android.scdl2.Config;
 import net.rdrei.android.scdl2.PreferenceManagerWrapper;
 import net.rdrei.android.scdl2.PreferenceManagerWrapperFactory;
 import net.rdrei.android.scdl2.PreferenceManagerWrapperImpl;
+import net.rdrei.android.scdl2.SegmentedTrackDownloaderImpl;
 import net.rdrei.android.scdl2.TrackDownloader;
 import net.rdrei.android.scdl2.TrackDownloaderFactory;
 import net.rdrei.android.scdl2.TrackDownloaderImpl;
@@ -22,18 +25,37 @@ import net.rdrei.android.scdl2.api.URLConnectionFactoryImpl;
 import net.rdrei.android.scdl2.api.URLWrapper;
 import net.rdrei.android.scdl2.api.URLWrapperFactory;
 import net.rdrei.android.scdl2.api.URLWrapperImpl;
+import net.rdrei.android.scdl2.api.cache.ArtworkCache;
+import net.rdrei.android.scdl2.api.cache.DownloadUriCache;
+import net.rdrei.android.scdl2.api.cache.MetadataCache;
+import net.rdrei.android.scdl2.api.cache.ResolutionCache;
+import net.rdrei.android.scdl2.artwork.ArtworkLoader;
+import net.rdrei.android.scdl2.download.BandwidthLimiter;
+import net.rdrei.android.scdl2.download.CheckpointJournal;
+import net.rdrei.android.scdl2.download.DownloadRegistry;
+import net.rdrei.android.scdl2.download.DownloadScheduler;
+import net.rdrei.android.scdl2.download.PlaylistDownloadPipelineFactory;
+import net.rdrei.android.scdl2.download.ProgressPublisher;
+import net.rdrei.android.scdl2.trace.Tracer;
 import net.rdrei.android.scdl2.ui.DownloadPreferencesDelegate;
 import net.rdrei.android.scdl2.ui.DownloadPreferencesDelegateFactory;
 import net.rdrei.android.scdl2.ui.DownloadPreferencesDelegateImpl;
 
 import org.thoughtcrime.ssl.pinning.PinningTrustManager;
 
+import java.util.concurrent.ExecutorService;
+
+import javax.net.ssl.SSLSocketFactory;
+
 public class SCDLModule extends AbstractModule {
 
 	@Override
 	protected void configure() {
 		bind(URLConnectionFactory.class).to(URLConnectionFactoryImpl.class);
 		bind(PinningTrustManager.class).toProvider(PinningTrustManagerProvider.class);
+		// One pinned socket factory for all API requests, so TLS sessions are reused.
+		bind(SSLSocketFactory.class).toProvider(PinnedSSLSocketFactoryProvider.class)
+				.in(Singleton.class);
 		bind(DownloadManager.class).toProvider(DownloadManagerProvider.class);
 		bind(ActionBar.class).toProvider(ActionBarProvider.class);
 		bind(IabHelper.class).toProvider(IabHelperProvider.class);
@@ -44,12 +66,39 @@ public class SCDLModule extends AbstractModule {
 		bind(Bus.class).toProvider(BusProvider.class).in(Singleton.class);
 		// This must be a Singleton. Google advices to handle the creation in the Application.
 		bind(Tracker.class).toProvider(TrackerProvider.class).in(Singleton.class);
+		// The pool bounds the number of connections across all in-process downloads.
+		bind(ExecutorService.class).annotatedWith(Names.named(DownloadExecutorProvider.NAME))
+				.toProvider(DownloadExecutorProvider.class).in(Singleton.class);
+		bind(ExecutorService.class).annotatedWith(Names.named(TransferExecutorProvider.NAME))
+				.toProvider(TransferExecutorProvider.class).in(Singleton.class);
+		bind(ExecutorService.class).annotatedWith(Names.named(TagExecutorProvider.NAME))
+				.toProvider(TagExecutorProvider.class).in(Singleton.class);
+		bind(CheckpointJournal.class).toProvider(CheckpointJournalProvider.class)
+				.in(Singleton.class);
+		bind(BandwidthLimiter.class).toProvider(BandwidthLimiterProvider.class)
+				.in(Singleton.class);
+		bind(ProgressPublisher.class).toProvider(ProgressPublisherProvider.class)
+				.in(Singleton.class);
+		bind(DownloadRegistry.class).toProvider(DownloadRegistryProvider.class)
+				.in(Singleton.class);
+		bind(DownloadScheduler.class).toProvider(DownloadSchedulerProvider.class)
+				.in(Singleton.class);
+		bind(MetadataCache.class).toProvider(MetadataCacheProvider.class).in(Singleton.class);
+		bind(ResolutionCache.class).toProvider(ResolutionCacheProvider.class)
+				.in(Singleton.class);
+		bind(DownloadUriCache.class).toProvider(DownloadUriCacheProvider.class)
+				.in(Singleton.class);
+		bind(ArtworkCache.class).toProvider(ArtworkCacheProvider.class).in(Singleton.class);
+		bind(ArtworkLoader.class).toProvider(ArtworkLoaderProvider.class).in(Singleton.class);
+		bind(Tracer.class).toProvider(TracerProvider.class).in(Singleton.class);
 
 		install(new FactoryModuleBuilder().implement(URLWrapper.class, URLWrapperImpl.class)
 				.build(URLWrapperFactory.class));
 
 		install(new FactoryModuleBuilder().implement(TrackDownloader.class,
-				TrackDownloaderImpl.class).build(TrackDownloaderFactory.class));
+				getTrackDownloaderClass()).build(TrackDownloaderFactory.class));
+
+		install(new FactoryModuleBuilder().build(PlaylistDownloadPipelineFactory.class));
 
 		install(new FactoryModuleBuilder().implement(DownloadPreferencesDelegate.class,
 				DownloadPreferencesDelegateImpl.class)
@@ -58,4 +107,15 @@ public class SCDLModule extends AbstractModule {
 		install(new FactoryModuleBuilder().implement(PreferenceManagerWrapper.class,
 				PreferenceManagerWrapperImpl.class).build(PreferenceManagerWrapperFactory.class));
 	}
+
+	/**
+	 * The system DownloadManager stays the default until the segmented engine is switched on.
+	 */
+	private static Class<? extends TrackDownloader> getTrackDownloaderClass() {
+		if (Config.Features.SEGMENTED_DOWNLOADS) {
+			return SegmentedTrackDownloaderImpl.class;
+		}
+
+		return TrackDownloaderImpl.class;
+	}
 }
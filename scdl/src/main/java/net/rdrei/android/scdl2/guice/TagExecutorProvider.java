@@ -0,0 +1,34 @@
+package net.rdrei.android.scdl2.guice;
+
+import com.google.inject.Provider;
+
+import net.rdrei.android.scdl2.Config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool writing tags into finished downloads, separate from the download pool so tagging never
+ * holds up a transfer. Bind this as a Singleton.
+ */
+public class TagExecutorProvider implements Provider<ExecutorService> {
+	public static final String NAME = "tag_executor";
+
+	@Override
+	public ExecutorService get() {
+		return Executors.newFixedThreadPool(Config.TAG_THREADS, new ThreadFactory() {
+			private final AtomicInteger mCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable,
+						"scdl-tag-" + mCount.incrementAndGet());
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+	}
+}
@@ -0,0 +1,19 @@
+package net.rdrei.android.scdl2.guice;
+
+import android.os.Build;
+
+import com.google.inject.Provider;
+
+import net.rdrei.android.scdl2.Config;
+import net.rdrei.android.scdl2.trace.Tracer;
+
+/**
+ * Bind this as a Singleton, spans of all stages have to end up in the same buffer.
+ */
+public class TracerProvider implements Provider<Tracer> {
+	@Override
+	public Tracer get() {
+		return new Tracer(Config.TRACE_BUFFER_SIZE, Config.Features.TRACING,
+				Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2);
+	}
+}
@@ -0,0 +1,35 @@
+package net.rdrei.android.scdl2.guice;
+
+import com.google.inject.Provider;
+
+import net.rdrei.android.scdl2.Config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool running whole in-process downloads, which wait for their segments on the
+ * {@link DownloadExecutorProvider download pool}. It has to be a pool of its own, a download
+ * waiting on its segments in the same bounded pool could starve them. Bind this as a Singleton.
+ */
+public class TransferExecutorProvider implements Provider<ExecutorService> {
+	public static final String NAME = "transfer_executor";
+
+	@Override
+	public ExecutorService get() {
+		return Executors.newFixedThreadPool(Config.DOWNLOAD_TRANSFERS, new ThreadFactory() {
+			private final AtomicInteger mCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable,
+						"scdl-transfer-" + mCount.incrementAndGet());
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+	}
+}
@@ -2,15 +2,25 @@ package net.rdrei.android.scdl2.receiver;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import net.rdrei.android.scdl2.ApplicationPreferences;
 import net.rdrei.android.scdl2.Config;
 import net.rdrei.android.scdl2.IOUtil;
 import net.rdrei.android.scdl2.R;
+import net.rdrei.android.scdl2.download.Adler32Digest;
+import net.rdrei.android.scdl2.download.DownloadRegistry;
+import net.rdrei.android.scdl2.download.DownloadVerifier;
 import net.rdrei.android.scdl2.guice.TrackerProvider;
+import net.rdrei.android.scdl2.service.DownloadSchedulerService;
 import net.rdrei.android.scdl2.service.MediaScannerService;
+import net.rdrei.android.scdl2.service.TaggingService;
 import net.rdrei.android.scdl2.ui.DownloadPreferencesActivity;
 import roboguice.receiver.RoboBroadcastReceiver;
 import roboguice.util.Ln;
@@ -29,13 +39,30 @@ import com.google.android.gms.analytics.StandardExceptionParser;
 import com.google.inject.Inject;
 
 /**
- * Broadcast receiver reacting on download finished events.
+ * Broadcast receiver reacting on download finished events of the system DownloadManager.
+ * It's exported to receive them, so it doesn't trust anything but the download id and asks
+ * the DownloadManager for the rest. Downloads of our own engines are reported to the
+ * {@link DownloadFinishedReceiver} instead.
  *
  * @author pascal
  *
  */
 public class DownloadCompleteReceiver extends RoboBroadcastReceiver {
 
+	/**
+	 * Sent explicitly to the {@link DownloadFinishedReceiver} by in-process download engines,
+	 * which don't get the system's DOWNLOAD_COMPLETE broadcast. The outcome is passed along as
+	 * extras.
+	 */
+	public static final String ACTION_DOWNLOAD_FINISHED = "net.rdrei.android.scdl2.DOWNLOAD_FINISHED";
+	public static final String EXTRA_TITLE = "title";
+	public static final String EXTRA_PATH = "path";
+	public static final String EXTRA_STATUS = "status";
+	public static final String EXTRA_REASON = "reason";
+	public static final String EXTRA_RESUMABLE = "resumable";
+	public static final String EXTRA_CHECKSUM = "checksum";
+	public static final String EXTRA_TRACK_ID = "track_id";
+
 	private static final int HTTP_ERROR_FORBIDDEN = 403;
 	private static final String ANALYTICS_TAG = "DOWNLOAD_COMPLETED_RECEIVER";
 	@Inject
@@ -44,16 +71,35 @@ public class DownloadCompleteReceiver extends RoboBroadcastReceiver {
 	private NotificationManager mNotificationManager;
 	@Inject
 	private TrackerProvider mTrackerProvider;
+	@Inject
+	private DownloadRegistry mRegistry;
+	@Inject
+	private DownloadVerifier mVerifier;
 
 	@Override
 	public void handleReceive(final Context context, final Intent intent) {
+		if (!DownloadManager.ACTION_DOWNLOAD_COMPLETE.equals(intent.getAction())) {
+			return;
+		}
+
 		final long downloadId = intent.getLongExtra(
 				DownloadManager.EXTRA_DOWNLOAD_ID, 0);
-		final ResolveDownloadTask task = new ResolveDownloadTask(context,
-				downloadId);
+		if (!mRegistry.contains(downloadId)) {
+			// Somebody else's download, no need to ask the DownloadManager.
+			return;
+		}
+
+		final ResolveDownloadTask task = new ResolveDownloadTask(context);
 		task.execute();
 	}
 
+	/**
+	 * Runs the usual post-processing for a download one of our own engines carried out.
+	 */
+	protected void handleFinishedDownload(final Context context, final Download download) {
+		new FinishedDownloadTask(context, download).execute();
+	}
+
 	/**
 	 * @param context
 	 * @param title
@@ -89,10 +135,15 @@ public class DownloadCompleteReceiver extends RoboBroadcastReceiver {
 	 *            Activity context.
 	 * @param reason
 	 *            The error code provided by {@link DownloadManager}
+	 * @param resumable
+	 *            Whether starting the download again continues where it stopped.
 	 */
 	private void showErrorNotification(final Context context, final int reason,
-			final String title) {
-		final String errorMessage = getDownloadErrorMessage(context, reason);
+			final String title, final boolean resumable) {
+		String errorMessage = getDownloadErrorMessage(context, reason);
+		if (resumable) {
+			errorMessage = context.getString(R.string.error_download_resumable, errorMessage);
+		}
 		final Intent preferencesIntent = new Intent(context,
 				DownloadPreferencesActivity.class);
 		preferencesIntent.putExtra(
@@ -157,6 +208,9 @@ public class DownloadCompleteReceiver extends RoboBroadcastReceiver {
 		private String mPath;
 		private int mStatus;
 		private int mReason;
+		private boolean mResumable;
+		private long mChecksum = -1;
+		private long mTrackId;
 
 		public String getTitle() {
 			return mTitle;
@@ -196,6 +250,53 @@ public class DownloadCompleteReceiver extends RoboBroadcastReceiver {
 			mReason = reason;
 		}
 
+		public boolean isResumable() {
+			return mResumable;
+		}
+
+		public void setResumable(final boolean resumable) {
+			mResumable = resumable;
+		}
+
+		/**
+		 * @return Adler-32 of the file calculated while downloading or -1 if there is none.
+		 */
+		public long getChecksum() {
+			return mChecksum;
+		}
+
+		public void setChecksum(final long checksum) {
+			mChecksum = checksum;
+		}
+
+		/**
+		 * @return Id of the downloaded track or 0 if it's not known.
+		 */
+		public long getTrackId() {
+			return mTrackId;
+		}
+
+		public void setTrackId(final long trackId) {
+			mTrackId = trackId;
+		}
+
+		/**
+		 * Reads a download from the extras of an {@link #ACTION_DOWNLOAD_FINISHED} intent.
+		 */
+		public static Download fromIntent(final Intent intent) {
+			final Download download = new Download();
+			download.setTitle(intent.getStringExtra(EXTRA_TITLE));
+			download.setPath(intent.getStringExtra(EXTRA_PATH));
+			download.setStatus(intent.getIntExtra(EXTRA_STATUS,
+					DownloadManager.STATUS_FAILED));
+			download.setReason(intent.getIntExtra(EXTRA_REASON, 0));
+			download.setResumable(intent.getBooleanExtra(EXTRA_RESUMABLE, false));
+			download.setChecksum(intent.getLongExtra(EXTRA_CHECKSUM, -1));
+			download.setTrackId(intent.getLongExtra(EXTRA_TRACK_ID, 0));
+
+			return download;
+		}
+
 		/**
 		 * Returns the normalized path to the downloaded file, i.e. without
 		 * leading protocol specifier.
@@ -218,79 +319,144 @@ public class DownloadCompleteReceiver extends RoboBroadcastReceiver {
 		}
 	}
 
-	private class ResolveDownloadTask extends RoboAsyncTask<Download> {
-		private final long mDownloadId;
+	/**
+	 * Handles a download that was carried out by one of our own engines.
+	 */
+	private class FinishedDownloadTask extends DownloadTask {
+		private final Download mDownload;
 
-		public ResolveDownloadTask(final Context context, final long downloadId) {
+		public FinishedDownloadTask(final Context context, final Download download) {
 			super(context);
 
-			mDownloadId = downloadId;
+			mDownload = download;
 		}
 
 		@Override
-		public Download call() throws Exception {
-			final Query query = new DownloadManager.Query();
-			query.setFilterById(mDownloadId);
-			final Cursor cursor = mDownloadManager.query(query);
+		public List<Download> call() throws Exception {
+			return Collections.singletonList(mDownload);
+		}
+	}
 
-			try {
-				if (!cursor.moveToFirst()) {
-					// Download could not be found.
-					Ln.d("Could not find download with id %d.", mDownloadId);
-					return null;
-				}
+	/**
+	 * Looks up all of our downloads the system DownloadManager has finished with a single
+	 * query, which also picks up completions we missed while we weren't around. Successful
+	 * downloads are checked against the size we expected before they're reported as such.
+	 */
+	private class ResolveDownloadTask extends DownloadTask {
 
-				final int descriptionIndex = cursor
-						.getColumnIndex(DownloadManager.COLUMN_DESCRIPTION);
+		public ResolveDownloadTask(final Context context) {
+			super(context);
+		}
 
-				if (!cursor.getString(descriptionIndex).equals(
-						context.getString(R.string.download_description))) {
-					// Download doesn't belong to us. Weird way to check, but
-					// way, way easier than keeping track of the IDs.
-					Ln.d("Description did not match SCDL default description.");
-					return null;
-				}
+		@Override
+		public List<Download> call() throws Exception {
+			final List<Download> downloads = new ArrayList<>();
+
+			mRegistry.prune(Config.DOWNLOAD_REGISTRY_MAX_AGE_MS);
+			final long[] ids = mRegistry.getDownloadIds();
+			if (ids.length == 0) {
+				return downloads;
+			}
+
+			final Query query = new DownloadManager.Query();
+			query.setFilterById(ids);
+			query.setFilterByStatus(DownloadManager.STATUS_SUCCESSFUL
+					| DownloadManager.STATUS_FAILED);
+			final Cursor cursor = mDownloadManager.query(query);
 
+			try {
+				final int idIndex = cursor.getColumnIndex(DownloadManager.COLUMN_ID);
 				final int titleIndex = cursor
 						.getColumnIndex(DownloadManager.COLUMN_TITLE);
-				final String title = cursor.getString(titleIndex);
-
 				final int statusIndex = cursor
 						.getColumnIndex(DownloadManager.COLUMN_STATUS);
-				final int status = cursor.getInt(statusIndex);
-
 				final int localUriIndex = cursor
 						.getColumnIndex(DownloadManager.COLUMN_LOCAL_URI);
-				final String downloadUri = cursor.getString(localUriIndex);
-
 				final int reasonIndex = cursor
 						.getColumnIndex(DownloadManager.COLUMN_REASON);
-				final int reason = cursor.getInt(reasonIndex);
-
-				final Download download = new Download();
-				download.setTitle(title);
-				download.setStatus(status);
-				download.setPath(downloadUri);
-				download.setReason(reason);
-
-				return download;
+				final int uriIndex = cursor.getColumnIndex(DownloadManager.COLUMN_URI);
+
+				while (cursor.moveToNext()) {
+					// Another broadcast may have beaten us to it.
+					final DownloadRegistry.Entry entry = mRegistry.take(cursor.getLong(idIndex));
+					if (entry == null) {
+						continue;
+					}
+
+					// Failed downloads may not have a local URI, but we know where it would be.
+					final String downloadUri = cursor.getString(localUriIndex);
+
+					final Download download = new Download();
+					download.setTitle(cursor.getString(titleIndex));
+					download.setStatus(cursor.getInt(statusIndex));
+					download.setPath(downloadUri != null ? downloadUri : entry.getPath());
+					download.setReason(cursor.getInt(reasonIndex));
+					download.setTrackId(entry.getTrackId());
+
+					if (download.getStatus() == DownloadManager.STATUS_SUCCESSFUL) {
+						verify(download, cursor.getString(uriIndex), entry.getExpectedSize());
+					}
+					downloads.add(download);
+				}
 			} finally {
 				cursor.close();
 			}
+
+			Ln.d("Found %d finished downloads of %d.", downloads.size(), ids.length);
+			return downloads;
+		}
+
+		/**
+		 * Turns the download into a failed one if the file is incomplete and couldn't be
+		 * repaired.
+		 *
+		 * @param uri URI the DownloadManager downloaded from.
+		 */
+		private void verify(final Download download, final String uri, final long expectedSize) {
+			final File file = new File(download.getNormalizedPath());
+			boolean complete;
+
+			try {
+				complete = mVerifier.check(new URL(uri), file, expectedSize);
+			} catch (final MalformedURLException e) {
+				complete = mVerifier.verify(file, expectedSize);
+			}
+
+			if (!complete) {
+				download.setStatus(DownloadManager.STATUS_FAILED);
+				download.setReason(DownloadManager.ERROR_FILE_ERROR);
+			}
+		}
+	}
+
+	/**
+	 * Post-processing shared by all downloads, regardless of who carried them out.
+	 */
+	private abstract class DownloadTask extends RoboAsyncTask<List<Download>> {
+
+		protected DownloadTask(final Context context) {
+			super(context);
 		}
 
 		@Override
-		protected void onSuccess(final Download t) throws Exception {
-			super.onSuccess(t);
+		protected void onSuccess(final List<Download> downloads) throws Exception {
+			super.onSuccess(downloads);
 
-			if (t == null) {
+			if (downloads == null) {
 				mTrackerProvider.get().send(new HitBuilders.ExceptionBuilder()
 						.setFatal(false)
 						.setDescription("Null-pointer in DownloadCompleteReceiver.onSuccess()")
 						.build()
 				);
+				return;
 			}
 
+			for (final Download download : downloads) {
+				onDownloadFinished(download);
+			}
+		}
+
+		private void onDownloadFinished(final Download t) {
 			if (t.getStatus() == DownloadManager.STATUS_FAILED) {
 				Ln.e("Download of '%s' failed with reason %d", t.getTitle(), t.getReason());
 				mTrackerProvider.get().send(new HitBuilders.ExceptionBuilder().setFatal(false)
@@ -298,7 +464,8 @@ public class DownloadCompleteReceiver extends RoboBroadcastReceiver {
 								.set("CODE", String.valueOf(t.getReason()))
 								.build()
 				);
-				showErrorNotification(context, t.getReason(), t.getTitle());
+				showErrorNotification(context, t.getReason(), t.getTitle(), t.isResumable());
+				notifyScheduler(t, false);
 				return;
 			}
 
@@ -307,13 +474,30 @@ public class DownloadCompleteReceiver extends RoboBroadcastReceiver {
 				moveFileToLocal(t);
 			}
 
-			final Intent scanIntent = new Intent(context,
-					MediaScannerService.class);
-			scanIntent.putExtra(MediaScannerService.EXTRA_PATH,
-					t.getNormalizedPath());
-			context.startService(scanIntent);
+			if (Config.Features.WRITE_TAGS && t.getTrackId() > 0) {
+				// Scanned once the tags are written.
+				TaggingService.tag(context, t.getTrackId(), t.getNormalizedPath());
+			} else {
+				final Intent scanIntent = new Intent(context,
+						MediaScannerService.class);
+				scanIntent.putExtra(MediaScannerService.EXTRA_PATH,
+						t.getNormalizedPath());
+				context.startService(scanIntent);
+			}
 
 			showSuccessNotification(context, t.getTitle());
+			notifyScheduler(t, true);
+		}
+
+		/**
+		 * Frees the download's slot in the scheduler. Downloads without a path can't be matched
+		 * to their job, the scheduler releases those after a timeout.
+		 */
+		private void notifyScheduler(final Download download, final boolean successful) {
+			if (Config.Features.DOWNLOAD_SCHEDULER && download.getPath() != null) {
+				DownloadSchedulerService.notifyFinished(context, download.getNormalizedPath(),
+						successful, download.isResumable());
+			}
 		}
 
 		protected boolean shouldMoveFileToLocal(final Download download) {
@@ -322,7 +506,8 @@ public class DownloadCompleteReceiver extends RoboBroadcastReceiver {
 
 		/**
 		 * Moves a download to a local location and removes the temporary path
-		 * suffix.
+		 * suffix. Usually a rename, only a download on another filesystem is copied
+		 * and verified against the checksum calculated while downloading.
 		 *
 		 * @param download
 		 */
@@ -338,8 +523,13 @@ public class DownloadCompleteReceiver extends RoboBroadcastReceiver {
 					filename.length() - Config.TMP_DOWNLOAD_POSTFIX.length());
 
 			final File newPath = new File(newDir, newFileName);
+			final IOUtil.Transfer transfer = new IOUtil.Transfer(path, newPath);
+			if (download.getChecksum() >= 0) {
+				transfer.setChecksum(new Adler32Digest(), download.getChecksum());
+			}
+
 			try {
-				IOUtil.copyFile(path, newPath);
+				transfer.move();
 			} catch (final IOException err) {
 				Ln.w(err, "Failed to rename download.");
 
@@ -355,7 +545,6 @@ public class DownloadCompleteReceiver extends RoboBroadcastReceiver {
 			}
 
 			Ln.d("Download moved to %s", newPath.toString());
-			path.delete();
 			download.setPath(newPath.getAbsolutePath());
 		}
 	}
@@ -0,0 +1,18 @@
+package net.rdrei.android.scdl2.receiver;
+
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Receives the outcome of downloads carried out by our own engines. Unlike the
+ * {@link DownloadCompleteReceiver}, it takes path and status from the extras, so it must not be
+ * exported: other apps could otherwise have us move, tag and scan files of their choosing.
+ */
+public class DownloadFinishedReceiver extends DownloadCompleteReceiver {
+	@Override
+	public void handleReceive(final Context context, final Intent intent) {
+		if (ACTION_DOWNLOAD_FINISHED.equals(intent.getAction())) {
+			handleFinishedDownload(context, Download.fromIntent(intent));
+		}
+	}
+}
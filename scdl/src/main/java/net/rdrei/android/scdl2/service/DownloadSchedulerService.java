@@ -0,0 +1,197 @@
+package net.rdrei.android.scdl2.service;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+
+import com.google.inject.Inject;
+
+import net.rdrei.android.scdl2.TrackDownloader;
+import net.rdrei.android.scdl2.TrackDownloaderFactory;
+import net.rdrei.android.scdl2.api.APIException;
+import net.rdrei.android.scdl2.api.ServiceManager;
+import net.rdrei.android.scdl2.api.entity.TrackEntity;
+import net.rdrei.android.scdl2.download.DownloadJob;
+import net.rdrei.android.scdl2.download.DownloadScheduler;
+import net.rdrei.android.scdl2.download.NetworkState;
+
+import roboguice.service.RoboService;
+import roboguice.util.Ln;
+import roboguice.util.SafeAsyncTask;
+
+/**
+ * Runs the {@link DownloadScheduler}: adds downloads to its queue, starts the jobs it picks and
+ * keeps it up to date about connectivity. Stops itself once nothing is queued anymore, running
+ * downloads report back through {@link #notifyFinished(Context, String, boolean, boolean)}.
+ */
+public class DownloadSchedulerService extends RoboService implements DownloadScheduler.Starter {
+	public static final String ACTION_ENQUEUE = "net.rdrei.android.scdl2.action.ENQUEUE_DOWNLOAD";
+	public static final String ACTION_FINISHED =
+			"net.rdrei.android.scdl2.action.SCHEDULED_DOWNLOAD_FINISHED";
+
+	public static final String EXTRA_TRACK = "track";
+	public static final String EXTRA_URI = "uri";
+	public static final String EXTRA_PRIORITY = "priority";
+	public static final String EXTRA_PATH = "path";
+	public static final String EXTRA_SUCCESSFUL = "successful";
+	public static final String EXTRA_RESUMABLE = "resumable";
+
+	@Inject
+	private DownloadScheduler mScheduler;
+
+	@Inject
+	private ServiceManager mServiceManager;
+
+	@Inject
+	private TrackDownloaderFactory mDownloaderFactory;
+
+	private ConnectivityManager mConnectivityManager;
+
+	private final BroadcastReceiver mConnectivityReceiver = new BroadcastReceiver() {
+		@Override
+		public void onReceive(final Context context, final Intent intent) {
+			updateNetworkState();
+		}
+	};
+
+	/**
+	 * Queues the track for download.
+	 *
+	 * @param uri Already resolved download URL or null to resolve it when it's the track's turn.
+	 */
+	public static void enqueue(final Context context, final TrackEntity track, final Uri uri,
+			final DownloadJob.Priority priority) {
+		final Intent intent = new Intent(context, DownloadSchedulerService.class);
+		intent.setAction(ACTION_ENQUEUE);
+		intent.putExtra(EXTRA_TRACK, track);
+		intent.putExtra(EXTRA_URI, uri);
+		intent.putExtra(EXTRA_PRIORITY, priority.name());
+		context.startService(intent);
+	}
+
+	/**
+	 * Tells the scheduler that the download to path is over, so the next one can start.
+	 */
+	public static void notifyFinished(final Context context, final String path,
+			final boolean successful, final boolean resumable) {
+		final Intent intent = new Intent(context, DownloadSchedulerService.class);
+		intent.setAction(ACTION_FINISHED);
+		intent.putExtra(EXTRA_PATH, path);
+		intent.putExtra(EXTRA_SUCCESSFUL, successful);
+		intent.putExtra(EXTRA_RESUMABLE, resumable);
+		context.startService(intent);
+	}
+
+	@Override
+	public void onCreate() {
+		super.onCreate();
+
+		mConnectivityManager = (ConnectivityManager) getSystemService(CONNECTIVITY_SERVICE);
+		registerReceiver(mConnectivityReceiver,
+				new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+
+		updateNetworkState();
+		mScheduler.setStarter(this);
+	}
+
+	@Override
+	public IBinder onBind(final Intent intent) {
+		return null;
+	}
+
+	@Override
+	public int onStartCommand(final Intent intent, final int flags, final int startId) {
+		super.onStartCommand(intent, flags, startId);
+
+		if (intent != null && ACTION_ENQUEUE.equals(intent.getAction())) {
+			final TrackEntity track = intent.getParcelableExtra(EXTRA_TRACK);
+			final Uri uri = intent.getParcelableExtra(EXTRA_URI);
+			final DownloadJob.Priority priority = DownloadJob.Priority.valueOf(
+					intent.getStringExtra(EXTRA_PRIORITY));
+
+			mScheduler.enqueue(new DownloadJob(track, uri, priority));
+		} else if (intent != null && ACTION_FINISHED.equals(intent.getAction())) {
+			mScheduler.onFinished(intent.getStringExtra(EXTRA_PATH),
+					intent.getBooleanExtra(EXTRA_SUCCESSFUL, false),
+					intent.getBooleanExtra(EXTRA_RESUMABLE, false));
+		}
+
+		// Without a queue there's nothing to wait for. If we're killed with jobs left, we're
+		// restarted and pick them up from disk.
+		if (!mScheduler.hasQueuedJobs()) {
+			stopSelf();
+		}
+
+		return START_STICKY;
+	}
+
+	@Override
+	public void onDestroy() {
+		mScheduler.setStarter(null);
+		unregisterReceiver(mConnectivityReceiver);
+		super.onDestroy();
+	}
+
+	@Override
+	public void start(final DownloadJob job) {
+		new StartJobTask(job).execute();
+	}
+
+	private void updateNetworkState() {
+		mScheduler.setNetworkState(NetworkState.fromConnectivityManager(mConnectivityManager));
+	}
+
+	/**
+	 * Resolves the download URL if necessary and hands the job to a {@link TrackDownloader}.
+	 * Errors of the downloader come back through the handler.
+	 */
+	private class StartJobTask extends SafeAsyncTask<Void> implements Handler.Callback {
+		private final DownloadJob mJob;
+		private final Handler mErrorHandler;
+
+		public StartJobTask(final DownloadJob job) {
+			mJob = job;
+			mErrorHandler = new Handler(Looper.getMainLooper(), this);
+		}
+
+		@Override
+		public Void call() throws Exception {
+			Uri uri = mJob.getUri();
+			if (uri == null) {
+				uri = mServiceManager.downloadService().resolveUri(
+						String.valueOf(mJob.getTrack().getId()));
+				mJob.setUri(uri);
+			}
+
+			final TrackDownloader downloader = mDownloaderFactory.create(uri, mJob.getTrack(),
+					mErrorHandler);
+			downloader.setBackground(mJob.getPriority() == DownloadJob.Priority.BULK);
+			downloader.enqueue();
+			return null;
+		}
+
+		@Override
+		protected void onException(final Exception e) throws RuntimeException {
+			super.onException(e);
+			Ln.w(e, "Failed to start download of track %d.", mJob.getTrack().getId());
+
+			// Network trouble is worth another attempt, anything else won't get better.
+			final boolean retry = e instanceof APIException && ((APIException) e).getCode() == -1;
+			mScheduler.onStartFailed(mJob, retry);
+		}
+
+		@Override
+		public boolean handleMessage(final Message msg) {
+			Ln.w("Download of track %d failed to start: %d.", mJob.getTrack().getId(), msg.what);
+			mScheduler.onStartFailed(mJob, false);
+			return true;
+		}
+	}
+}
@@ -1,34 +1,47 @@
 package net.rdrei.android.scdl2.service;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import net.rdrei.android.scdl2.Config;
 import roboguice.util.Ln;
 import android.app.Service;
 import android.content.Intent;
 import android.media.MediaScannerConnection;
-import android.media.MediaScannerConnection.MediaScannerConnectionClient;
+import android.media.MediaScannerConnection.OnScanCompletedListener;
 import android.net.Uri;
+import android.os.Handler;
 import android.os.IBinder;
 
 /**
- * Calls the MediaScanner with the given path.
- * 
+ * Calls the MediaScanner with the given paths.
+ *
  * This is necessary in order to get called from the BroadcastReceive which may
  * not be able to bind to a system service.
- * 
+ *
+ * Paths arriving within a short window are collected and scanned together over
+ * a single connection. The service stops once nothing is queued or scanning
+ * anymore.
+ *
  * @author pascal
- * 
+ *
  */
 public class MediaScannerService extends Service implements
-		MediaScannerConnectionClient {
+		OnScanCompletedListener {
 
 	public static final String EXTRA_PATH = "path";
 
-	private MediaScannerConnection mScannerConnection;
-	private String mPath;
+	private final Handler mHandler = new Handler();
+	private final List<String> mQueue = new ArrayList<String>();
+	private int mScanning;
+	private int mLastStartId;
 
-	@Override
-	public void onCreate() {
-		mScannerConnection = new MediaScannerConnection(this, this);
-	}
+	private final Runnable mFlush = new Runnable() {
+		@Override
+		public void run() {
+			flush();
+		}
+	};
 
 	@Override
 	public IBinder onBind(final Intent intent) {
@@ -37,34 +50,61 @@ public class MediaScannerService extends Service implements
 
 	@Override
 	public int onStartCommand(final Intent intent, final int flags, final int startId) {
-		if (intent == null) {
-			stopSelf();
+		mLastStartId = startId;
+		final String path = intent == null ? null : intent.getStringExtra(EXTRA_PATH);
+
+		if (path == null) {
+			stopIfIdle();
 		} else {
-			mPath = intent.getStringExtra(EXTRA_PATH);
-			mScannerConnection.connect();
+			// The window starts with the first path, later ones just join the batch.
+			if (mQueue.isEmpty()) {
+				mHandler.postDelayed(mFlush, Config.MEDIA_SCAN_BATCH_WINDOW_MS);
+			}
+			mQueue.add(path);
 		}
 
-		return START_STICKY;
+		// Paths of intents we haven't stopped for yet are scanned again after a crash.
+		return START_REDELIVER_INTENT;
 	}
 
-	@Override
-	public void onMediaScannerConnected() {
-		Ln.d("Starting media scan for new file %s", mPath);
-		mScannerConnection.scanFile(mPath, null);
+	private void flush() {
+		if (mQueue.isEmpty()) {
+			return;
+		}
+
+		final String[] paths = mQueue.toArray(new String[mQueue.size()]);
+		mQueue.clear();
+		mScanning += paths.length;
+
+		Ln.d("Starting media scan for %d new files.", paths.length);
+		MediaScannerConnection.scanFile(this, paths, null, this);
 	}
 
+	/**
+	 * Called on a binder thread once per path.
+	 */
 	@Override
 	public void onScanCompleted(final String path, final Uri uri) {
-		Ln.d("Media scan completed.");
-		stopSelf();
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				Ln.d("Media scan of %s completed.", path);
+				mScanning--;
+				stopIfIdle();
+			}
+		});
+	}
+
+	private void stopIfIdle() {
+		if (mScanning <= 0 && mQueue.isEmpty()) {
+			// Only stops if no new path arrived in the meantime.
+			stopSelf(mLastStartId);
+		}
 	}
 
 	@Override
 	public void onDestroy() {
-		if (mScannerConnection != null) {
-			mScannerConnection.disconnect();
-			mScannerConnection = null;
-		}
+		mHandler.removeCallbacks(mFlush);
 		super.onDestroy();
 	}
 }
@@ -0,0 +1,193 @@
+package net.rdrei.android.scdl2.service;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.IBinder;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+import net.rdrei.android.scdl2.Config;
+import net.rdrei.android.scdl2.api.APIException;
+import net.rdrei.android.scdl2.api.ServiceManager;
+import net.rdrei.android.scdl2.api.entity.TrackEntity;
+import net.rdrei.android.scdl2.artwork.ArtworkFormat;
+import net.rdrei.android.scdl2.artwork.ArtworkLoader;
+import net.rdrei.android.scdl2.guice.TagExecutorProvider;
+import net.rdrei.android.scdl2.tag.FlacTagWriter;
+import net.rdrei.android.scdl2.tag.Id3v2TagWriter;
+import net.rdrei.android.scdl2.tag.TagWriter;
+import net.rdrei.android.scdl2.tag.TrackTags;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+
+import roboguice.service.RoboService;
+import roboguice.util.Ln;
+
+/**
+ * Writes title, artist and artwork into finished downloads and hands them to the
+ * {@link MediaScannerService} afterwards, so the library shows the new tags. Files are tagged
+ * on a pool of their own while other tracks keep downloading. Stops itself once all files are
+ * done.
+ */
+public class TaggingService extends RoboService {
+	public static final String EXTRA_PATH = "path";
+	public static final String EXTRA_TRACK_ID = "track_id";
+	// Prefetched along with the track, so tagging finds it in the cache.
+	public static final ArtworkFormat ARTWORK_FORMAT = ArtworkFormat.T500X500;
+
+	private static final String ARTWORK_TYPE_JPEG = "image/jpeg";
+	private static final String ARTWORK_TYPE_PNG = "image/png";
+
+	@Inject
+	private ServiceManager mServiceManager;
+
+	@Inject
+	private ArtworkLoader mArtworkLoader;
+
+	@Inject
+	@Named(TagExecutorProvider.NAME)
+	private ExecutorService mExecutor;
+
+	private final Handler mHandler = new Handler();
+	private int mPending;
+	private int mLastStartId;
+
+	/**
+	 * Tags the file with the track's metadata and scans it.
+	 */
+	public static void tag(final Context context, final long trackId, final String path) {
+		final Intent intent = new Intent(context, TaggingService.class);
+		intent.putExtra(EXTRA_TRACK_ID, trackId);
+		intent.putExtra(EXTRA_PATH, path);
+		context.startService(intent);
+	}
+
+	@Override
+	public IBinder onBind(final Intent intent) {
+		return null;
+	}
+
+	@Override
+	public int onStartCommand(final Intent intent, final int flags, final int startId) {
+		super.onStartCommand(intent, flags, startId);
+		mLastStartId = startId;
+
+		final String path = intent == null ? null : intent.getStringExtra(EXTRA_PATH);
+		if (path == null) {
+			stopIfIdle();
+		} else {
+			mPending++;
+			mExecutor.execute(new TagTask(intent.getLongExtra(EXTRA_TRACK_ID, 0), path));
+		}
+
+		// Files of intents we haven't stopped for yet are tagged again after a crash. That's
+		// safe, a rewrite cut short leaves the file as it was.
+		return START_REDELIVER_INTENT;
+	}
+
+	/**
+	 * @return The writer for the file's format or null if we can't tag it. Ogg files would have
+	 * to be rewritten as a whole, so they're left alone.
+	 */
+	static TagWriter getWriter(final String path) {
+		final String lowerPath = path.toLowerCase(Locale.US);
+
+		if (lowerPath.endsWith(".mp3")) {
+			return new Id3v2TagWriter(Config.TAG_PADDING);
+		} else if (lowerPath.endsWith(".flac")) {
+			return new FlacTagWriter(Config.TAG_PADDING);
+		}
+
+		return null;
+	}
+
+	/**
+	 * SoundCloud serves artwork as JPEG, except for the occasional PNG.
+	 */
+	static String getArtworkType(final byte[] artwork) {
+		if (artwork.length >= 4 && (artwork[0] & 0xff) == 0x89 && artwork[1] == 'P'
+				&& artwork[2] == 'N' && artwork[3] == 'G') {
+			return ARTWORK_TYPE_PNG;
+		}
+
+		return ARTWORK_TYPE_JPEG;
+	}
+
+	private void onTagged(final String path) {
+		final Intent scanIntent = new Intent(this, MediaScannerService.class);
+		scanIntent.putExtra(MediaScannerService.EXTRA_PATH, path);
+		startService(scanIntent);
+
+		mPending--;
+		stopIfIdle();
+	}
+
+	private void stopIfIdle() {
+		if (mPending <= 0) {
+			// Only stops if no new file arrived in the meantime.
+			stopSelf(mLastStartId);
+		}
+	}
+
+	private class TagTask implements Runnable {
+		private final long mTrackId;
+		private final String mPath;
+
+		public TagTask(final long trackId, final String path) {
+			mTrackId = trackId;
+			mPath = path;
+		}
+
+		@Override
+		public void run() {
+			try {
+				final TagWriter writer = getWriter(mPath);
+				if (writer == null) {
+					Ln.d("Can't tag %s, leaving it as it is.", mPath);
+					return;
+				}
+
+				// Usually cached from resolving the download.
+				final TrackEntity track = mServiceManager.trackService().getTrack(
+						String.valueOf(mTrackId));
+				writer.write(new File(mPath), createTags(track));
+				Ln.d("Tagged %s.", mPath);
+			} catch (final APIException | IOException e) {
+				Ln.w(e, "Failed to tag %s.", mPath);
+			} catch (final RuntimeException e) {
+				// Would take down the app, and the file would be retried after the restart.
+				Ln.e(e, "Failed to tag %s.", mPath);
+			} finally {
+				mHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						onTagged(mPath);
+					}
+				});
+			}
+		}
+
+		private TrackTags createTags(final TrackEntity track) {
+			final String artist = track.getUser() == null ? null : track.getUser().getUsername();
+			byte[] artwork = null;
+
+			if (track.getArtworkUrl() != null) {
+				try {
+					// Usually prefetched while the track was shown.
+					artwork = mArtworkLoader.get(track.getArtworkUrl(), ARTWORK_FORMAT);
+				} catch (final IOException e) {
+					// Still worth writing the rest.
+					Ln.w(e, "Failed to fetch artwork of %s.", mPath);
+				}
+			}
+
+			return new TrackTags(track.getTitle(), artist, artwork,
+					artwork != null ? getArtworkType(artwork) : null);
+		}
+	}
+}
@@ -0,0 +1,262 @@
+package net.rdrei.android.scdl2.tag;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes Vorbis comments and the cover picture into FLAC files. All other metadata blocks are
+ * kept, padding blocks are used up before the file has to grow.
+ */
+public class FlacTagWriter implements TagWriter {
+	private static final byte[] MAGIC = {'f', 'L', 'a', 'C'};
+	private static final int BLOCK_HEADER_SIZE = 4;
+	private static final int MAX_BLOCK_SIZE = 0xffffff;
+	private static final int FLAG_LAST_BLOCK = 0x80;
+
+	private static final int TYPE_STREAMINFO = 0;
+	private static final int TYPE_PADDING = 1;
+	private static final int TYPE_VORBIS_COMMENT = 4;
+	private static final int TYPE_PICTURE = 6;
+
+	private static final String COMMENT_TITLE = "TITLE";
+	private static final String COMMENT_ARTIST = "ARTIST";
+	private static final String VENDOR = "scdl";
+	private static final int PICTURE_TYPE_FRONT_COVER = 3;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final int mPadding;
+
+	/**
+	 * @param padding Size of the padding block added if the metadata has to grow.
+	 */
+	public FlacTagWriter(final int padding) {
+		mPadding = padding;
+	}
+
+	private static class Block {
+		final int type;
+		final byte[] data;
+
+		Block(final int type, final byte[] data) {
+			this.type = type;
+			this.data = data;
+		}
+	}
+
+	@Override
+	public void write(final File file, final TrackTags tags) throws IOException {
+		final List<Block> blocks = new ArrayList<>();
+		final long oldLength = read(file, blocks);
+
+		String vendor = VENDOR;
+		final List<String> comments = new ArrayList<>();
+		final List<Block> kept = new ArrayList<>();
+
+		for (final Block block : blocks) {
+			if (block.type == TYPE_VORBIS_COMMENT) {
+				vendor = readComments(block.data, tags, comments);
+			} else if (block.type != TYPE_PADDING && !isReplacedCover(block, tags)) {
+				kept.add(block);
+			}
+		}
+
+		if (tags.getTitle() != null) {
+			comments.add(COMMENT_TITLE + "=" + tags.getTitle());
+		}
+		if (tags.getArtist() != null) {
+			comments.add(COMMENT_ARTIST + "=" + tags.getArtist());
+		}
+		kept.add(new Block(TYPE_VORBIS_COMMENT, createComments(vendor, comments)));
+
+		if (tags.hasArtwork()) {
+			final byte[] picture = createPicture(tags);
+			if (picture.length <= MAX_BLOCK_SIZE) {
+				kept.add(new Block(TYPE_PICTURE, picture));
+			}
+		}
+
+		long length = MAGIC.length;
+		for (final Block block : kept) {
+			length += BLOCK_HEADER_SIZE + block.data.length;
+		}
+
+		// The gap must be either closed exactly or fit a padding block.
+		final long gap = oldLength - length;
+		if (gap >= BLOCK_HEADER_SIZE && gap - BLOCK_HEADER_SIZE <= MAX_BLOCK_SIZE) {
+			kept.add(new Block(TYPE_PADDING, new byte[(int) (gap - BLOCK_HEADER_SIZE)]));
+		} else if (gap < BLOCK_HEADER_SIZE && gap != 0) {
+			kept.add(new Block(TYPE_PADDING, new byte[mPadding]));
+		} else if (gap != 0) {
+			throw new IOException(String.format(Locale.US, "%s has %d bytes of padding.", file,
+					gap));
+		}
+
+		MetadataRewriter.replace(file, oldLength, toByteArray(kept));
+	}
+
+	/**
+	 * Reads all metadata blocks.
+	 *
+	 * @return Length of the metadata, i.e. where the audio frames start.
+	 */
+	private static long read(final File file, final List<Block> blocks) throws IOException {
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+		try {
+			final byte[] magic = new byte[MAGIC.length];
+			if (raf.read(magic) != MAGIC.length || !Arrays.equals(magic, MAGIC)) {
+				throw new IOException(String.format("%s is not a FLAC file.", file));
+			}
+
+			boolean last = false;
+			while (!last) {
+				final int header = raf.readInt();
+				last = (header >>> 24 & FLAG_LAST_BLOCK) != 0;
+
+				final byte[] data = new byte[header & MAX_BLOCK_SIZE];
+				raf.readFully(data);
+				blocks.add(new Block(header >>> 24 & 0x7f, data));
+			}
+
+			if (blocks.isEmpty() || blocks.get(0).type != TYPE_STREAMINFO) {
+				throw new IOException(String.format("%s has no STREAMINFO.", file));
+			}
+
+			return raf.getFilePointer();
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static boolean isReplacedCover(final Block block, final TrackTags tags) {
+		return block.type == TYPE_PICTURE && tags.hasArtwork() && block.data.length >= 4
+				&& ByteBuffer.wrap(block.data).getInt() == PICTURE_TYPE_FRONT_COVER;
+	}
+
+	/**
+	 * Collects the comments that aren't replaced by the given tags.
+	 *
+	 * @return The vendor string.
+	 */
+	private static String readComments(final byte[] data, final TrackTags tags,
+			final List<String> comments) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+		final String vendor = readString(buffer);
+		final int count = readLength(buffer);
+
+		for (int i = 0; i < count; i++) {
+			final String comment = readString(buffer);
+			final String key = comment.substring(0, Math.max(0, comment.indexOf('=')))
+					.toUpperCase(Locale.US);
+
+			if (!(COMMENT_TITLE.equals(key) && tags.getTitle() != null)
+					&& !(COMMENT_ARTIST.equals(key) && tags.getArtist() != null)) {
+				comments.add(comment);
+			}
+		}
+
+		return vendor;
+	}
+
+	private static String readString(final ByteBuffer buffer) throws IOException {
+		final int length = readLength(buffer);
+		if (length > buffer.remaining()) {
+			throw new IOException("Vorbis comment block is malformed.");
+		}
+
+		final byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	/**
+	 * Reads a length or count, which are unsigned but never anywhere near 2^31 in a block
+	 * that's at most 16 MB.
+	 */
+	private static int readLength(final ByteBuffer buffer) throws IOException {
+		if (buffer.remaining() < 4) {
+			throw new IOException("Vorbis comment block is malformed.");
+		}
+
+		final int length = buffer.getInt();
+		if (length < 0) {
+			throw new IOException("Vorbis comment block is malformed.");
+		}
+
+		return length;
+	}
+
+	private static byte[] createComments(final String vendor, final List<String> comments) {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		writeString(output, vendor);
+		writeLittleEndian(output, comments.size());
+		for (final String comment : comments) {
+			writeString(output, comment);
+		}
+
+		return output.toByteArray();
+	}
+
+	private static void writeString(final ByteArrayOutputStream output, final String value) {
+		final byte[] bytes = value.getBytes(UTF_8);
+		writeLittleEndian(output, bytes.length);
+		output.write(bytes, 0, bytes.length);
+	}
+
+	private static void writeLittleEndian(final ByteArrayOutputStream output, final int value) {
+		output.write(value);
+		output.write(value >> 8);
+		output.write(value >> 16);
+		output.write(value >> 24);
+	}
+
+	private static byte[] createPicture(final TrackTags tags) {
+		final byte[] mimeType = tags.getArtworkMimeType().getBytes(UTF_8);
+		final byte[] artwork = tags.getArtwork();
+		// Type, MIME type, description, width, height, depth, colors and data.
+		final ByteBuffer buffer = ByteBuffer.allocate(8 * 4 + mimeType.length + artwork.length);
+
+		buffer.putInt(PICTURE_TYPE_FRONT_COVER);
+		buffer.putInt(mimeType.length);
+		buffer.put(mimeType);
+		// No description and unknown dimensions, which is allowed.
+		buffer.putInt(0);
+		buffer.putInt(0);
+		buffer.putInt(0);
+		buffer.putInt(0);
+		buffer.putInt(0);
+		buffer.putInt(artwork.length);
+		buffer.put(artwork);
+
+		return buffer.array();
+	}
+
+	private static byte[] toByteArray(final List<Block> blocks) {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		output.write(MAGIC, 0, MAGIC.length);
+
+		for (int i = 0; i < blocks.size(); i++) {
+			final Block block = blocks.get(i);
+			final int flags = i == blocks.size() - 1 ? FLAG_LAST_BLOCK : 0;
+
+			output.write(flags | block.type);
+			output.write(block.data.length >> 16);
+			output.write(block.data.length >> 8);
+			output.write(block.data.length);
+			output.write(block.data, 0, block.data.length);
+		}
+
+		return output.toByteArray();
+	}
+}
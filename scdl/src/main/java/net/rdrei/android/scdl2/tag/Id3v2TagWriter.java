@@ -0,0 +1,224 @@
+package net.rdrei.android.scdl2.tag;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Writes ID3v2 tags into MP3 files. An existing ID3v2.3 or 2.4 tag keeps its version and all
+ * frames we don't replace. Files without a tag or with one we can't parse get a fresh ID3v2.3
+ * tag.
+ */
+public class Id3v2TagWriter implements TagWriter {
+	private static final int HEADER_SIZE = 10;
+	private static final int FRAME_HEADER_SIZE = 10;
+	private static final int DEFAULT_VERSION = 3;
+
+	private static final int FLAG_UNSYNCHRONISATION = 0x80;
+	private static final int FLAG_EXTENDED_HEADER = 0x40;
+	private static final int FLAG_FOOTER = 0x10;
+
+	private static final String FRAME_TITLE = "TIT2";
+	private static final String FRAME_ARTIST = "TPE1";
+	private static final String FRAME_PICTURE = "APIC";
+
+	private static final byte ENCODING_ISO_8859_1 = 0;
+	private static final byte ENCODING_UTF_16 = 1;
+	private static final byte ENCODING_UTF_8 = 3;
+	private static final byte PICTURE_TYPE_FRONT_COVER = 3;
+
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+	private static final Charset UTF_16 = Charset.forName("UTF-16");
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final int mPadding;
+
+	/**
+	 * @param padding Free space added to the tag if it has to grow, so the next change fits.
+	 */
+	public Id3v2TagWriter(final int padding) {
+		mPadding = padding;
+	}
+
+	/**
+	 * What we found at the beginning of the file.
+	 */
+	private static class ExistingTag {
+		int version = DEFAULT_VERSION;
+		long length;
+		final ByteArrayOutputStream frames = new ByteArrayOutputStream();
+	}
+
+	@Override
+	public void write(final File file, final TrackTags tags) throws IOException {
+		final ExistingTag existing = read(file, tags);
+		final ByteArrayOutputStream frames = existing.frames;
+
+		if (tags.getTitle() != null) {
+			frames.write(createTextFrame(FRAME_TITLE, tags.getTitle(), existing.version));
+		}
+		if (tags.getArtist() != null) {
+			frames.write(createTextFrame(FRAME_ARTIST, tags.getArtist(), existing.version));
+		}
+		if (tags.hasArtwork()) {
+			frames.write(createPictureFrame(tags, existing.version));
+		}
+
+		final int required = HEADER_SIZE + frames.size();
+		final long length = required <= existing.length ? existing.length : required + mPadding;
+		final byte[] tag = new byte[(int) length];
+
+		tag[0] = 'I';
+		tag[1] = 'D';
+		tag[2] = '3';
+		tag[3] = (byte) existing.version;
+		writeSyncsafe(tag, 6, (int) length - HEADER_SIZE);
+		System.arraycopy(frames.toByteArray(), 0, tag, HEADER_SIZE, frames.size());
+
+		MetadataRewriter.replace(file, existing.length, tag);
+	}
+
+	/**
+	 * Reads the existing tag and keeps the frames that aren't replaced by the given tags.
+	 */
+	private ExistingTag read(final File file, final TrackTags tags) throws IOException {
+		final ExistingTag existing = new ExistingTag();
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+		try {
+			final byte[] header = new byte[HEADER_SIZE];
+			if (raf.length() < HEADER_SIZE || raf.read(header) != HEADER_SIZE
+					|| header[0] != 'I' || header[1] != 'D' || header[2] != '3') {
+				return existing;
+			}
+
+			final int version = header[3];
+			final int flags = header[5] & 0xff;
+			existing.length = HEADER_SIZE + readSyncsafe(header, 6)
+					+ ((flags & FLAG_FOOTER) != 0 ? HEADER_SIZE : 0);
+
+			if (version != 3 && version != 4) {
+				// ID3v2.2 uses different frames, a newer version we don't know at all.
+				return existing;
+			}
+
+			existing.version = version;
+			if ((flags & (FLAG_UNSYNCHRONISATION | FLAG_EXTENDED_HEADER)) != 0) {
+				// Rare enough to simply start from scratch.
+				return existing;
+			}
+
+			final byte[] body = new byte[readSyncsafe(header, 6)];
+			raf.readFully(body);
+			copyFrames(body, version, tags, existing.frames);
+		} finally {
+			raf.close();
+		}
+
+		return existing;
+	}
+
+	private static void copyFrames(final byte[] body, final int version, final TrackTags tags,
+			final ByteArrayOutputStream output) throws IOException {
+		int position = 0;
+
+		while (position + FRAME_HEADER_SIZE <= body.length && body[position] != 0) {
+			final String id = new String(body, position, 4, ISO_8859_1);
+			final int size = version == 4 ? readSyncsafe(body, position + 4)
+					: readInt(body, position + 4);
+			// Compared without adding up, a size near 2^31 would overflow.
+			if (size < 0 || size > body.length - position - FRAME_HEADER_SIZE) {
+				// There's no telling where the next frame starts, or what else is broken.
+				throw new IOException(String.format("Frame %s of the ID3v2 tag is malformed.",
+						id));
+			}
+			final int length = FRAME_HEADER_SIZE + size;
+
+			if (!isReplaced(id, tags)) {
+				output.write(body, position, length);
+			}
+			position += length;
+		}
+	}
+
+	private static boolean isReplaced(final String id, final TrackTags tags) {
+		return (FRAME_TITLE.equals(id) && tags.getTitle() != null)
+				|| (FRAME_ARTIST.equals(id) && tags.getArtist() != null)
+				|| (FRAME_PICTURE.equals(id) && tags.hasArtwork());
+	}
+
+	private static byte[] createTextFrame(final String id, final String text, final int version)
+			throws IOException {
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		if (ISO_8859_1.newEncoder().canEncode(text)) {
+			body.write(ENCODING_ISO_8859_1);
+			body.write(text.getBytes(ISO_8859_1));
+		} else if (version == 4) {
+			body.write(ENCODING_UTF_8);
+			body.write(text.getBytes(UTF_8));
+		} else {
+			// Java writes the byte order mark ID3v2.3 asks for.
+			body.write(ENCODING_UTF_16);
+			body.write(text.getBytes(UTF_16));
+		}
+
+		return createFrame(id, body.toByteArray(), version);
+	}
+
+	private static byte[] createPictureFrame(final TrackTags tags, final int version)
+			throws IOException {
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		body.write(ENCODING_ISO_8859_1);
+		body.write(tags.getArtworkMimeType().getBytes(ISO_8859_1));
+		body.write(0);
+		body.write(PICTURE_TYPE_FRONT_COVER);
+		// Empty description.
+		body.write(0);
+		body.write(tags.getArtwork());
+
+		return createFrame(FRAME_PICTURE, body.toByteArray(), version);
+	}
+
+	private static byte[] createFrame(final String id, final byte[] body, final int version) {
+		final byte[] frame = Arrays.copyOf(id.getBytes(ISO_8859_1),
+				FRAME_HEADER_SIZE + body.length);
+
+		if (version == 4) {
+			writeSyncsafe(frame, 4, body.length);
+		} else {
+			writeInt(frame, 4, body.length);
+		}
+		System.arraycopy(body, 0, frame, FRAME_HEADER_SIZE, body.length);
+
+		return frame;
+	}
+
+	private static int readSyncsafe(final byte[] buffer, final int offset) {
+		return (buffer[offset] & 0x7f) << 21 | (buffer[offset + 1] & 0x7f) << 14
+				| (buffer[offset + 2] & 0x7f) << 7 | (buffer[offset + 3] & 0x7f);
+	}
+
+	private static void writeSyncsafe(final byte[] buffer, final int offset, final int value) {
+		buffer[offset] = (byte) ((value >> 21) & 0x7f);
+		buffer[offset + 1] = (byte) ((value >> 14) & 0x7f);
+		buffer[offset + 2] = (byte) ((value >> 7) & 0x7f);
+		buffer[offset + 3] = (byte) (value & 0x7f);
+	}
+
+	private static int readInt(final byte[] buffer, final int offset) {
+		return (buffer[offset] & 0xff) << 24 | (buffer[offset + 1] & 0xff) << 16
+				| (buffer[offset + 2] & 0xff) << 8 | (buffer[offset + 3] & 0xff);
+	}
+
+	private static void writeInt(final byte[] buffer, final int offset, final int value) {
+		buffer[offset] = (byte) (value >> 24);
+		buffer[offset + 1] = (byte) (value >> 16);
+		buffer[offset + 2] = (byte) (value >> 8);
+		buffer[offset + 3] = (byte) value;
+	}
+}
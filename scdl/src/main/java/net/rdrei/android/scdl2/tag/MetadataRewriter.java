@@ -0,0 +1,85 @@
+package net.rdrei.android.scdl2.tag;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Replaces the metadata at the beginning of a file. If the new metadata fits into the space of
+ * the old one, only that space is overwritten. Otherwise the file is written anew next to the
+ * original and renamed into place, so a rewrite that's cut short leaves the original file as it
+ * was. Writers add padding to save the copy next time.
+ */
+class MetadataRewriter {
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final String TMP_SUFFIX = ".tagging";
+
+	private MetadataRewriter() {
+	}
+
+	/**
+	 * @param oldLength Bytes the old metadata takes up at the beginning of the file.
+	 * @param metadata  New metadata, padded to at least oldLength bytes.
+	 */
+	static void replace(final File file, final long oldLength, final byte[] metadata)
+			throws IOException {
+		final long growth = metadata.length - oldLength;
+		if (growth < 0) {
+			throw new IllegalArgumentException("Metadata must not be shorter than before.");
+		} else if (growth > 0) {
+			rewrite(file, oldLength, metadata);
+			return;
+		}
+
+		final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.write(metadata);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Writes the metadata followed by everything after the old metadata into a temporary file
+	 * and replaces the original with it.
+	 */
+	private static void rewrite(final File file, final long oldLength, final byte[] metadata)
+			throws IOException {
+		final File tmpFile = new File(file.getPath() + TMP_SUFFIX);
+		boolean replaced = false;
+
+		try {
+			final RandomAccessFile input = new RandomAccessFile(file, "r");
+			try {
+				final FileOutputStream output = new FileOutputStream(tmpFile);
+				try {
+					output.write(metadata);
+
+					final byte[] buffer = new byte[BUFFER_SIZE];
+					input.seek(oldLength);
+					int read;
+					while ((read = input.read(buffer)) != -1) {
+						output.write(buffer, 0, read);
+					}
+
+					// Has to be on disk before the rename makes it the only copy.
+					output.getFD().sync();
+				} finally {
+					output.close();
+				}
+			} finally {
+				input.close();
+			}
+
+			if (!tmpFile.renameTo(file)) {
+				throw new IOException("Can't replace " + file);
+			}
+			replaced = true;
+		} finally {
+			if (!replaced) {
+				tmpFile.delete();
+			}
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package net.rdrei.android.scdl2.tag;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes tags into a file of a particular format.
+ */
+public interface TagWriter {
+	/**
+	 * Replaces the file's title, artist and cover with the given ones and keeps all other tags.
+	 * <b>This is blocking the current thread!</b>
+	 *
+	 * @throws IOException If the file can't be read or written or isn't of the expected format.
+	 */
+	void write(File file, TrackTags tags) throws IOException;
+}
@@ -0,0 +1,44 @@
+package net.rdrei.android.scdl2.tag;
+
+/**
+ * The metadata written into a downloaded file. Everything is optional, missing values leave the
+ * file's own tags alone.
+ */
+public class TrackTags {
+	private final String mTitle;
+	private final String mArtist;
+	private final byte[] mArtwork;
+	private final String mArtworkMimeType;
+
+	/**
+	 * @param artwork         Encoded cover image or null.
+	 * @param artworkMimeType Type of the image, e.g. image/jpeg.
+	 */
+	public TrackTags(final String title, final String artist, final byte[] artwork,
+			final String artworkMimeType) {
+		mTitle = title;
+		mArtist = artist;
+		mArtwork = artwork;
+		mArtworkMimeType = artworkMimeType;
+	}
+
+	public String getTitle() {
+		return mTitle;
+	}
+
+	public String getArtist() {
+		return mArtist;
+	}
+
+	public byte[] getArtwork() {
+		return mArtwork;
+	}
+
+	public String getArtworkMimeType() {
+		return mArtworkMimeType;
+	}
+
+	public boolean hasArtwork() {
+		return mArtwork != null && mArtworkMimeType != null;
+	}
+}
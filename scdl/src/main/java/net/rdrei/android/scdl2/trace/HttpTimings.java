@@ -0,0 +1,53 @@
+package net.rdrei.android.scdl2.trace;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Splits the time until the response of a {@link HttpURLConnection} into spans.
+ * HttpURLConnection doesn't report its own phases, so the host is looked up beforehand, which
+ * leaves the connection with a cached address, and connecting is timed on its own. The connect
+ * span covers TCP and the TLS handshake and is close to nothing for reused connections.
+ */
+public final class HttpTimings {
+	private HttpTimings() {
+	}
+
+	/**
+	 * Same as {@link HttpURLConnection#getResponseCode()}, but traces DNS, connect and time to
+	 * first byte if the tracer is enabled. Request headers must be set before.
+	 */
+	public static int getResponseCode(final Tracer tracer, final HttpURLConnection connection)
+			throws IOException {
+		if (!tracer.isEnabled()) {
+			return connection.getResponseCode();
+		}
+
+		final String host = connection.getURL().getHost();
+
+		Tracer.Span span = tracer.begin("dns " + host);
+		try {
+			InetAddress.getAllByName(host);
+		} catch (final UnknownHostException e) {
+			// Connecting runs into the same error and reports it.
+		} finally {
+			span.end();
+		}
+
+		span = tracer.begin("connect " + host);
+		try {
+			connection.connect();
+		} finally {
+			span.end();
+		}
+
+		span = tracer.begin("ttfb " + host);
+		try {
+			return connection.getResponseCode();
+		} finally {
+			span.end();
+		}
+	}
+}
@@ -0,0 +1,309 @@
+package net.rdrei.android.scdl2.trace;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records named spans with monotonic timestamps into a ring buffer, which can be exported in
+ * the Chrome trace format that Perfetto and chrome://tracing open. Spans are also emitted as
+ * platform trace sections where available, so they show up in systrace next to the framework.
+ * <p/>
+ * A disabled tracer hands out a span that does nothing, so callers don't need to check.
+ */
+public class Tracer {
+	/**
+	 * A running span. Ends at most once, later calls are ignored.
+	 */
+	public interface Span {
+		void end();
+	}
+
+	private static final Span NO_SPAN = new Span() {
+		@Override
+		public void end() {
+		}
+	};
+
+	// Platform sections are limited to this length.
+	private static final int MAX_SECTION_NAME_LENGTH = 127;
+
+	/**
+	 * A finished span.
+	 */
+	public static class Event {
+		private final String mName;
+		private final long mStartNanos;
+		private final long mDurationNanos;
+		private final long mThreadId;
+		private final String mThreadName;
+		private final boolean mAsync;
+
+		Event(final String name, final long startNanos, final long durationNanos,
+				final Thread thread, final boolean async) {
+			mName = name;
+			mStartNanos = startNanos;
+			mDurationNanos = durationNanos;
+			mThreadId = thread.getId();
+			mThreadName = thread.getName();
+			mAsync = async;
+		}
+
+		public String getName() {
+			return mName;
+		}
+
+		/**
+		 * @return Start as returned by {@link System#nanoTime()}.
+		 */
+		public long getStartNanos() {
+			return mStartNanos;
+		}
+
+		public long getDurationNanos() {
+			return mDurationNanos;
+		}
+
+		/**
+		 * @return Thread the span began on.
+		 */
+		public long getThreadId() {
+			return mThreadId;
+		}
+
+		public String getThreadName() {
+			return mThreadName;
+		}
+
+		/**
+		 * @return True if the span may have ended on another thread.
+		 */
+		public boolean isAsync() {
+			return mAsync;
+		}
+	}
+
+	private final boolean mEnabled;
+	private final boolean mPlatformSections;
+	private final Event[] mEvents;
+	private int mNext;
+	private int mSize;
+
+	private final Map<String, Span> mAsyncSpans = new HashMap<>();
+
+	/**
+	 * @param capacity         Number of spans kept, the oldest ones are dropped first.
+	 * @param enabled          If false, nothing is recorded.
+	 * @param platformSections If true, spans are emitted as {@link Trace} sections as well,
+	 *                         which needs Android 4.3.
+	 */
+	public Tracer(final int capacity, final boolean enabled, final boolean platformSections) {
+		mEnabled = enabled;
+		mPlatformSections = enabled && platformSections;
+		mEvents = new Event[enabled ? capacity : 0];
+	}
+
+	public boolean isEnabled() {
+		return mEnabled;
+	}
+
+	/**
+	 * Begins a span on the current thread. It must be ended on the same thread, after all
+	 * spans that began within it, so use try/finally.
+	 */
+	public Span begin(final String name) {
+		if (!mEnabled) {
+			return NO_SPAN;
+		}
+
+		final Thread thread = Thread.currentThread();
+		final long start = System.nanoTime();
+		if (mPlatformSections) {
+			beginSection(name);
+		}
+
+		return new Span() {
+			private boolean mEnded;
+
+			@Override
+			public void end() {
+				if (mEnded) {
+					return;
+				}
+
+				mEnded = true;
+				if (mPlatformSections) {
+					endSection();
+				}
+				add(new Event(name, start, System.nanoTime() - start, thread, false));
+			}
+		};
+	}
+
+	/**
+	 * Begins a span that ends on whatever thread calls {@link #endAsync(String)} with the same
+	 * name. Beginning it again while it's running starts it over.
+	 */
+	public void beginAsync(final String name) {
+		if (!mEnabled) {
+			return;
+		}
+
+		final Thread thread = Thread.currentThread();
+		final long start = System.nanoTime();
+		final Span span = new Span() {
+			@Override
+			public void end() {
+				add(new Event(name, start, System.nanoTime() - start, thread, true));
+			}
+		};
+
+		synchronized (mAsyncSpans) {
+			mAsyncSpans.put(name, span);
+		}
+	}
+
+	/**
+	 * Ends the span begun with {@link #beginAsync(String)}. Does nothing if it isn't running.
+	 */
+	public void endAsync(final String name) {
+		if (!mEnabled) {
+			return;
+		}
+
+		final Span span;
+		synchronized (mAsyncSpans) {
+			span = mAsyncSpans.remove(name);
+		}
+
+		if (span != null) {
+			span.end();
+		}
+	}
+
+	/**
+	 * Records a span that began before the tracer was at hand, e.g. before injection, and ends
+	 * now on the current thread.
+	 *
+	 * @param startNanos Start as returned by {@link System#nanoTime()}.
+	 */
+	public void record(final String name, final long startNanos) {
+		if (mEnabled) {
+			add(new Event(name, startNanos, System.nanoTime() - startNanos,
+					Thread.currentThread(), false));
+		}
+	}
+
+	/**
+	 * @return The recorded spans, oldest first.
+	 */
+	public synchronized List<Event> getEvents() {
+		final List<Event> events = new ArrayList<>(mSize);
+		final int first = mNext - mSize + mEvents.length;
+
+		for (int i = 0; i < mSize; i++) {
+			events.add(mEvents[(first + i) % mEvents.length]);
+		}
+
+		return events;
+	}
+
+	public synchronized void clear() {
+		mNext = 0;
+		mSize = 0;
+		Arrays.fill(mEvents, null);
+	}
+
+	/**
+	 * Writes the recorded spans as a Chrome JSON trace. Timestamps are in microseconds of the
+	 * monotonic clock.
+	 *
+	 * @param pid Process the spans are attributed to.
+	 */
+	public void export(final Writer writer, final int pid) throws IOException {
+		final List<Event> events = getEvents();
+		final Map<Long, String> threads = new HashMap<>();
+		final JsonWriter json = new JsonWriter(writer);
+
+		json.beginObject();
+		json.name("displayTimeUnit").value("ms");
+		json.name("traceEvents").beginArray();
+
+		for (int i = 0; i < events.size(); i++) {
+			final Event event = events.get(i);
+			threads.put(event.getThreadId(), event.getThreadName());
+
+			if (event.isAsync()) {
+				// Async slices are matched by id, so they may overlap the thread's other spans.
+				writeEvent(json, event, "b", event.getStartNanos(), pid, i);
+				writeEvent(json, event, "e",
+						event.getStartNanos() + event.getDurationNanos(), pid, i);
+			} else {
+				writeEvent(json, event, "X", event.getStartNanos(), pid, -1);
+			}
+		}
+
+		for (final Map.Entry<Long, String> thread : threads.entrySet()) {
+			json.beginObject();
+			json.name("name").value("thread_name");
+			json.name("ph").value("M");
+			json.name("pid").value(pid);
+			json.name("tid").value(thread.getKey());
+			json.name("args").beginObject().name("name").value(thread.getValue()).endObject();
+			json.endObject();
+		}
+
+		json.endArray();
+		json.endObject();
+		json.flush();
+	}
+
+	private static void writeEvent(final JsonWriter json, final Event event, final String phase,
+			final long nanos, final int pid, final int id) throws IOException {
+		json.beginObject();
+		json.name("name").value(event.getName());
+		json.name("cat").value("scdl");
+		json.name("ph").value(phase);
+		json.name("ts").value(nanos / 1000);
+		if ("X".equals(phase)) {
+			json.name("dur").value(event.getDurationNanos() / 1000);
+		}
+		if (id >= 0) {
+			json.name("id").value(id);
+		}
+		json.name("pid").value(pid);
+		json.name("tid").value(event.getThreadId());
+		json.endObject();
+	}
+
+	private synchronized void add(final Event event) {
+		if (mEvents.length == 0) {
+			return;
+		}
+
+		mEvents[mNext] = event;
+		mNext = (mNext + 1) % mEvents.length;
+		mSize = Math.min(mSize + 1, mEvents.length);
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	private static void beginSection(final String name) {
+		Trace.beginSection(name.length() > MAX_SECTION_NAME_LENGTH
+				? name.substring(0, MAX_SECTION_NAME_LENGTH) : name);
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	private static void endSection() {
+		Trace.endSection();
+	}
+}
@@ -1,40 +1,61 @@
 package net.rdrei.android.scdl2.ui;
 
 import android.content.Context;
-import android.os.Handler;
 
 import com.google.inject.Inject;
 
 import net.rdrei.android.scdl2.ShareIntentResolver;
+import net.rdrei.android.scdl2.api.APIException;
+import net.rdrei.android.scdl2.api.MediaState;
 import net.rdrei.android.scdl2.api.PendingDownload;
+import net.rdrei.android.scdl2.trace.Tracer;
+
+import java.net.HttpURLConnection;
 
 import roboguice.inject.ContextScope;
 import roboguice.util.RoboAsyncTask;
 
 /**
- * Resolves an Intent URL to a pending download.
+ * Resolves an Intent URL to a pending download and goes on to load its media right away, so
+ * there's no detour through the UI thread in between. App links carry the track ID, so the
+ * media is requested without any resolve call for them.
  */
-public abstract class AbstractPendingDownloadResolver extends RoboAsyncTask<PendingDownload> {
+public abstract class AbstractPendingDownloadResolver extends RoboAsyncTask<MediaState> {
 	@Inject
 	private ShareIntentResolver mShareIntentResolver;
 
+	@Inject
+	private MediaStateResolver mMediaStateResolver;
+
 	@Inject
 	private ContextScope mContextScope;
 
+	@Inject
+	private Tracer mTracer;
+
 	public AbstractPendingDownloadResolver(final Context context) {
 		super(context);
 	}
 
 	@Override
-	public PendingDownload call() throws Exception {
+	public MediaState call() throws Exception {
 		mContextScope.enter(getContext());
 		try {
-			return mShareIntentResolver.resolvePendingDownload();
+			return mMediaStateResolver.resolve(resolvePendingDownload());
 		} finally {
 			mContextScope.exit(getContext());
 		}
 	}
 
+	private PendingDownload resolvePendingDownload() throws APIException {
+		final Tracer.Span span = mTracer.begin("resolve_intent");
+		try {
+			return mShareIntentResolver.resolvePendingDownload();
+		} finally {
+			span.end();
+		}
+	}
+
 	@Override
 	protected void onException(final Exception e) throws RuntimeException {
 		super.onException(e);
@@ -46,6 +67,10 @@ public abstract class AbstractPendingDownloadResolver extends RoboAsyncTask<Pend
 			errorCode = TrackErrorActivity.ErrorCode.NOT_FOUND;
 		} else if (e instanceof ShareIntentResolver.UnsupportedPlaylistUrlException) {
 			errorCode = TrackErrorActivity.ErrorCode.PLAYLIST;
+		} else if (e instanceof APIException
+				&& ((APIException) e).getCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+			// The ID of an app link may not exist, which only the metadata tells.
+			errorCode = TrackErrorActivity.ErrorCode.NOT_FOUND;
 		} else {
 			errorCode = TrackErrorActivity.ErrorCode.NETWORK_ERROR;
 		}
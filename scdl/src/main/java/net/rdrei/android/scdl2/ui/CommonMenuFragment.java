@@ -2,15 +2,29 @@ package net.rdrei.android.scdl2.ui;
 
 import net.rdrei.android.scdl2.Config;
 import net.rdrei.android.scdl2.R;
+import net.rdrei.android.scdl2.trace.Tracer;
+import roboguice.RoboGuice;
+import roboguice.util.Ln;
+import roboguice.util.SafeAsyncTask;
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Process;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentActivity;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
+import android.widget.Toast;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
 public class CommonMenuFragment extends Fragment {
+	private static final String TRACE_FILENAME = "trace-%d.json";
+
 	public static CommonMenuFragment newInstance() {
 		final CommonMenuFragment fragment = new CommonMenuFragment();
 
@@ -41,6 +55,10 @@ public class CommonMenuFragment extends Fragment {
 		if (Config.PAID_BUILD) {
 			removeAdfreeItem(menu);
 		}
+
+		if (Config.Features.TRACING) {
+			menu.findItem(R.id.export_trace).setVisible(true);
+		}
 	}
 
 	private void removeAdfreeItem(final Menu menu) {
@@ -65,8 +83,56 @@ public class CommonMenuFragment extends Fragment {
 					BuyAdFreeActivity.class);
 			startActivity(intent);
 			return true;
+		} else if (item.getItemId() == R.id.export_trace) {
+			new ExportTraceTask(getActivity()).execute();
+			return true;
 		} else {
 			return super.onOptionsItemSelected(item);
 		}
 	}
+
+	/**
+	 * Writes the recorded spans to the app's external files directory, where they can be
+	 * pulled with adb and opened in Perfetto.
+	 */
+	private static class ExportTraceTask extends SafeAsyncTask<File> {
+		private final Context mContext;
+
+		public ExportTraceTask(final Context context) {
+			mContext = context.getApplicationContext();
+		}
+
+		@Override
+		public File call() throws Exception {
+			final Tracer tracer = RoboGuice.getInjector(mContext).getInstance(Tracer.class);
+			File directory = mContext.getExternalFilesDir(null);
+			if (directory == null) {
+				directory = mContext.getFilesDir();
+			}
+
+			final File file = new File(directory,
+					String.format(TRACE_FILENAME, System.currentTimeMillis()));
+			final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+			try {
+				tracer.export(writer, Process.myPid());
+			} finally {
+				writer.close();
+			}
+
+			return file;
+		}
+
+		@Override
+		protected void onSuccess(final File file) throws Exception {
+			Toast.makeText(mContext, mContext.getString(R.string.toast_trace_exported, file),
+					Toast.LENGTH_LONG).show();
+		}
+
+		@Override
+		protected void onException(final Exception e) throws RuntimeException {
+			Ln.w(e, "Failed to export trace.");
+			Toast.makeText(mContext, R.string.toast_trace_export_failed, Toast.LENGTH_LONG)
+					.show();
+		}
+	}
 }
\ No newline at end of file
@@ -5,17 +5,19 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
 import android.view.ViewGroup;
-import android.widget.Toast;
+import android.view.ViewTreeObserver;
 
 import com.google.android.gms.analytics.HitBuilders;
-import com.google.android.gms.analytics.StandardExceptionParser;
 import com.google.android.gms.analytics.Tracker;
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 
 import net.rdrei.android.scdl2.R;
+import net.rdrei.android.scdl2.StartupScheduler;
+import net.rdrei.android.scdl2.TrackDownloader;
 import net.rdrei.android.scdl2.api.MediaDownloadType;
 import net.rdrei.android.scdl2.api.MediaState;
-import net.rdrei.android.scdl2.api.PendingDownload;
+import net.rdrei.android.scdl2.trace.Tracer;
 
 import roboguice.activity.RoboFragmentActivity;
 import roboguice.inject.InjectView;
@@ -28,6 +30,7 @@ public class DownloadActivity extends RoboFragmentActivity implements DownloadMe
 	public static final String ANALYTICS_TAG = "DOWNLOAD_TRACK";
 	public static final String MEDIA_STATE_TAG = "scdl:MEDIA_STATE_TAG";
 	public static final String MAIN_LAYOUT_FRAGMENT = "MAIN_LAYOUT_FRAGMENT";
+	public static final String TRACE_FIRST_FRAME = "first_frame";
 
 	private MediaState mMediaState = MediaState.UNKNOWN;
 	private boolean mIsPostSaveInstanceState = false;
@@ -38,14 +41,21 @@ public class DownloadActivity extends RoboFragmentActivity implements DownloadMe
 	@Inject
 	private AdViewManager mAdViewManager;
 
+	// Analytics are only set up once there's something to report.
 	@Inject
-	private Tracker mTracker;
+	private Provider<Tracker> mTrackerProvider;
+
+	@Inject
+	private Tracer mTracer;
 
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
+		// Taken before injection, which is part of what we measure.
+		final long createdNanos = System.nanoTime();
 		super.onCreate(savedInstanceState);
 
 		setContentView(R.layout.download);
+		traceFirstFrame(createdNanos);
 
 		if (savedInstanceState != null) {
 			mMediaState = savedInstanceState.getParcelable(MEDIA_STATE_TAG);
@@ -55,11 +65,31 @@ public class DownloadActivity extends RoboFragmentActivity implements DownloadMe
 
 		if (mMediaState == MediaState.UNKNOWN) {
 			Ln.d("No previous state. Starting media resolver.");
+			mTracer.beginAsync(TrackDownloader.TRACE_SHARE_TO_ENQUEUE);
 			final AbstractPendingDownloadResolver task = new PendingDownloadResolver(this);
 			task.execute();
 		}
 
-		mAdViewManager.addToViewIfRequired(mOuterLayout);
+		StartupScheduler.runWhenIdle(new Runnable() {
+			@Override
+			public void run() {
+				if (!isFinishing()) {
+					mAdViewManager.addToViewIfRequired(mOuterLayout);
+				}
+			}
+		});
+	}
+
+	private void traceFirstFrame(final long createdNanos) {
+		final ViewTreeObserver observer = mOuterLayout.getViewTreeObserver();
+		observer.addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+			@Override
+			public boolean onPreDraw() {
+				mOuterLayout.getViewTreeObserver().removeOnPreDrawListener(this);
+				mTracer.record(TRACE_FIRST_FRAME, createdNanos);
+				return true;
+			}
+		});
 	}
 
 	@Override
@@ -98,10 +128,16 @@ public class DownloadActivity extends RoboFragmentActivity implements DownloadMe
 
 		if (mMediaState.getType() == MediaDownloadType.TRACK) {
 			newFragment = DownloadTrackFragment.newInstance(mMediaState);
-			mTracker.send(new HitBuilders.EventBuilder().setCategory(ANALYTICS_TAG)
+			mTrackerProvider.get().send(new HitBuilders.EventBuilder().setCategory(ANALYTICS_TAG)
 							.setAction("LOADED")
 							.build()
 			);
+		} else if (mMediaState.getType() == MediaDownloadType.PLAYLIST) {
+			newFragment = DownloadPlaylistFragment.newInstance(mMediaState);
+			mTrackerProvider.get().send(new HitBuilders.EventBuilder().setCategory(ANALYTICS_TAG)
+							.setAction("PLAYLIST_LOADED")
+							.build()
+			);
 		} else {
 			newFragment = SimpleLoadingFragment.newInstance();
 		}
@@ -120,7 +156,7 @@ public class DownloadActivity extends RoboFragmentActivity implements DownloadMe
 		final Intent intent = new Intent(this, TrackErrorActivity.class);
 		intent.putExtra(TrackErrorActivity.EXTRA_ERROR_CODE, errorCode);
 
-		mTracker.send(new HitBuilders.ExceptionBuilder().setFatal(false)
+		mTrackerProvider.get().send(new HitBuilders.ExceptionBuilder().setFatal(false)
 						.setDescription(String.format("trackLoadError: %s", errorCode))
 						.build()
 		);
@@ -144,42 +180,6 @@ public class DownloadActivity extends RoboFragmentActivity implements DownloadMe
 			startErrorActivity(errorCode);
 		}
 
-		@Override
-		protected void onSuccess(PendingDownload download) throws Exception {
-			final AbstractMediaStateLoaderTask task = new MediaStateLoaderTask(getContext(),
-					download);
-			task.execute();
-		}
-	}
-
-	/**
-	 * Takes a pending download and resolves it into a MediaState
-	 */
-	private class MediaStateLoaderTask extends AbstractMediaStateLoaderTask {
-
-		protected MediaStateLoaderTask(final Context context, final PendingDownload download) {
-			super(context, download);
-			assert download.getType() == MediaDownloadType.TRACK;
-		}
-
-		@Override
-		protected void onException(final Exception e) throws RuntimeException {
-			super.onException(e);
-			Ln.e("Error while resolving track: %s", e.toString());
-
-			final StandardExceptionParser exceptionParser = new StandardExceptionParser(
-					DownloadActivity.this, null);
-
-			mTracker.send(new HitBuilders.ExceptionBuilder()
-							.setFatal(false)
-							.setDescription("MediaStateLoaderTask: "
-									+ exceptionParser.getDescription(Thread.currentThread().getName(), e))
-							.build()
-			);
-
-			Toast.makeText(getContext(), "ERROR: " + e.toString(), Toast.LENGTH_LONG).show();
-		}
-
 		@Override
 		protected void onSuccess(final MediaState state) throws Exception {
 			super.onSuccess(state);
@@ -187,6 +187,5 @@ public class DownloadActivity extends RoboFragmentActivity implements DownloadMe
 			mMediaState = state;
 			loadMediaFragments();
 		}
-
 	}
 }
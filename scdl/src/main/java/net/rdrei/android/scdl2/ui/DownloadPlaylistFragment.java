@@ -0,0 +1,251 @@
+package net.rdrei.android.scdl2.ui;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Message;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.ImageView;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import com.google.android.gms.analytics.HitBuilders;
+import com.google.android.gms.analytics.Tracker;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import net.rdrei.android.scdl2.ApplicationPreferences;
+import net.rdrei.android.scdl2.R;
+import net.rdrei.android.scdl2.RoboContractFragment;
+import net.rdrei.android.scdl2.TrackDownloader;
+import net.rdrei.android.scdl2.api.MediaState;
+import net.rdrei.android.scdl2.api.entity.PlaylistEntity;
+import net.rdrei.android.scdl2.api.entity.TrackEntity;
+import net.rdrei.android.scdl2.artwork.ArtworkLoader;
+import net.rdrei.android.scdl2.download.PlaylistDownloadPipeline;
+import net.rdrei.android.scdl2.download.PlaylistDownloadPipelineFactory;
+import net.rdrei.android.scdl2.trace.Tracer;
+
+import roboguice.inject.InjectView;
+
+/**
+ * Fragment for downloading all tracks of a playlist, used by DownloadActivity.
+ */
+public class DownloadPlaylistFragment extends RoboContractFragment<DownloadMediaContract> {
+
+	@InjectView(R.id.playlist_title)
+	private TextView mTitleView;
+
+	@InjectView(R.id.playlist_artist)
+	private TextView mArtistView;
+
+	@InjectView(R.id.playlist_track_count)
+	private TextView mTrackCountView;
+
+	@InjectView(R.id.playlist_status)
+	private TextView mStatusView;
+
+	@InjectView(R.id.playlist_progress)
+	private ProgressBar mProgressBar;
+
+	@InjectView(R.id.img_artwork)
+	private ImageView mArtworkImageView;
+
+	@InjectView(R.id.btn_download)
+	private Button mDownloadButton;
+
+	@InjectView(R.id.btn_remove_ads)
+	private Button mRemoveAdsButton;
+
+	@Inject
+	private ApplicationPreferences mPreferences;
+
+	@Inject
+	private Provider<Tracker> mTrackerProvider;
+
+	@Inject
+	private PlaylistDownloadPipelineFactory mPipelineFactory;
+
+	@Inject
+	private ArtworkLoader mArtworkLoader;
+
+	@Inject
+	private Tracer mTracer;
+
+	private PlaylistEntity mPlaylist;
+	private PlaylistDownloadPipeline mPipeline;
+	private int mQueued;
+	private int mFailed;
+
+	private static String PLAYLIST_TAG = "PLAYLIST_TAG";
+
+	private static String ANALYTICS_TAG = "DOWNLOAD_PLAYLIST_FRAGMENT";
+
+	public static DownloadPlaylistFragment newInstance(MediaState state) {
+		final DownloadPlaylistFragment fragment = new DownloadPlaylistFragment();
+		final Bundle args = new Bundle();
+		// This will raise a loud exception if we have a null, which is fine.
+		args.putParcelable(PLAYLIST_TAG, state.getPlaylistOption().get());
+		fragment.setArguments(args);
+
+		return fragment;
+	}
+
+	@Override
+	public void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+
+		mPlaylist = getArguments().getParcelable(PLAYLIST_TAG);
+	}
+
+	@Override
+	public View onCreateView(LayoutInflater inflater, ViewGroup container,
+			Bundle savedInstanceState) {
+		return inflater.inflate(R.layout.select_playlist, container, false);
+	}
+
+	@Override
+	public void onActivityCreated(Bundle savedInstanceState) {
+		super.onActivityCreated(savedInstanceState);
+
+		if (mPreferences.isAdFree()) {
+			mRemoveAdsButton.setVisibility(View.GONE);
+		}
+
+		final Tracer.Span span = mTracer.begin("render_playlist");
+		try {
+			bindButtons();
+			updatePlaylistDisplay();
+		} finally {
+			span.end();
+		}
+	}
+
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+
+		if (mPipeline != null) {
+			mPipeline.cancel();
+		}
+	}
+
+	private int getTrackCount() {
+		return mPlaylist.getTracks() == null ? 0 : mPlaylist.getTracks().size();
+	}
+
+	private void updatePlaylistDisplay() {
+		if (mPlaylist == null) {
+			return;
+		}
+
+		mTitleView.setText(mPlaylist.getTitle());
+		if (mPlaylist.getUser() != null) {
+			mArtistView.setText(mPlaylist.getUser().getUsername());
+		}
+		mTrackCountView.setText(String.valueOf(getTrackCount()));
+		mProgressBar.setMax(getTrackCount());
+		mDownloadButton.setEnabled(mPipeline == null && getTrackCount() > 0);
+
+		updateProgress();
+
+		// Usually prefetched while the playlist was loaded.
+		mArtworkLoader.display(mArtworkImageView, mPlaylist.getArtworkUrl());
+	}
+
+	private void updateProgress() {
+		if (mPipeline == null) {
+			return;
+		}
+
+		mProgressBar.setVisibility(View.VISIBLE);
+		mProgressBar.setProgress(mQueued + mFailed);
+		mStatusView.setVisibility(View.VISIBLE);
+		mStatusView.setText(getString(R.string.playlist_progress, mQueued, getTrackCount(),
+				mFailed));
+	}
+
+	private void bindButtons() {
+		mDownloadButton.setOnClickListener(new DownloadButtonClickListener());
+		mRemoveAdsButton.setOnClickListener(new View.OnClickListener() {
+
+			@Override
+			public void onClick(View arg0) {
+				final Intent intent = new Intent(getActivity(), BuyAdFreeActivity.class);
+				startActivity(intent);
+			}
+		});
+	}
+
+	private class PipelineListener implements PlaylistDownloadPipeline.Listener {
+		@Override
+		public void onTrackQueued(final TrackEntity track) {
+			mQueued++;
+			updateProgress();
+		}
+
+		@Override
+		public void onTrackFailed(final TrackEntity track, final Exception e) {
+			mFailed++;
+			updateProgress();
+		}
+
+		@Override
+		public void onFinished(final int queued, final int failed) {
+			if (getActivity() == null) {
+				return;
+			}
+
+			Toast.makeText(getActivity(), getString(R.string.toast_playlist_download_started,
+					queued), Toast.LENGTH_SHORT).show();
+		}
+	}
+
+	private class DownloadHandlerCallback implements Handler.Callback {
+
+		@Override
+		public boolean handleMessage(final Message msg) {
+			mTrackerProvider.get()
+					.send(new HitBuilders.ExceptionBuilder()
+									.setDescription("Playlist Track Download Error")
+									.setFatal(false)
+									.set("WHAT", String.valueOf(msg.what))
+									.build()
+					);
+
+			// The storage is the same for every track, no point in going on.
+			if (msg.what == TrackDownloader.MSG_DOWNLOAD_STORAGE_ERROR) {
+				mPipeline.cancel();
+				getContract().handleFatalError(TrackErrorActivity.ErrorCode.NO_WRITE_PERMISSION);
+			}
+
+			return true;
+		}
+	}
+
+	private class DownloadButtonClickListener implements View.OnClickListener {
+		@Override
+		public void onClick(final View v) {
+			mDownloadButton.setEnabled(false);
+
+			final Handler handler = new Handler(new DownloadHandlerCallback());
+			mPipeline = mPipelineFactory.create(mPlaylist, handler, new PipelineListener());
+			mPipeline.start();
+			updateProgress();
+
+			mTrackerProvider.get()
+					.send(new HitBuilders.EventBuilder()
+							.setCategory(ANALYTICS_TAG)
+							.setAction("DOWNLOAD")
+							.setLabel(mPlaylist.getTitle())
+							.set("ID", String.valueOf(mPlaylist.getId()))
+							.set("TRACKS", String.valueOf(getTrackCount()))
+							.build()
+					);
+		}
+	}
+}
@@ -11,6 +11,7 @@ import android.os.Environment;
 import android.preference.ListPreference;
 import android.preference.Preference;
 import android.preference.Preference.OnPreferenceClickListener;
+import android.preference.PreferenceGroup;
 import android.text.format.Formatter;
 
 import com.google.android.gms.analytics.HitBuilders;
@@ -28,6 +29,7 @@ import net.rdrei.android.scdl2.DownloadPathValidator.DownloadPathValidationExcep
 import net.rdrei.android.scdl2.PackageHelper;
 import net.rdrei.android.scdl2.PreferenceManagerWrapper;
 import net.rdrei.android.scdl2.R;
+import net.rdrei.android.scdl2.download.BandwidthLimiter;
 
 import roboguice.util.Ln;
 
@@ -56,6 +58,9 @@ public class DownloadPreferencesDelegateImpl implements OnSharedPreferenceChange
 	@Inject
 	private PackageHelper mPackageHelper;
 
+	@Inject
+	private BandwidthLimiter mBandwidthLimiter;
+
 	private ActivityStarter mActivityStarter;
 
 	@Inject
@@ -89,6 +94,7 @@ public class DownloadPreferencesDelegateImpl implements OnSharedPreferenceChange
 		});
 
 		setupAboutHandlers();
+		setupRateLimits();
 		loadStorageTypeOptions();
 		mActivityStarter = activityStarter;
 	}
@@ -116,6 +122,22 @@ public class DownloadPreferencesDelegateImpl implements OnSharedPreferenceChange
 		}
 	}
 
+	/**
+	 * The DownloadManager can't be throttled, so the limits only exist for segmented downloads.
+	 */
+	private void setupRateLimits() {
+		if (Config.Features.SEGMENTED_DOWNLOADS) {
+			return;
+		}
+
+		final PreferenceGroup category = (PreferenceGroup) mPreferenceManager.findPreference(
+				ApplicationPreferences.KEY_DOWNLOAD_CATEGORY);
+		category.removePreference(mPreferenceManager.findPreference(
+				ApplicationPreferences.KEY_RATE_LIMIT_FOREGROUND));
+		category.removePreference(mPreferenceManager.findPreference(
+				ApplicationPreferences.KEY_RATE_LIMIT_BACKGROUND));
+	}
+
 	private void startDownloadDirectoryChooser() {
 		final Intent chooseIntent = new Intent(mContext, DirectoryChooserActivity.class);
 		chooseIntent.putExtra(DirectoryChooserActivity.EXTRA_NEW_DIR_NAME, DOWNLOAD_DIRECTORY_NAME);
@@ -134,6 +156,8 @@ public class DownloadPreferencesDelegateImpl implements OnSharedPreferenceChange
 			final String key) {
 
 		trackChange(sharedPreferences, key);
+		// Running downloads pick up the new limits right away.
+		mBandwidthLimiter.update(mAppPreferences);
 		updateStorageTypeSummary();
 		mPathPreference.setSummary(mAppPreferences.getCustomPath());
 		mPathPreference.setEnabled(mAppPreferences.getStorageType() == StorageType.CUSTOM);
@@ -160,7 +184,8 @@ public class DownloadPreferencesDelegateImpl implements OnSharedPreferenceChange
 
 		if (key == ApplicationPreferences.KEY_SSL_ENABLED) {
 			value = String.valueOf(sharedPreferences.getBoolean(key, false));
-		} else if (key == ApplicationPreferences.KEY_STORAGE_TYPE || key == ApplicationPreferences.KEY_STORAGE_CUSTOM_PATH) {
+		} else if (key == ApplicationPreferences.KEY_STORAGE_TYPE || key == ApplicationPreferences.KEY_STORAGE_CUSTOM_PATH
+				|| key == ApplicationPreferences.KEY_RATE_LIMIT_FOREGROUND || key == ApplicationPreferences.KEY_RATE_LIMIT_BACKGROUND) {
 			value = sharedPreferences.getString(key, "<undef>");
 		}
 
@@ -0,0 +1,29 @@
+package net.rdrei.android.scdl2.ui;
+
+import android.content.Context;
+import android.text.format.DateUtils;
+import android.text.format.Formatter;
+
+import net.rdrei.android.scdl2.R;
+import net.rdrei.android.scdl2.download.DownloadProgressEvent;
+
+/**
+ * Human readable progress, shared by the fragment and the notification.
+ */
+public final class DownloadProgressFormatter {
+	private DownloadProgressFormatter() {
+	}
+
+	public static String format(final Context context, final DownloadProgressEvent event) {
+		final String rate = Formatter.formatShortFileSize(context, event.getBytesPerSecond());
+		final long remaining = event.getRemainingSeconds();
+
+		if (event.getPercent() < 0 || remaining < 0) {
+			return context.getString(R.string.download_progress_unknown_size,
+					Formatter.formatShortFileSize(context, event.getTransferredBytes()), rate);
+		}
+
+		return context.getString(R.string.download_progress, event.getPercent(), rate,
+				DateUtils.formatElapsedTime(remaining));
+	}
+}
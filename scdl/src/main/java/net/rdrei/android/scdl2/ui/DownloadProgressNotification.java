@@ -0,0 +1,54 @@
+package net.rdrei.android.scdl2.ui;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+
+import com.squareup.otto.Subscribe;
+
+import net.rdrei.android.scdl2.R;
+import net.rdrei.android.scdl2.download.DownloadProgressEvent;
+
+/**
+ * Shows an ongoing notification with a progress bar for every running in-process download.
+ * The notification goes away when the download finishes, the DownloadCompleteReceiver posts
+ * the outcome.
+ */
+public class DownloadProgressNotification {
+	// Keeps clear of the ids used by the DownloadCompleteReceiver.
+	private static final int ID_OFFSET = 1000;
+
+	private final Context mContext;
+	private final NotificationManager mNotificationManager;
+
+	public DownloadProgressNotification(final Context context) {
+		mContext = context;
+		mNotificationManager = (NotificationManager) context.getSystemService(
+				Context.NOTIFICATION_SERVICE);
+	}
+
+	@Subscribe
+	public void onDownloadProgress(final DownloadProgressEvent event) {
+		final int id = ID_OFFSET + (int) event.getTrackId();
+
+		if (event.isFinished()) {
+			mNotificationManager.cancel(id);
+			return;
+		}
+
+		final int percent = event.getPercent();
+
+		@SuppressWarnings("deprecation")
+		final Notification notification = new Notification.Builder(mContext)
+				.setOngoing(true)
+				.setOnlyAlertOnce(true)
+				.setContentTitle(mContext.getString(R.string.notification_download_running,
+						event.getTitle()))
+				.setContentText(DownloadProgressFormatter.format(mContext, event))
+				.setProgress(100, Math.max(0, percent), percent < 0)
+				.setSmallIcon(android.R.drawable.stat_sys_download)
+				.getNotification();
+
+		mNotificationManager.notify(id, notification);
+	}
+}
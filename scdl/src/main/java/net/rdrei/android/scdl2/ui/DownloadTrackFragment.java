@@ -17,17 +17,26 @@ import com.google.android.gms.analytics.HitBuilders;
 import com.google.android.gms.analytics.Tracker;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
-import com.squareup.picasso.Picasso;
+import com.squareup.otto.Bus;
+import com.squareup.otto.Subscribe;
 
 import net.rdrei.android.scdl2.ApplicationPreferences;
+import net.rdrei.android.scdl2.Config;
 import net.rdrei.android.scdl2.R;
 import net.rdrei.android.scdl2.RoboContractFragment;
 import net.rdrei.android.scdl2.TrackDownloader;
 import net.rdrei.android.scdl2.TrackDownloaderFactory;
 import net.rdrei.android.scdl2.api.MediaState;
+import net.rdrei.android.scdl2.api.APIException;
 import net.rdrei.android.scdl2.api.ServiceManager;
+import net.rdrei.android.scdl2.api.cache.DownloadUriCache;
 import net.rdrei.android.scdl2.api.entity.TrackEntity;
 import net.rdrei.android.scdl2.api.service.DownloadService;
+import net.rdrei.android.scdl2.artwork.ArtworkLoader;
+import net.rdrei.android.scdl2.download.DownloadJob;
+import net.rdrei.android.scdl2.download.DownloadProgressEvent;
+import net.rdrei.android.scdl2.service.DownloadSchedulerService;
+import net.rdrei.android.scdl2.trace.Tracer;
 
 import de.keyboardsurfer.android.widget.crouton.Crouton;
 import de.keyboardsurfer.android.widget.crouton.Style;
@@ -82,6 +91,15 @@ public class DownloadTrackFragment extends RoboContractFragment<DownloadMediaCon
 	@Inject
 	private TrackDownloaderFactory mDownloaderFactory;
 
+	@Inject
+	private Bus mBus;
+
+	@Inject
+	private ArtworkLoader mArtworkLoader;
+
+	@Inject
+	private Tracer mTracer;
+
 	private TrackEntity mTrack;
 
 	private static String TRACK_TAG = "TRACK_TAG";
@@ -119,8 +137,44 @@ public class DownloadTrackFragment extends RoboContractFragment<DownloadMediaCon
 			mRemoveAdsButton.setVisibility(View.GONE);
 		}
 
-		bindButtons();
-		updateTrackDisplay();
+		final Tracer.Span span = mTracer.begin("render_track");
+		try {
+			bindButtons();
+			updateTrackDisplay();
+		} finally {
+			span.end();
+		}
+	}
+
+	@Override
+	public void onStart() {
+		super.onStart();
+
+		mBus.register(this);
+	}
+
+	@Override
+	public void onStop() {
+		super.onStop();
+
+		mBus.unregister(this);
+	}
+
+	/**
+	 * Shows the progress of our track on the download button, which is disabled while the
+	 * download runs anyway.
+	 */
+	@Subscribe
+	public void onDownloadProgress(final DownloadProgressEvent event) {
+		if (mTrack == null || event.getTrackId() != mTrack.getId()) {
+			return;
+		}
+
+		if (event.isFinished()) {
+			mDownloadButton.setText(R.string.download);
+		} else {
+			mDownloadButton.setText(DownloadProgressFormatter.format(getActivity(), event));
+		}
 	}
 
 	private void updateTrackDisplay() {
@@ -143,10 +197,8 @@ public class DownloadTrackFragment extends RoboContractFragment<DownloadMediaCon
 	}
 
 	private void updateArtwork() {
-		// It's from a JSON resource we don't control, so let's be safe.
-		if (mTrack.getArtworkUrl() != null) {
-			Picasso.with(getActivity()).load(mTrack.getArtworkUri()).into(mArtworkImageView);
-		}
+		// Usually prefetched while the track was loaded.
+		mArtworkLoader.display(mArtworkImageView, mTrack.getArtworkUrl());
 	}
 
 	private void bindButtons() {
@@ -197,10 +249,16 @@ public class DownloadTrackFragment extends RoboContractFragment<DownloadMediaCon
 	}
 
 	private void downloadTrack(final Uri uri) throws Exception {
-		// Download using TrackDownloader
-		final Handler handler = new Handler(new DownloadHandlerCallback());
-		final TrackDownloader downloader = mDownloaderFactory.create(uri, mTrack, handler);
-		downloader.enqueue();
+		if (Config.Features.DOWNLOAD_SCHEDULER) {
+			// Hands over the URL we've got, so the scheduler doesn't have to resolve it again.
+			DownloadSchedulerService.enqueue(getActivity(), mTrack, uri,
+					DownloadJob.Priority.INTERACTIVE);
+		} else {
+			// Download using TrackDownloader
+			final Handler handler = new Handler(new DownloadHandlerCallback());
+			final TrackDownloader downloader = mDownloaderFactory.create(uri, mTrack, handler);
+			downloader.enqueue();
+		}
 
 		Toast.makeText(getActivity(), getString(R.string.toast_download_started),
 				Toast.LENGTH_SHORT).show();
@@ -210,6 +268,9 @@ public class DownloadTrackFragment extends RoboContractFragment<DownloadMediaCon
 		@Inject
 		private ServiceManager mServiceManager;
 
+		@Inject
+		private DownloadUriCache mDownloadUriCache;
+
 		private final String mId;
 
 		protected DownloadTask(final String id) {
@@ -220,7 +281,13 @@ public class DownloadTrackFragment extends RoboContractFragment<DownloadMediaCon
 		@Override
 		public Uri call() throws Exception {
 			final DownloadService service = mServiceManager.downloadService();
-			return service.resolveUri(mId);
+			// Usually prefetched while the track was loaded.
+			return mDownloadUriCache.get(mId, new DownloadUriCache.Resolver() {
+				@Override
+				public Uri resolve() throws APIException {
+					return service.resolveUri(mId);
+				}
+			});
 		}
 
 		@Override
@@ -9,9 +9,11 @@ import android.view.ViewGroup;
 import com.google.android.gms.analytics.HitBuilders;
 import com.google.android.gms.analytics.Tracker;
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 import net.rdrei.android.viewpagerindicator.CirclePageIndicator;
 
 import net.rdrei.android.scdl2.R;
+import net.rdrei.android.scdl2.StartupScheduler;
 
 import roboguice.activity.RoboFragmentActivity;
 import roboguice.inject.InjectView;
@@ -28,7 +30,7 @@ public class MainActivity extends RoboFragmentActivity implements DemoFragment.D
 	private SoundcloudLauncher mSoundcloudLauncher;
 
 	@Inject
-	private Tracker mTracker;
+	private Provider<Tracker> mTrackerProvider;
 
 	@Inject
 	private AdViewManager mAdViewManager;
@@ -62,13 +64,20 @@ public class MainActivity extends RoboFragmentActivity implements DemoFragment.D
 			CommonMenuFragment.injectMenu(this);
 		}
 
-		mAdViewManager.addToViewIfRequired(mMainLayout);
+		StartupScheduler.runWhenIdle(new Runnable() {
+			@Override
+			public void run() {
+				if (!isFinishing()) {
+					mAdViewManager.addToViewIfRequired(mMainLayout);
+				}
+			}
+		});
 	}
 
 	@Override
 	public void onNextPage() {
 		Ln.d("Next page requested.");
-		mTracker.send(new HitBuilders.EventBuilder()
+		mTrackerProvider.get().send(new HitBuilders.EventBuilder()
 						.setCategory(ANALYTICS_TAG)
 						.setAction("NEXT_PAGE_CLICK")
 						.setValue(mPager.getCurrentItem())
@@ -80,7 +89,7 @@ public class MainActivity extends RoboFragmentActivity implements DemoFragment.D
 	@Override
 	public void onStartSoundcloud() {
 		Ln.d("SoundCloud launch requested.");
-		mTracker.send(new HitBuilders.EventBuilder()
+		mTrackerProvider.get().send(new HitBuilders.EventBuilder()
 						.setCategory(ANALYTICS_TAG)
 						.setAction("SOUNDCLOUD_LAUNCH")
 						.build()
@@ -0,0 +1,116 @@
+package net.rdrei.android.scdl2.ui;
+
+import android.content.Context;
+import android.net.Uri;
+
+import com.google.inject.Inject;
+
+import net.rdrei.android.scdl2.Config;
+import net.rdrei.android.scdl2.R;
+import net.rdrei.android.scdl2.api.APIException;
+import net.rdrei.android.scdl2.api.MediaState;
+import net.rdrei.android.scdl2.api.PendingDownload;
+import net.rdrei.android.scdl2.api.ServiceManager;
+import net.rdrei.android.scdl2.api.cache.DownloadUriCache;
+import net.rdrei.android.scdl2.api.entity.PlaylistEntity;
+import net.rdrei.android.scdl2.api.entity.TrackEntity;
+import net.rdrei.android.scdl2.api.service.DownloadService;
+import net.rdrei.android.scdl2.artwork.ArtworkFormat;
+import net.rdrei.android.scdl2.artwork.ArtworkLoader;
+import net.rdrei.android.scdl2.service.TaggingService;
+import net.rdrei.android.scdl2.trace.Tracer;
+
+/**
+ * Turns a pending download into a {@link MediaState}. Only the metadata is waited for, the
+ * steps that don't depend on each other run alongside: the download URL of a track is
+ * resolved while its metadata is fetched, the artwork is fetched while the result makes its
+ * way to the UI.
+ * <p/>
+ * Must be called within the context scope, the prefetches run outside of it.
+ */
+public class MediaStateResolver {
+	@Inject
+	private Context mContext;
+
+	@Inject
+	private ServiceManager mServiceManager;
+
+	@Inject
+	private ArtworkLoader mArtworkLoader;
+
+	@Inject
+	private DownloadUriCache mDownloadUriCache;
+
+	@Inject
+	private Tracer mTracer;
+
+	/**
+	 * <b>This is blocking the current thread!</b>
+	 */
+	public MediaState resolve(final PendingDownload download) throws APIException {
+		final Tracer.Span span = mTracer.begin("load_media");
+		try {
+			switch (download.getType()) {
+				case PLAYLIST:
+					return resolvePlaylist(download.getId());
+				case TRACK:
+					return resolveTrack(download.getId());
+				default:
+					throw new IllegalStateException("Unknown PendingDownload type. WTF?");
+			}
+		} finally {
+			span.end();
+		}
+	}
+
+	private MediaState resolvePlaylist(final String id) throws APIException {
+		final PlaylistEntity playlist = mServiceManager.playlistService().getPlaylist(id);
+		if (playlist != null) {
+			prefetchArtwork(playlist.getArtworkUrl());
+		}
+
+		return MediaState.fromEntity(playlist);
+	}
+
+	private MediaState resolveTrack(final String id) throws APIException {
+		// Speculative, a track that turns out not to be downloadable just fails to resolve.
+		prefetchDownloadUri(id);
+
+		final TrackEntity track = mServiceManager.trackService().getTrack(id);
+		if (track != null) {
+			prefetchArtwork(track.getArtworkUrl());
+			if (Config.Features.WRITE_TAGS) {
+				// Displayed smaller than it's embedded, so it's a different image.
+				mArtworkLoader.prefetch(track.getArtworkUrl(), TaggingService.ARTWORK_FORMAT);
+			}
+		}
+
+		return MediaState.fromEntity(track);
+	}
+
+	/**
+	 * Starts fetching the artwork while the result is still on its way to the UI.
+	 */
+	private void prefetchArtwork(final String artworkUrl) {
+		final int size = mContext.getResources().getDimensionPixelSize(R.dimen.artwork_size);
+		mArtworkLoader.prefetch(artworkUrl, ArtworkFormat.forSize(size));
+	}
+
+	/**
+	 * Resolves the download URL in the background, so tapping the download button doesn't
+	 * have to wait for it.
+	 */
+	private void prefetchDownloadUri(final String id) {
+		if (!Config.Features.PREFETCH_DOWNLOAD_URIS) {
+			return;
+		}
+
+		final DownloadService service = mServiceManager.downloadService();
+		mDownloadUriCache.prefetch(id, new DownloadUriCache.Resolver() {
+			@Override
+			public Uri resolve() throws APIException {
+				return service.resolveUri(id);
+			}
+		});
+	}
+}
@@ -0,0 +1,71 @@
+package net.rdrei.android.scdl2.test;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.net.Uri;
+
+import com.google.inject.AbstractModule;
+
+import net.rdrei.android.scdl2.api.service.PlaylistService;
+import net.rdrei.android.scdl2.api.service.ResolveService;
+import net.rdrei.android.scdl2.api.service.TrackService;
+import net.rdrei.android.scdl2.ui.AbstractPendingDownloadResolver;
+import net.rdrei.android.scdl2.ui.TrackErrorActivity;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(RobolectricTestRunner.class)
+public class AbstractPendingDownloadResolverTest {
+	@Mock
+	TrackService mTrackService;
+
+	@Mock
+	PlaylistService mPlaylistService;
+
+	@Mock
+	ResolveService mResolveService;
+
+	Activity mContext;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		mContext = Robolectric.buildActivity(Activity.class)
+				.withIntent(new Intent(Intent.ACTION_VIEW, Uri.parse("soundcloud://tracks/1234")))
+				.create().get();
+
+		TestHelper.overridenInjector(this, new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(Activity.class).toInstance(mContext);
+				bind(TrackService.class).toInstance(mTrackService);
+				bind(PlaylistService.class).toInstance(mPlaylistService);
+				bind(ResolveService.class).toInstance(mResolveService);
+			}
+		});
+	}
+
+	@Test
+	public void testShouldLoadAppLinkTrackWithoutResolving() throws Exception {
+		final AbstractPendingDownloadResolver task = new AbstractPendingDownloadResolver(
+				mContext) {
+			@Override
+			protected void onErrorCode(final TrackErrorActivity.ErrorCode errorCode) {
+			}
+		};
+		task.call();
+
+		verify(mTrackService).getTrack("1234");
+		verifyZeroInteractions(mResolveService);
+		verifyZeroInteractions(mPlaylistService);
+	}
+}
@@ -0,0 +1,64 @@
+package net.rdrei.android.scdl2.test;
+
+import net.rdrei.android.scdl2.download.Adler32Digest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Adler32;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class Adler32DigestTest {
+	private byte[] mContent;
+	private long mExpected;
+
+	@Before
+	public void setUp() {
+		mContent = new byte[100 * 1024 + 3];
+		new Random(42).nextBytes(mContent);
+		// A run of 0xff is the worst case for overflowing the sums.
+		Arrays.fill(mContent, 0, 20 * 1024, (byte) 0xff);
+
+		final Adler32 adler32 = new Adler32();
+		adler32.update(mContent);
+		mExpected = adler32.getValue();
+	}
+
+	@Test
+	public void testShouldMatchAdler32() {
+		final Adler32Digest digest = new Adler32Digest();
+		digest.update(mContent, 0, mContent.length);
+
+		assertThat(digest.getValue(), is(mExpected));
+	}
+
+	@Test
+	public void testShouldContinueFromValue() {
+		final Adler32Digest first = new Adler32Digest();
+		first.update(mContent, 0, 1000);
+
+		final Adler32Digest second = new Adler32Digest(first.getValue());
+		second.update(mContent, 1000, mContent.length - 1000);
+
+		assertThat(second.getValue(), is(mExpected));
+	}
+
+	@Test
+	public void testShouldCombinePieces() {
+		final int split = 40 * 1024 + 7;
+		final Adler32Digest first = new Adler32Digest();
+		first.update(mContent, 0, split);
+		final Adler32Digest second = new Adler32Digest();
+		second.update(mContent, split, mContent.length - split);
+
+		assertThat(Adler32Digest.combine(first.getValue(), second.getValue(),
+				mContent.length - split), is(mExpected));
+	}
+}
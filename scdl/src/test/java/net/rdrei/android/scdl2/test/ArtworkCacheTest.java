@@ -0,0 +1,81 @@
+package net.rdrei.android.scdl2.test;
+
+import net.rdrei.android.scdl2.api.cache.ArtworkCache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class ArtworkCacheTest {
+	private static final String URL = "https://i1.sndcdn.com/artworks-000001-abcdef-large.jpg";
+
+	private File mDirectory;
+	private ArtworkCache mCache;
+
+	@Before
+	public void setUp() throws IOException {
+		mDirectory = File.createTempFile("scdl", "artwork");
+		mDirectory.delete();
+		mCache = new ArtworkCache(mDirectory, 16, 25);
+	}
+
+	@After
+	public void tearDown() {
+		mCache.clear();
+		mDirectory.delete();
+	}
+
+	@Test
+	public void testShouldPersistImages() {
+		mCache.put(URL, new byte[]{1, 2, 3});
+
+		final ArtworkCache cache = new ArtworkCache(mDirectory, 16, 25);
+		assertThat(cache.getFile(URL), notNullValue());
+		assertThat(cache.get(URL), equalTo(new byte[]{1, 2, 3}));
+	}
+
+	@Test
+	public void testShouldMissUnknownImages() {
+		assertThat(mCache.get(URL), nullValue());
+		assertThat(mCache.getFile(URL), nullValue());
+	}
+
+	@Test
+	public void testShouldStoreImagesAtTheirPath() {
+		final File path = mCache.getPath(URL);
+		assertThat(path.exists(), is(false));
+
+		mCache.put(URL, new byte[]{1, 2, 3});
+		assertThat(mCache.getFile(URL), equalTo(path));
+		assertThat(mDirectory.listFiles().length, is(1));
+	}
+
+	@Test
+	public void testShouldBoundDiskByBytes() {
+		for (int i = 0; i < 3; i++) {
+			mCache.put(URL + i, new byte[10]);
+		}
+
+		assertThat(mDirectory.listFiles().length, is(2));
+	}
+
+	@Test
+	public void testShouldKeepLargeImagesOnDiskOnly() {
+		// Larger than the memory cache, but still read back from disk.
+		mCache.put(URL, new byte[20]);
+
+		assertThat(mCache.get(URL).length, is(20));
+	}
+}
@@ -0,0 +1,34 @@
+package net.rdrei.android.scdl2.test;
+
+import net.rdrei.android.scdl2.artwork.ArtworkFormat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class ArtworkFormatTest {
+	@Test
+	public void testShouldSwapFormatInUrl() {
+		assertThat(ArtworkFormat.T500X500.getUrl(
+						"https://i1.sndcdn.com/artworks-000001-large-large.jpg?e76cf77"),
+				equalTo("https://i1.sndcdn.com/artworks-000001-large-t500x500.jpg?e76cf77"));
+	}
+
+	@Test
+	public void testShouldKeepUnknownUrls() {
+		assertThat(ArtworkFormat.CROP.getUrl("https://example.com/cover.jpg"),
+				equalTo("https://example.com/cover.jpg"));
+	}
+
+	@Test
+	public void testShouldPickSmallestFillingFormat() {
+		assertThat(ArtworkFormat.forSize(72), equalTo(ArtworkFormat.LARGE));
+		assertThat(ArtworkFormat.forSize(100), equalTo(ArtworkFormat.LARGE));
+		assertThat(ArtworkFormat.forSize(144), equalTo(ArtworkFormat.T300X300));
+		assertThat(ArtworkFormat.forSize(1000), equalTo(ArtworkFormat.T500X500));
+	}
+}
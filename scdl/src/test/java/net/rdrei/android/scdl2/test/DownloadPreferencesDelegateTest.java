@@ -6,6 +6,7 @@ import android.os.Environment;
 import android.preference.EditTextPreference;
 import android.preference.ListPreference;
 import android.preference.Preference;
+import android.preference.PreferenceCategory;
 import android.widget.EditText;
 
 import com.google.android.gms.analytics.Tracker;
@@ -66,6 +67,8 @@ public class DownloadPreferencesDelegateTest {
 				new EditTextPreference(mActivity));
 		mPreferenceManager.preferences.put(ApplicationPreferences.KEY_STORAGE_TYPE,
 				new ListPreference(mActivity));
+		mPreferenceManager.preferences.put(ApplicationPreferences.KEY_DOWNLOAD_CATEGORY,
+				new PreferenceCategory(mActivity));
 		mDelegate = mDelegateFactory.create(mPreferenceManager);
 	}
 
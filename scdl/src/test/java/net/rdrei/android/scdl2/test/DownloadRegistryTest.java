@@ -0,0 +1,95 @@
+package net.rdrei.android.scdl2.test;
+
+import net.rdrei.android.scdl2.download.DownloadRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class DownloadRegistryTest {
+	private File mFile;
+	private DownloadRegistry mRegistry;
+
+	@Before
+	public void setUp() throws IOException {
+		mFile = File.createTempFile("scdl", ".json");
+		mFile.delete();
+
+		mRegistry = new DownloadRegistry(mFile);
+	}
+
+	@After
+	public void tearDown() {
+		mFile.delete();
+	}
+
+	@Test
+	public void testShouldOnlyContainRegisteredDownloads() {
+		mRegistry.register(42, 1, "file:///sdcard/Music/track-1.mp3", 1024);
+
+		assertThat(mRegistry.contains(42), is(true));
+		assertThat(mRegistry.contains(43), is(false));
+	}
+
+	@Test
+	public void testShouldHandOutEntryOnce() {
+		mRegistry.register(42, 1, "file:///sdcard/Music/track-1.mp3", 1024);
+
+		final DownloadRegistry.Entry entry = mRegistry.take(42);
+		assertThat(entry, is(notNullValue()));
+		assertThat(entry.getTrackId(), is(1L));
+		assertThat(entry.getPath(), is("file:///sdcard/Music/track-1.mp3"));
+		assertThat(entry.getExpectedSize(), is(1024L));
+
+		assertThat(mRegistry.take(42), is(nullValue()));
+		assertThat(mRegistry.contains(42), is(false));
+	}
+
+	@Test
+	public void testShouldRestoreFromDisk() {
+		mRegistry.register(42, 1, "file:///sdcard/Music/track-1.mp3", 1024);
+		mRegistry.register(43, 2, "file:///sdcard/Music/track-2.mp3", 1024);
+		mRegistry.take(42);
+
+		final DownloadRegistry registry = new DownloadRegistry(mFile);
+
+		assertThat(registry.contains(42), is(false));
+		assertThat(registry.contains(43), is(true));
+		assertThat(registry.getDownloadIds().length, is(1));
+	}
+
+	@Test
+	public void testShouldPruneOldEntries() throws InterruptedException {
+		mRegistry.register(42, 1, "file:///sdcard/Music/track-1.mp3", 1024);
+		Thread.sleep(10);
+
+		mRegistry.prune(0);
+
+		assertThat(mRegistry.getDownloadIds().length, is(0));
+	}
+
+	@Test
+	public void testShouldDiscardUnreadableFile() throws IOException {
+		final FileOutputStream out = new FileOutputStream(mFile);
+		try {
+			out.write("{not json".getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+
+		assertThat(mRegistry.contains(42), is(false));
+		assertThat(mFile.exists(), is(false));
+	}
+}
@@ -0,0 +1,190 @@
+package net.rdrei.android.scdl2.test;
+
+import android.net.Uri;
+
+import net.rdrei.android.scdl2.api.entity.TrackEntity;
+import net.rdrei.android.scdl2.download.DownloadJob;
+import net.rdrei.android.scdl2.download.DownloadScheduler;
+import net.rdrei.android.scdl2.download.NetworkState;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class DownloadSchedulerTest {
+	private static final long LARGE = 100 * 1024 * 1024;
+
+	private final List<Long> mStarted = new ArrayList<>();
+	private final DownloadScheduler.Starter mStarter = new DownloadScheduler.Starter() {
+		@Override
+		public void start(final DownloadJob job) {
+			mStarted.add(job.getTrack().getId());
+		}
+	};
+
+	private File mFile;
+	private DownloadScheduler mScheduler;
+
+	@Before
+	public void setUp() throws IOException {
+		mFile = File.createTempFile("scdl", ".json");
+		mFile.delete();
+
+		mScheduler = createScheduler();
+	}
+
+	@After
+	public void tearDown() {
+		mFile.delete();
+	}
+
+	private DownloadScheduler createScheduler() {
+		final DownloadScheduler scheduler = new DownloadScheduler(mFile);
+		scheduler.setMaxConcurrent(3);
+		scheduler.setMaxBulk(2);
+		scheduler.setMaxPerHost(2);
+		scheduler.setLargeDownloadBytes(LARGE / 2);
+		return scheduler;
+	}
+
+	private DownloadJob job(final long id, final String host, final long size,
+			final DownloadJob.Priority priority) {
+		final TrackEntity track = new TrackEntity();
+		track.setId(id);
+		track.setPermalink("track-" + id);
+		track.setOriginalFormat("mp3");
+		track.setOriginalContentSize(size);
+
+		final Uri uri = host == null ? null : Uri.parse("http://" + host + "/" + id + ".mp3");
+		return new DownloadJob(track, uri, priority);
+	}
+
+	private void start() {
+		mScheduler.setNetworkState(NetworkState.UNMETERED);
+		mScheduler.setStarter(mStarter);
+	}
+
+	@Test
+	public void testInteractiveJobsShouldStartFirst() {
+		mScheduler.enqueue(job(1, "a", 0, DownloadJob.Priority.BULK));
+		mScheduler.enqueue(job(2, "b", 0, DownloadJob.Priority.BULK));
+		mScheduler.enqueue(job(3, "c", 0, DownloadJob.Priority.INTERACTIVE));
+
+		start();
+
+		assertThat(mStarted.get(0), is(3L));
+		assertThat(mStarted.subList(1, 3), equalTo(Arrays.asList(1L, 2L)));
+	}
+
+	@Test
+	public void testBulkJobsShouldLeaveASlotFree() {
+		start();
+
+		for (long id = 1; id <= 4; id++) {
+			mScheduler.enqueue(job(id, "host" + id, 0, DownloadJob.Priority.BULK));
+		}
+
+		assertThat(mScheduler.getRunningCount(), is(2));
+
+		mScheduler.enqueue(job(5, "host5", 0, DownloadJob.Priority.INTERACTIVE));
+		mScheduler.enqueue(job(6, "host6", 0, DownloadJob.Priority.INTERACTIVE));
+
+		assertThat(mScheduler.getRunningCount(), is(3));
+		assertThat(mStarted.contains(5L), is(true));
+		assertThat(mStarted.contains(6L), is(false));
+	}
+
+	@Test
+	public void testShouldLimitConnectionsPerHost() {
+		start();
+
+		for (long id = 1; id <= 3; id++) {
+			mScheduler.enqueue(job(id, "same", 0, DownloadJob.Priority.INTERACTIVE));
+		}
+
+		assertThat(mScheduler.getRunningCount(), is(2));
+
+		mScheduler.onFinished("/sdcard/Music/track-1.mp3", true, false);
+
+		assertThat(mStarted.contains(3L), is(true));
+	}
+
+	@Test
+	public void testLargeBulkJobsShouldWaitForUnmeteredNetwork() {
+		mScheduler.setNetworkState(NetworkState.METERED);
+		mScheduler.setStarter(mStarter);
+
+		mScheduler.enqueue(job(1, "a", LARGE, DownloadJob.Priority.BULK));
+		mScheduler.enqueue(job(2, "b", LARGE, DownloadJob.Priority.INTERACTIVE));
+		mScheduler.enqueue(job(3, "c", 0, DownloadJob.Priority.BULK));
+
+		assertThat(mStarted.size(), is(2));
+		assertThat(mStarted.contains(1L), is(false));
+
+		mScheduler.setNetworkState(NetworkState.UNMETERED);
+
+		assertThat(mStarted.contains(1L), is(true));
+	}
+
+	@Test
+	public void testShouldNotStartWhileDisconnected() {
+		mScheduler.setStarter(mStarter);
+		mScheduler.enqueue(job(1, "a", 0, DownloadJob.Priority.INTERACTIVE));
+
+		assertThat(mStarted.isEmpty(), is(true));
+
+		mScheduler.setNetworkState(NetworkState.UNMETERED);
+
+		assertThat(mStarted.size(), is(1));
+	}
+
+	@Test
+	public void testShouldIgnoreDuplicateTracks() {
+		mScheduler.enqueue(job(1, "a", 0, DownloadJob.Priority.BULK));
+		mScheduler.enqueue(job(1, "a", 0, DownloadJob.Priority.INTERACTIVE));
+
+		start();
+
+		assertThat(mStarted.size(), is(1));
+	}
+
+	@Test
+	public void testShouldRestoreQueueFromDisk() {
+		mScheduler.enqueue(job(1, "a", 0, DownloadJob.Priority.BULK));
+		mScheduler.enqueue(job(2, "b", 0, DownloadJob.Priority.INTERACTIVE));
+
+		mScheduler = createScheduler();
+		mScheduler.load(false);
+		start();
+
+		assertThat(mStarted, equalTo(Arrays.asList(2L, 1L)));
+	}
+
+	@Test
+	public void testShouldRequeueResumableFailures() {
+		start();
+		mScheduler.enqueue(job(1, "a", 0, DownloadJob.Priority.INTERACTIVE));
+
+		mScheduler.onFinished("/sdcard/Music/track-1.mp3.tmp", false, true);
+
+		assertThat(mStarted, equalTo(Arrays.asList(1L, 1L)));
+
+		mScheduler.onFinished("/sdcard/Music/track-1.mp3", false, false);
+
+		assertThat(mScheduler.getRunningCount(), is(0));
+		assertThat(mScheduler.hasQueuedJobs(), is(false));
+	}
+}
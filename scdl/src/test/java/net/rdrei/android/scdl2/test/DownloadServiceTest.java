@@ -1,7 +1,9 @@
 package net.rdrei.android.scdl2.test;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import net.rdrei.android.scdl2.api.APIException;
 import net.rdrei.android.scdl2.api.ServiceManager;
@@ -14,6 +16,14 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.thoughtcrime.ssl.pinning.PinningTrustManager;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
 import android.net.Uri;
 
 import com.google.inject.AbstractModule;
@@ -60,4 +70,67 @@ public class DownloadServiceTest {
 		Uri uri = service.resolveUri("44276907");
 		assertThat(uri.toString(), equalTo(DOWNLOAD_URL));
 	}
+
+	@Test
+	public void testShouldUseSharedSocketFactory() throws APIException {
+		final DownloadService service = mServiceManager.downloadService();
+		service.resolveUri("44276907");
+		final HttpsURLConnection first = (HttpsURLConnection) mUrlConnectionFactory
+				.getConnection();
+
+		mServiceManager.downloadService().resolveUri("44276907");
+		final HttpsURLConnection second = (HttpsURLConnection) mUrlConnectionFactory
+				.getConnection();
+
+		assertThat(first.getSSLSocketFactory(), sameInstance(TestHelper.getInjector()
+				.getInstance(SSLSocketFactory.class)));
+		assertThat(second.getSSLSocketFactory(), sameInstance(first.getSSLSocketFactory()));
+	}
+
+	@Test
+	public void testBatchResolver() throws InterruptedException {
+		final DownloadService service = mServiceManager.downloadService();
+		final List<String> ids = Arrays.asList("44276907", "116980406", "13028824");
+		final DownloadService.Batch batch = service.resolveUris(ids, 2);
+		final Set<String> resolved = new HashSet<String>();
+
+		while (batch.hasNext()) {
+			final DownloadService.Resolution resolution = batch.next();
+			assertThat(resolution.isSuccessful(), is(true));
+			assertThat(resolution.getUri().toString(), equalTo(DOWNLOAD_URL));
+			resolved.add(resolution.getId());
+		}
+
+		assertThat(resolved, equalTo((Set<String>) new HashSet<String>(ids)));
+	}
+
+	@Test
+	public void testBatchResolverReportsErrorsPerId() throws InterruptedException {
+		mUrlConnectionFactory.setResponseCode(404);
+		final DownloadService service = mServiceManager.downloadService();
+		final DownloadService.Batch batch = service.resolveUris(Arrays.asList("1", "2"));
+		int failed = 0;
+
+		while (batch.hasNext()) {
+			final DownloadService.Resolution resolution = batch.next();
+			assertThat(resolution.isSuccessful(), is(false));
+			assertThat(resolution.getError().getCode(), is(404));
+			failed++;
+		}
+
+		assertThat(failed, is(2));
+	}
+
+	@Test
+	public void testBatchResolverReportsRedirectsWithoutLocation()
+			throws InterruptedException {
+		mUrlConnectionFactory.setHeaderField("Location", null);
+		final DownloadService service = mServiceManager.downloadService();
+		final DownloadService.Batch batch = service.resolveUris(Arrays.asList("1"));
+
+		final DownloadService.Resolution resolution = batch.next();
+		assertThat(resolution.isSuccessful(), is(false));
+		assertThat(resolution.getError().getCode(), is(302));
+		assertThat(batch.hasNext(), is(false));
+	}
 }
\ No newline at end of file
@@ -0,0 +1,100 @@
+package net.rdrei.android.scdl2.test;
+
+import android.net.Uri;
+
+import net.rdrei.android.scdl2.api.APIException;
+import net.rdrei.android.scdl2.api.cache.DownloadUriCache;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class DownloadUriCacheTest {
+	private static final String ID = "44276907";
+	private static final long TTL = 10 * 60 * 1000L;
+	private static final long MARGIN = 60 * 1000L;
+
+	// Runs prefetches right away, so the tests don't have to wait for them.
+	private static final Executor DIRECT_EXECUTOR = new Executor() {
+		@Override
+		public void execute(final Runnable command) {
+			command.run();
+		}
+	};
+
+	private final AtomicInteger mResolves = new AtomicInteger();
+
+	private DownloadUriCache.Resolver resolveTo(final String url) {
+		return new DownloadUriCache.Resolver() {
+			@Override
+			public Uri resolve() {
+				mResolves.incrementAndGet();
+				return Uri.parse(url);
+			}
+		};
+	}
+
+	private static String signedUrl(final long expiresAt) {
+		return "https://ec-media.soundcloud.com/abc.128.mp3?AWSAccessKeyId=AKIA&Expires="
+				+ expiresAt / 1000 + "&Signature=xyz";
+	}
+
+	@Test
+	public void testShouldUsePrefetchedUri() throws APIException {
+		final DownloadUriCache cache = new DownloadUriCache(DIRECT_EXECUTOR, TTL, MARGIN);
+		final String url = signedUrl(System.currentTimeMillis() + 2 * MARGIN);
+
+		cache.prefetch(ID, resolveTo(url));
+		cache.prefetch(ID, resolveTo(url));
+
+		assertThat(cache.get(ID, resolveTo("https://example.com/fresh.mp3")).toString(),
+				equalTo(url));
+		assertThat(mResolves.get(), is(1));
+	}
+
+	@Test
+	public void testShouldResolveExpiredUriAgain() throws APIException {
+		final DownloadUriCache cache = new DownloadUriCache(DIRECT_EXECUTOR, TTL, MARGIN);
+		// Still valid, but not long enough to start the download.
+		cache.prefetch(ID, resolveTo(signedUrl(System.currentTimeMillis() + MARGIN / 2)));
+
+		assertThat(cache.get(ID, resolveTo("https://example.com/fresh.mp3")).toString(),
+				equalTo("https://example.com/fresh.mp3"));
+		assertThat(mResolves.get(), is(2));
+	}
+
+	@Test
+	public void testShouldResolveAgainAfterFailedPrefetch() throws APIException {
+		final DownloadUriCache cache = new DownloadUriCache(DIRECT_EXECUTOR, TTL, MARGIN);
+		cache.prefetch(ID, new DownloadUriCache.Resolver() {
+			@Override
+			public Uri resolve() throws APIException {
+				throw new APIException("Offline.", -1);
+			}
+		});
+
+		assertThat(cache.get(ID, resolveTo("https://example.com/fresh.mp3")).toString(),
+				equalTo("https://example.com/fresh.mp3"));
+	}
+
+	@Test
+	public void testShouldReadExpiryFromSignatures() {
+		assertThat(DownloadUriCache.getExpiry(Uri.parse(signedUrl(1406283917000L)), 0),
+				is(1406283917000L));
+		// {"Statement":[{"Condition":{"DateLessThan":{"AWS:EpochTime":1406283917}}}]}
+		assertThat(DownloadUriCache.getExpiry(Uri.parse("https://cf-media.sndcdn.com/abc.mp3"
+				+ "?Policy=eyJTdGF0ZW1lbnQiOlt7IkNvbmRpdGlvbiI6eyJEYXRlTGVzc1RoYW4iOnsiQVdTOkVw"
+				+ "b2NoVGltZSI6MTQwNjI4MzkxN319fV19&Signature=xyz&Key-Pair-Id=APKA"), 0),
+				is(1406283917000L));
+		assertThat(DownloadUriCache.getExpiry(Uri.parse("https://example.com/abc.mp3"), 42),
+				is(42L));
+	}
+}
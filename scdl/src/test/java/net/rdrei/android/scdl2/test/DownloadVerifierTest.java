@@ -0,0 +1,111 @@
+package net.rdrei.android.scdl2.test;
+
+import net.rdrei.android.scdl2.download.DownloadVerifier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class DownloadVerifierTest {
+	private static final int CONTENT_SIZE = 64 * 1024 + 5;
+
+	private byte[] mContent;
+	private File mFile;
+	private URL mUrl;
+	private FakeRangeURLConnectionFactory mConnectionFactory;
+	private DownloadVerifier mVerifier;
+
+	@Before
+	public void setUp() throws IOException {
+		mContent = new byte[CONTENT_SIZE];
+		new Random(42).nextBytes(mContent);
+
+		mFile = File.createTempFile("scdl", ".mp3");
+		mUrl = new URL("http://ak-media.soundcloud.com/track.mp3");
+		mConnectionFactory = new FakeRangeURLConnectionFactory(mContent);
+		mVerifier = new DownloadVerifier(mConnectionFactory);
+	}
+
+	@After
+	public void tearDown() {
+		mFile.delete();
+	}
+
+	private void write(final int length) throws IOException {
+		final OutputStream output = new FileOutputStream(mFile);
+		try {
+			output.write(mContent, 0, length);
+		} finally {
+			output.close();
+		}
+	}
+
+	private byte[] read() throws IOException {
+		final byte[] content = new byte[(int) mFile.length()];
+		final InputStream input = new FileInputStream(mFile);
+		try {
+			int offset = 0;
+			while (offset < content.length) {
+				offset += input.read(content, offset, content.length - offset);
+			}
+		} finally {
+			input.close();
+		}
+
+		return content;
+	}
+
+	@Test
+	public void testShouldVerifySize() throws IOException {
+		write(CONTENT_SIZE);
+
+		assertThat(mVerifier.verify(mFile, CONTENT_SIZE), is(true));
+		assertThat(mVerifier.verify(mFile, CONTENT_SIZE + 1), is(false));
+		// Nothing to compare with.
+		assertThat(mVerifier.verify(mFile, 0), is(true));
+	}
+
+	@Test
+	public void testShouldNotRepairByDefault() throws IOException {
+		write(1000);
+
+		assertThat(mVerifier.check(mUrl, mFile, CONTENT_SIZE), is(false));
+		assertThat(mConnectionFactory.getRequestCount(), is(0));
+	}
+
+	@Test
+	public void testShouldFetchMissingEnd() throws IOException {
+		write(1000);
+		mVerifier.setRepairEnabled(true);
+
+		assertThat(mVerifier.check(mUrl, mFile, CONTENT_SIZE), is(true));
+		assertThat(read(), equalTo(mContent));
+		assertThat(mConnectionFactory.getRequestCount(), is(1));
+	}
+
+	@Test
+	public void testShouldNotRepairWithoutRangeSupport() throws IOException {
+		write(1000);
+		mConnectionFactory.setSupportsRanges(false);
+		mVerifier.setRepairEnabled(true);
+
+		assertThat(mVerifier.check(mUrl, mFile, CONTENT_SIZE), is(false));
+		assertThat(mFile.length(), is(1000L));
+	}
+}
@@ -0,0 +1,67 @@
+package net.rdrei.android.scdl2.test;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+
+import net.rdrei.android.scdl2.api.EntityDecoder;
+import net.rdrei.android.scdl2.api.entity.PlaylistEntity;
+import net.rdrei.android.scdl2.api.entity.TrackEntity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class EntityDecoderTest {
+	private static final TypeToken<PlaylistEntity> PLAYLIST_TOKEN =
+			new TypeToken<PlaylistEntity>() {
+			};
+
+	private InputStream openFixture(final String name) {
+		return getClass().getResourceAsStream("/fixtures/" + name);
+	}
+
+	@Test
+	public void testShouldDecodeFromStream() throws IOException {
+		EntityDecoder.prepare(PlaylistEntity.class);
+		final PlaylistEntity entity = EntityDecoder.decode(openFixture("playlist.json"),
+				PLAYLIST_TOKEN);
+
+		assertThat(entity.getTitle(), startsWith("3LAU, Paris & Simo"));
+		assertThat(entity.getTracks().size(), equalTo(3));
+		assertThat(entity.getTracks().get(0).getId(), equalTo(116980406l));
+	}
+
+	@Test
+	public void testShouldDecodeDifferentTypes() throws IOException {
+		final TrackEntity track = EntityDecoder.decode(openFixture("track.json"),
+				new TypeToken<TrackEntity>() {
+				});
+
+		assertThat(track.getUser(), notNullValue());
+	}
+
+	@Test
+	public void testShouldReturnNullForEmptyResponse() throws IOException {
+		final PlaylistEntity entity = EntityDecoder.decode(
+				new ByteArrayInputStream(new byte[0]), PLAYLIST_TOKEN);
+
+		assertThat(entity, nullValue());
+	}
+
+	@Test(expected = JsonSyntaxException.class)
+	public void testShouldFailOnUnexpectedJson() throws IOException {
+		EntityDecoder.decode(new ByteArrayInputStream("[1, 2]".getBytes("UTF-8")),
+				PLAYLIST_TOKEN);
+	}
+}
@@ -0,0 +1,133 @@
+package net.rdrei.android.scdl2.test;
+
+import net.rdrei.android.scdl2.api.URLConnectionFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves a fixed byte array and answers HTTP Range requests like a CDN would.
+ */
+public class FakeRangeURLConnectionFactory implements URLConnectionFactory {
+	private static final Pattern RANGE_PATTERN = Pattern.compile("^bytes=(\\d+)-(\\d*)$");
+
+	private final byte[] mContent;
+	private boolean mSupportsRanges = true;
+	private Integer mResponseCode;
+	private String mEtag;
+	private final AtomicInteger mRequestCount = new AtomicInteger();
+
+	public FakeRangeURLConnectionFactory(final byte[] content) {
+		mContent = content;
+	}
+
+	public void setSupportsRanges(final boolean supportsRanges) {
+		mSupportsRanges = supportsRanges;
+	}
+
+	/**
+	 * Answer every request with the given code instead of the content.
+	 */
+	public void setResponseCode(final int responseCode) {
+		mResponseCode = responseCode;
+	}
+
+	/**
+	 * Sends the ETag with every response and only honours If-Range requests matching it.
+	 */
+	public void setEtag(final String etag) {
+		mEtag = etag;
+	}
+
+	public int getRequestCount() {
+		return mRequestCount.get();
+	}
+
+	@Override
+	public URLConnection create(final URL url) throws IOException {
+		mRequestCount.incrementAndGet();
+		return new RangeURLConnection(url);
+	}
+
+	private class RangeURLConnection extends HttpURLConnection {
+		private long mStart;
+		private long mEnd;
+
+		protected RangeURLConnection(final URL url) {
+			super(url);
+		}
+
+		@Override
+		public int getResponseCode() throws IOException {
+			if (mResponseCode != null) {
+				return mResponseCode;
+			}
+
+			mStart = 0;
+			mEnd = mContent.length - 1;
+
+			final String range = getRequestProperty("Range");
+			if (!mSupportsRanges || range == null) {
+				return HTTP_OK;
+			}
+
+			final Matcher matcher = RANGE_PATTERN.matcher(range);
+			if (!matcher.matches()) {
+				return HTTP_OK;
+			}
+
+			final String ifRange = getRequestProperty("If-Range");
+			if (ifRange != null && !ifRange.equals(mEtag)) {
+				return HTTP_OK;
+			}
+
+			mStart = Long.parseLong(matcher.group(1));
+			if (!matcher.group(2).isEmpty()) {
+				mEnd = Math.min(mEnd, Long.parseLong(matcher.group(2)));
+			}
+
+			return HTTP_PARTIAL;
+		}
+
+		@Override
+		public String getHeaderField(final String name) {
+			if ("Content-Length".equalsIgnoreCase(name)) {
+				return String.valueOf(mEnd - mStart + 1);
+			}
+			if ("ETag".equalsIgnoreCase(name)) {
+				return mEtag;
+			}
+			if ("Content-Range".equalsIgnoreCase(name) && mSupportsRanges) {
+				return String.format(Locale.US, "bytes %d-%d/%d", mStart, mEnd,
+						mContent.length);
+			}
+			return null;
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			return new ByteArrayInputStream(mContent, (int) mStart, (int) (mEnd - mStart + 1));
+		}
+
+		@Override
+		public void connect() throws IOException {
+		}
+
+		@Override
+		public void disconnect() {
+		}
+
+		@Override
+		public boolean usingProxy() {
+			return false;
+		}
+	}
+}
@@ -21,6 +21,7 @@ public class FakeURLConnectionFactoryImpl implements URLConnectionFactory {
 	private Integer mResponseCode;
 	private final Map<String, String> mHeaderFields;
 	protected URL mUrl;
+	private URLConnection mConnection;
 
 	/**
 	 * Creates a new FakeURL factory that returns the given resource fixture as
@@ -48,6 +49,7 @@ public class FakeURLConnectionFactoryImpl implements URLConnectionFactory {
 		}
 		
 		connection.setResponseHeaders(mHeaderFields);
+		mConnection = connection;
 
 		return connection;
 	}
@@ -56,6 +58,13 @@ public class FakeURLConnectionFactoryImpl implements URLConnectionFactory {
 		return mUrl;
 	}
 
+	/**
+	 * @return The connection created last.
+	 */
+	public URLConnection getConnection() {
+		return mConnection;
+	}
+
 	public void setResponseCode(int i) {
 		mResponseCode = i;
 	}
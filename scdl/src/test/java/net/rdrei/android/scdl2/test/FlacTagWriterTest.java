@@ -0,0 +1,171 @@
+package net.rdrei.android.scdl2.test;
+
+import net.rdrei.android.scdl2.tag.FlacTagWriter;
+import net.rdrei.android.scdl2.tag.TrackTags;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class FlacTagWriterTest {
+	private static final int STREAMINFO_SIZE = 34;
+	private static final int PADDING = 1024;
+
+	private byte[] mAudio;
+	private File mFile;
+	private FlacTagWriter mWriter;
+
+	@Before
+	public void setUp() throws IOException {
+		mAudio = new byte[100 * 1024];
+		new Random(42).nextBytes(mAudio);
+
+		mFile = File.createTempFile("scdl", ".flac");
+		mWriter = new FlacTagWriter(256);
+	}
+
+	@After
+	public void tearDown() {
+		mFile.delete();
+	}
+
+	/**
+	 * Writes a file with a STREAMINFO and a padding block.
+	 */
+	private void writeFile(final int padding) throws IOException {
+		final ByteArrayOutputStream content = new ByteArrayOutputStream();
+		content.write(new byte[]{'f', 'L', 'a', 'C'});
+		content.write(new byte[]{0, 0, 0, STREAMINFO_SIZE});
+		content.write(new byte[STREAMINFO_SIZE]);
+		content.write(new byte[]{(byte) 0x81, 0, (byte) (padding >> 8), (byte) padding});
+		content.write(new byte[padding]);
+		content.write(mAudio);
+
+		final OutputStream output = new FileOutputStream(mFile);
+		try {
+			output.write(content.toByteArray());
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Writes a file with a STREAMINFO and the given Vorbis comment block.
+	 */
+	private void writeFileWithComments(final byte[] comments) throws IOException {
+		final ByteArrayOutputStream content = new ByteArrayOutputStream();
+		content.write(new byte[]{'f', 'L', 'a', 'C'});
+		content.write(new byte[]{0, 0, 0, STREAMINFO_SIZE});
+		content.write(new byte[STREAMINFO_SIZE]);
+		content.write(new byte[]{(byte) 0x84, 0, 0, (byte) comments.length});
+		content.write(comments);
+		content.write(mAudio);
+
+		final OutputStream output = new FileOutputStream(mFile);
+		try {
+			output.write(content.toByteArray());
+		} finally {
+			output.close();
+		}
+	}
+
+	private byte[] read() throws IOException {
+		final RandomAccessFile file = new RandomAccessFile(mFile, "r");
+		try {
+			final byte[] content = new byte[(int) file.length()];
+			file.readFully(content);
+			return content;
+		} finally {
+			file.close();
+		}
+	}
+
+	private byte[] readAudio() throws IOException {
+		final byte[] content = read();
+		return Arrays.copyOfRange(content, content.length - mAudio.length, content.length);
+	}
+
+	private String readMetadata() throws IOException {
+		final byte[] content = read();
+		return new String(content, 0, content.length - mAudio.length, "UTF-8");
+	}
+
+	@Test
+	public void testShouldUsePadding() throws IOException {
+		writeFile(PADDING);
+		final long length = mFile.length();
+
+		mWriter.write(mFile, new TrackTags("Title", "\u00c4rtist", new byte[]{1, 2, 3},
+				"image/jpeg"));
+
+		assertThat(mFile.length(), is(length));
+		assertThat(readMetadata().contains("TITLE=Title"), is(true));
+		assertThat(readMetadata().contains("ARTIST=\u00c4rtist"), is(true));
+		assertThat(readMetadata().contains("image/jpeg"), is(true));
+		assertThat(readAudio(), equalTo(mAudio));
+	}
+
+	@Test
+	public void testShouldGrowWithoutPadding() throws IOException {
+		writeFile(0);
+
+		mWriter.write(mFile, new TrackTags("Title", "Artist", null, null));
+
+		assertThat(readMetadata().contains("TITLE=Title"), is(true));
+		assertThat(readAudio(), equalTo(mAudio));
+
+		// The next rewrite fits into the padding added this time.
+		final long length = mFile.length();
+		mWriter.write(mFile, new TrackTags("Other title", null, null, null));
+
+		assertThat(mFile.length(), is(length));
+		assertThat(readMetadata().contains("TITLE=Other title"), is(true));
+		assertThat(readMetadata().contains("TITLE=Title"), is(false));
+		assertThat(readMetadata().contains("ARTIST=Artist"), is(true));
+		assertThat(readAudio(), equalTo(mAudio));
+	}
+
+	@Test(expected = IOException.class)
+	public void testShouldRejectOtherFormats() throws IOException {
+		final OutputStream output = new FileOutputStream(mFile);
+		try {
+			output.write(mAudio);
+		} finally {
+			output.close();
+		}
+
+		mWriter.write(mFile, new TrackTags("Title", "Artist", null, null));
+	}
+
+	@Test(expected = IOException.class)
+	public void testShouldRejectTruncatedComments() throws IOException {
+		// The vendor string claims 100 bytes, but there are only two.
+		writeFileWithComments(new byte[]{100, 0, 0, 0, 'a', 'b'});
+
+		mWriter.write(mFile, new TrackTags("Title", "Artist", null, null));
+	}
+
+	@Test(expected = IOException.class)
+	public void testShouldRejectOversizedCommentCount() throws IOException {
+		// Empty vendor string, followed by a count beyond 2^31.
+		writeFileWithComments(new byte[]{0, 0, 0, 0, -1, -1, -1, -1});
+
+		mWriter.write(mFile, new TrackTags("Title", "Artist", null, null));
+	}
+}
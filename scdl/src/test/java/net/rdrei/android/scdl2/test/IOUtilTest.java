@@ -0,0 +1,164 @@
+package net.rdrei.android.scdl2.test;
+
+import net.rdrei.android.scdl2.IOUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class IOUtilTest {
+	private static final int CONTENT_SIZE = 128 * 1024 + 3;
+
+	private byte[] mContent;
+	private File mSource;
+	private File mDestination;
+
+	@Before
+	public void setUp() throws IOException {
+		mContent = new byte[CONTENT_SIZE];
+		new Random(42).nextBytes(mContent);
+
+		mSource = File.createTempFile("scdl", ".mp3.tmp");
+		mDestination = new File(mSource.getParentFile(), mSource.getName() + ".mp3");
+
+		final FileOutputStream out = new FileOutputStream(mSource);
+		try {
+			out.write(mContent);
+		} finally {
+			out.close();
+		}
+	}
+
+	@After
+	public void tearDown() {
+		mSource.delete();
+		mDestination.delete();
+	}
+
+	private byte[] read(final File file) throws IOException {
+		final RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			final byte[] content = new byte[(int) in.length()];
+			in.readFully(content);
+			return content;
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void testMoveFileShouldRemoveSource() throws IOException {
+		IOUtil.moveFile(mSource, mDestination);
+
+		assertThat(mSource.exists(), is(false));
+		assertThat(read(mDestination), equalTo(mContent));
+	}
+
+	@Test
+	public void testCopyFileShouldReplaceDestination() throws IOException {
+		final FileOutputStream out = new FileOutputStream(mDestination);
+		try {
+			out.write(new byte[]{1, 2, 3});
+		} finally {
+			out.close();
+		}
+
+		IOUtil.copyFile(mSource, mDestination);
+
+		assertThat(read(mDestination), equalTo(mContent));
+		assertThat(read(mSource), equalTo(mContent));
+		assertThat(new File(mDestination.getPath() + ".part").exists(), is(false));
+	}
+
+	@Test
+	public void testTransferShouldReportProgressPerChunk() throws IOException {
+		final IOUtil.Transfer transfer = new IOUtil.Transfer(mSource, mDestination);
+		final long[] last = new long[2];
+		final int[] calls = new int[1];
+
+		transfer.setChunkSize(32 * 1024);
+		transfer.setListener(new IOUtil.Transfer.Listener() {
+			@Override
+			public void onProgress(final long transferred, final long total,
+					final long bytesPerSecond) {
+				last[0] = transferred;
+				last[1] = total;
+				calls[0]++;
+			}
+		});
+		transfer.copy();
+
+		assertThat(calls[0], is(5));
+		assertThat(last[0], is((long) CONTENT_SIZE));
+		assertThat(last[1], is((long) CONTENT_SIZE));
+	}
+
+	@Test
+	public void testTransferShouldStopWhenCancelled() throws IOException {
+		final IOUtil.Transfer transfer = new IOUtil.Transfer(mSource, mDestination);
+		transfer.setChunkSize(32 * 1024);
+		transfer.setListener(new IOUtil.Transfer.Listener() {
+			@Override
+			public void onProgress(final long transferred, final long total,
+					final long bytesPerSecond) {
+				transfer.cancel();
+			}
+		});
+
+		try {
+			transfer.copy();
+			fail("Expected the transfer to be cancelled.");
+		} catch (final InterruptedIOException e) {
+			assertThat(e.bytesTransferred, is(32 * 1024));
+		}
+
+		assertThat(mDestination.exists(), is(false));
+		assertThat(new File(mDestination.getPath() + ".part").exists(), is(false));
+		assertThat(read(mSource), equalTo(mContent));
+	}
+
+	@Test
+	public void testTransferShouldVerifyChecksum() throws IOException {
+		final CRC32 expected = new CRC32();
+		expected.update(mContent);
+
+		final IOUtil.Transfer transfer = new IOUtil.Transfer(mSource, mDestination);
+		transfer.setChecksum(new CRC32(), expected.getValue());
+		transfer.move();
+
+		assertThat(mSource.exists(), is(false));
+		assertThat(read(mDestination), equalTo(mContent));
+	}
+
+	@Test
+	public void testTransferShouldDiscardCopyWithWrongChecksum() throws IOException {
+		final IOUtil.Transfer transfer = new IOUtil.Transfer(mSource, mDestination);
+		transfer.setChecksum(new CRC32(), 42L);
+
+		try {
+			transfer.copy();
+			fail("Expected a checksum error.");
+		} catch (final IOException e) {
+			// Expected.
+		}
+
+		assertThat(mDestination.exists(), is(false));
+		assertThat(new File(mDestination.getPath() + ".part").exists(), is(false));
+	}
+}
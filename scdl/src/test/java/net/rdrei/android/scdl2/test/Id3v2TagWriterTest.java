@@ -0,0 +1,149 @@
+package net.rdrei.android.scdl2.test;
+
+import net.rdrei.android.scdl2.tag.Id3v2TagWriter;
+import net.rdrei.android.scdl2.tag.TrackTags;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class Id3v2TagWriterTest {
+	private static final int PADDING = 256;
+
+	private byte[] mAudio;
+	private File mFile;
+	private Id3v2TagWriter mWriter;
+
+	@Before
+	public void setUp() throws IOException {
+		mAudio = new byte[100 * 1024];
+		new Random(42).nextBytes(mAudio);
+		// Must not look like a tag.
+		mAudio[0] = (byte) 0xff;
+
+		mFile = File.createTempFile("scdl", ".mp3");
+		final OutputStream output = new FileOutputStream(mFile);
+		try {
+			output.write(mAudio);
+		} finally {
+			output.close();
+		}
+
+		mWriter = new Id3v2TagWriter(PADDING);
+	}
+
+	@After
+	public void tearDown() {
+		mFile.delete();
+	}
+
+	private byte[] read() throws IOException {
+		final RandomAccessFile file = new RandomAccessFile(mFile, "r");
+		try {
+			final byte[] content = new byte[(int) file.length()];
+			file.readFully(content);
+			return content;
+		} finally {
+			file.close();
+		}
+	}
+
+	private static int getTagLength(final byte[] content) {
+		return 10 + ((content[6] & 0x7f) << 21 | (content[7] & 0x7f) << 14
+				| (content[8] & 0x7f) << 7 | (content[9] & 0x7f));
+	}
+
+	private static boolean contains(final byte[] content, final int length, final String text) {
+		return new String(content, 0, length, Charset.forName("ISO-8859-1")).contains(text);
+	}
+
+	@Test
+	public void testShouldPrependTag() throws IOException {
+		mWriter.write(mFile, new TrackTags("Title", "Artist", new byte[]{1, 2, 3}, "image/jpeg"));
+
+		final byte[] content = read();
+		final int length = getTagLength(content);
+		assertThat(new String(content, 0, 3, "ISO-8859-1"), equalTo("ID3"));
+		assertThat(contains(content, length, "TIT2"), is(true));
+		assertThat(contains(content, length, "Title"), is(true));
+		assertThat(contains(content, length, "Artist"), is(true));
+		assertThat(contains(content, length, "image/jpeg"), is(true));
+		assertThat(Arrays.copyOfRange(content, length, content.length), equalTo(mAudio));
+	}
+
+	@Test
+	public void testShouldReusePadding() throws IOException {
+		mWriter.write(mFile, new TrackTags("A long title", "Artist", null, null));
+		final long length = mFile.length();
+
+		mWriter.write(mFile, new TrackTags("Shorter", "Artist", null, null));
+
+		final byte[] content = read();
+		final int tagLength = getTagLength(content);
+		assertThat(mFile.length(), is(length));
+		assertThat(contains(content, tagLength, "Shorter"), is(true));
+		assertThat(contains(content, tagLength, "A long title"), is(false));
+		assertThat(Arrays.copyOfRange(content, tagLength, content.length), equalTo(mAudio));
+	}
+
+	@Test
+	public void testShouldReplaceFileWhenGrowing() throws IOException {
+		mWriter.write(mFile, new TrackTags("Title", "Artist", null, null));
+		// Doesn't fit into the padding.
+		mWriter.write(mFile, new TrackTags("Title", "Artist", new byte[2 * PADDING], "image/png"));
+
+		final byte[] content = read();
+		final int length = getTagLength(content);
+		assertThat(contains(content, length, "image/png"), is(true));
+		assertThat(Arrays.copyOfRange(content, length, content.length), equalTo(mAudio));
+		assertThat(new File(mFile.getPath() + ".tagging").exists(), is(false));
+	}
+
+	@Test
+	public void testShouldKeepOtherFrames() throws IOException {
+		mWriter.write(mFile, new TrackTags("Title", "Artist", null, null));
+		mWriter.write(mFile, new TrackTags("New title", null, null, null));
+
+		final byte[] content = read();
+		final int length = getTagLength(content);
+		assertThat(contains(content, length, "New title"), is(true));
+		assertThat(contains(content, length, "Artist"), is(true));
+	}
+
+	@Test(expected = IOException.class)
+	public void testShouldRejectOversizedFrames() throws IOException {
+		final ByteArrayOutputStream content = new ByteArrayOutputStream();
+		// ID3v2.3 header with a 20 byte body.
+		content.write(new byte[]{'I', 'D', '3', 3, 0, 0, 0, 0, 0, 20});
+		// The frame claims close to 2^31 bytes, which would overflow when adding the header.
+		content.write(new byte[]{'T', 'I', 'T', '2', 0x7f, -1, -1, -8, 0, 0});
+		content.write(new byte[10]);
+		content.write(mAudio);
+
+		final OutputStream output = new FileOutputStream(mFile);
+		try {
+			output.write(content.toByteArray());
+		} finally {
+			output.close();
+		}
+
+		mWriter.write(mFile, new TrackTags("Title", "Artist", null, null));
+	}
+}
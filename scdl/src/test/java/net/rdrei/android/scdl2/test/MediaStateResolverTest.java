@@ -8,7 +8,7 @@ import net.rdrei.android.scdl2.api.MediaDownloadType;
 import net.rdrei.android.scdl2.api.PendingDownload;
 import net.rdrei.android.scdl2.api.service.PlaylistService;
 import net.rdrei.android.scdl2.api.service.TrackService;
-import net.rdrei.android.scdl2.ui.AbstractMediaStateLoaderTask;
+import net.rdrei.android.scdl2.ui.MediaStateResolver;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -18,23 +18,25 @@ import org.mockito.MockitoAnnotations;
 import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 
+import roboguice.RoboGuice;
+
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
 @RunWith(RobolectricTestRunner.class)
-public class AbstractMediaStateLoaderTaskTest {
+public class MediaStateResolverTest {
 	@Mock
 	TrackService mTrackService;
 
 	@Mock
 	PlaylistService mPlaylistService;
 
-	Activity mContext;
+	MediaStateResolver mResolver;
 
 	@Before
 	public void setUp() throws Exception {
 		MockitoAnnotations.initMocks(this);
-		mContext = Robolectric.buildActivity(Activity.class).create().get();
+		final Activity context = Robolectric.buildActivity(Activity.class).create().get();
 
 		TestHelper.overridenInjector(this, new AbstractModule() {
 			@Override
@@ -44,27 +46,21 @@ public class AbstractMediaStateLoaderTaskTest {
 			}
 		});
 
+		// Resolves within the activity's context scope.
+		mResolver = RoboGuice.getInjector(context).getInstance(MediaStateResolver.class);
 	}
 
 	@Test
-	public void testCallForTrack() throws Exception {
-		final PendingDownload pendingDownload = new PendingDownload("1234",
-				MediaDownloadType.TRACK);
-		final AbstractMediaStateLoaderTask task = new AbstractMediaStateLoaderTask(mContext,
-				pendingDownload);
-		task.call();
+	public void testResolveTrack() throws Exception {
+		mResolver.resolve(new PendingDownload("1234", MediaDownloadType.TRACK));
 
 		verify(mTrackService).getTrack("1234");
 		verifyZeroInteractions(mPlaylistService);
 	}
 
 	@Test
-	public void testCallForPlayList() throws Exception {
-		final PendingDownload pendingDownload = new PendingDownload("1234",
-				MediaDownloadType.PLAYLIST);
-		final AbstractMediaStateLoaderTask task = new AbstractMediaStateLoaderTask(mContext,
-				pendingDownload);
-		task.call();
+	public void testResolvePlaylist() throws Exception {
+		mResolver.resolve(new PendingDownload("1234", MediaDownloadType.PLAYLIST));
 
 		verify(mPlaylistService).getPlaylist("1234");
 		verifyZeroInteractions(mTrackService);
@@ -0,0 +1,69 @@
+package net.rdrei.android.scdl2.test;
+
+import net.rdrei.android.scdl2.api.cache.CacheEntry;
+import net.rdrei.android.scdl2.api.cache.MetadataCache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class MetadataCacheTest {
+	private File mDirectory;
+	private MetadataCache mCache;
+
+	@Before
+	public void setUp() throws IOException {
+		mDirectory = File.createTempFile("scdl", "cache");
+		mDirectory.delete();
+		mCache = new MetadataCache(mDirectory, 2, 3);
+	}
+
+	@After
+	public void tearDown() {
+		mCache.clear();
+		mDirectory.delete();
+	}
+
+	@Test
+	public void testShouldPersistEntries() {
+		mCache.put(new CacheEntry("track:1", "{\\"id\\": 1}", "\\"abc\\"", null));
+
+		final CacheEntry entry = new MetadataCache(mDirectory, 2, 3).get("track:1");
+		assertThat(entry, notNullValue());
+		assertThat(entry.getBody(), equalTo("{\\"id\\": 1}"));
+		assertThat(entry.getEtag(), equalTo("\\"abc\\""));
+		assertThat(entry.hasValidators(), is(true));
+		assertThat(entry.isFresh(60 * 1000), is(true));
+		assertThat(entry.isFresh(-1), is(false));
+	}
+
+	@Test
+	public void testShouldEvictFromDisk() {
+		for (int i = 0; i < 5; i++) {
+			mCache.put(new CacheEntry("track:" + i, "{}", null, null));
+		}
+
+		assertThat(mDirectory.listFiles().length, is(3));
+	}
+
+	@Test
+	public void testShouldRemoveEntries() {
+		mCache.put(new CacheEntry("track:1", "{}", null, null));
+		mCache.remove("track:1");
+
+		assertThat(mCache.get("track:1"), nullValue());
+		assertThat(new MetadataCache(mDirectory, 2, 3).get("track:1"), nullValue());
+	}
+}
@@ -0,0 +1,375 @@
+package net.rdrei.android.scdl2.test;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import net.rdrei.android.scdl2.api.URLConnectionFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the SoundCloud API and its media CDN. Unlike
+ * {@link FakeURLConnectionFactoryImpl} it answers real HTTP requests, so it can be used to
+ * see how the app behaves with many connections, slow responses and failures.
+ * <p/>
+ * Bind {@link #getConnectionFactory()} as the {@link URLConnectionFactory} to send all
+ * requests here, no matter which host they were meant for. Only plain HTTP is served, the
+ * certificate pinning is not part of what this is meant to test.
+ * <p/>
+ * Served resources:
+ * <ul>
+ * <li>/resolve.json: Redirects to a track, or to a playlist for URLs containing /sets/.</li>
+ * <li>/tracks/{id}(.json) and /playlists/{id}(.json): The recorded fixtures.</li>
+ * <li>/tracks/{id}/download: Redirects to the media file of the track.</li>
+ * <li>/media/{id}.mp3: Random content, with support for Range and If-Range.</li>
+ * </ul>
+ */
+public class MockSoundcloudServer {
+	public static final long PLAYLIST_ID = 13028824;
+	public static final String MEDIA_PATH = "/media/";
+
+	private static final String HOST = "127.0.0.1";
+	private static final int CHUNK_SIZE = 8 * 1024;
+
+	private static final Pattern TRACK_DOWNLOAD_PATTERN = Pattern.compile(
+			"^/tracks/(\\d+)/download$");
+	private static final Pattern TRACK_PATTERN = Pattern.compile("^/tracks/(\\d+)(\\.json)?$");
+	private static final Pattern PLAYLIST_PATTERN = Pattern.compile(
+			"^/playlists/(\\d+)(\\.json)?$");
+	private static final Pattern RANGE_PATTERN = Pattern.compile("^bytes=(\\d+)-(\\d*)$");
+
+	private final HttpServer mServer;
+	private final ExecutorService mExecutor;
+	private final byte[] mMedia;
+	private final String mMediaEtag;
+	private final byte[] mTrackFixture;
+	private final byte[] mPlaylistFixture;
+	private final byte[] mResolveFixture;
+
+	private final List<Fault> mFaults = new CopyOnWriteArrayList<Fault>();
+	private final AtomicInteger mRequests = new AtomicInteger();
+	private final AtomicInteger mActiveRequests = new AtomicInteger();
+	private final AtomicInteger mMaxActiveRequests = new AtomicInteger();
+
+	private volatile long mLatencyMs;
+	private volatile long mBytesPerSecond;
+	private volatile boolean mRangeSupported = true;
+
+	/**
+	 * Injected failure for the next requests of a path.
+	 */
+	private static class Fault {
+		final String mPathPrefix;
+		final int mCode;
+		final long mTruncateAfter;
+		final AtomicInteger mRemaining;
+
+		Fault(final String pathPrefix, final int code, final long truncateAfter,
+				final int times) {
+			mPathPrefix = pathPrefix;
+			mCode = code;
+			mTruncateAfter = truncateAfter;
+			mRemaining = new AtomicInteger(times);
+		}
+	}
+
+	/**
+	 * @param mediaSize Size of the media files served.
+	 */
+	public MockSoundcloudServer(final int mediaSize) throws IOException {
+		mMedia = new byte[mediaSize];
+		new Random(42).nextBytes(mMedia);
+		mMediaEtag = "\"media-" + mediaSize + "\"";
+
+		mTrackFixture = readFixture("track.json");
+		mPlaylistFixture = readFixture("playlist.json");
+		mResolveFixture = readFixture("resolve.json");
+
+		mServer = HttpServer.create(new InetSocketAddress(InetAddress.getByName(HOST), 0), 0);
+		mExecutor = Executors.newCachedThreadPool();
+		mServer.setExecutor(mExecutor);
+		mServer.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				MockSoundcloudServer.this.handle(exchange);
+			}
+		});
+	}
+
+	public void start() {
+		mServer.start();
+	}
+
+	public void shutdown() {
+		mServer.stop(0);
+		mExecutor.shutdownNow();
+	}
+
+	public int getPort() {
+		return mServer.getAddress().getPort();
+	}
+
+	public String getBaseUrl() {
+		return "http://" + HOST + ":" + getPort();
+	}
+
+	public byte[] getMedia() {
+		return mMedia;
+	}
+
+	/**
+	 * @return Factory that opens connections to this server for any URL.
+	 */
+	public URLConnectionFactory getConnectionFactory() {
+		return new URLConnectionFactory() {
+			@Override
+			public URLConnection create(final URL url) throws IOException {
+				return new URL("http", HOST, getPort(), url.getFile()).openConnection();
+			}
+		};
+	}
+
+	/**
+	 * Delays every response by the given time.
+	 */
+	public void setLatency(final long latencyMs) {
+		mLatencyMs = latencyMs;
+	}
+
+	/**
+	 * Limits the rate every single response body is sent with, like a CDN throttling each
+	 * connection. 0 disables the limit.
+	 */
+	public void setBandwidth(final long bytesPerSecond) {
+		mBytesPerSecond = bytesPerSecond;
+	}
+
+	/**
+	 * If false, Range headers are ignored and media is always sent in full.
+	 */
+	public void setRangeSupported(final boolean rangeSupported) {
+		mRangeSupported = rangeSupported;
+	}
+
+	/**
+	 * Answers the next requests for paths starting with the prefix with the status code.
+	 */
+	public void failRequests(final String pathPrefix, final int code, final int times) {
+		mFaults.add(new Fault(pathPrefix, code, -1, times));
+	}
+
+	/**
+	 * Closes the connection of the next requests for paths starting with the prefix after
+	 * the given number of body bytes.
+	 */
+	public void truncateResponses(final String pathPrefix, final long bytes, final int times) {
+		mFaults.add(new Fault(pathPrefix, 0, bytes, times));
+	}
+
+	public int getRequestCount() {
+		return mRequests.get();
+	}
+
+	/**
+	 * @return The highest number of requests handled at the same time.
+	 */
+	public int getMaxConcurrentRequests() {
+		return mMaxActiveRequests.get();
+	}
+
+	private void handle(final HttpExchange exchange) throws IOException {
+		mRequests.incrementAndGet();
+		final int active = mActiveRequests.incrementAndGet();
+		updateMax(active);
+
+		try {
+			sleep(mLatencyMs);
+
+			final String path = exchange.getRequestURI().getPath();
+			final Fault fault = takeFault(path);
+			if (fault != null && fault.mCode > 0) {
+				send(exchange, fault.mCode, new byte[0], -1);
+				return;
+			}
+			final long truncateAfter = fault == null ? -1 : fault.mTruncateAfter;
+
+			Matcher matcher;
+			if ("/resolve.json".equals(path)) {
+				resolve(exchange);
+			} else if ((matcher = TRACK_DOWNLOAD_PATTERN.matcher(path)).matches()) {
+				redirect(exchange, getBaseUrl() + MEDIA_PATH + matcher.group(1) + ".mp3",
+						new byte[0]);
+			} else if (TRACK_PATTERN.matcher(path).matches()) {
+				send(exchange, 200, mTrackFixture, truncateAfter);
+			} else if (PLAYLIST_PATTERN.matcher(path).matches()) {
+				send(exchange, 200, mPlaylistFixture, truncateAfter);
+			} else if (path.startsWith(MEDIA_PATH)) {
+				media(exchange, truncateAfter);
+			} else {
+				send(exchange, 404, new byte[0], -1);
+			}
+		} finally {
+			mActiveRequests.decrementAndGet();
+			// Throws for truncated responses, which makes the server drop the connection.
+			exchange.close();
+		}
+	}
+
+	private void resolve(final HttpExchange exchange) throws IOException {
+		final String query = exchange.getRequestURI().getQuery();
+
+		if (query != null && query.contains("/sets/")) {
+			final String location = String.format(
+					"https://api.soundcloud.com/playlists/%d.json", PLAYLIST_ID);
+			final String body = String.format(
+					"{\"status\": \"302 - Found\", \"location\": \"%s\"}", location);
+			redirect(exchange, location, body.getBytes("UTF-8"));
+		} else {
+			redirect(exchange, "https://api.soundcloud.com/tracks/44276907.json",
+					mResolveFixture);
+		}
+	}
+
+	private void redirect(final HttpExchange exchange, final String location,
+			final byte[] body) throws IOException {
+		exchange.getResponseHeaders().set("Location", location);
+		send(exchange, 302, body, -1);
+	}
+
+	private void media(final HttpExchange exchange, final long truncateAfter)
+			throws IOException {
+		final Headers request = exchange.getRequestHeaders();
+		final Headers response = exchange.getResponseHeaders();
+		final String range = request.getFirst("Range");
+		final String ifRange = request.getFirst("If-Range");
+
+		response.set("ETag", mMediaEtag);
+		response.set("Content-Type", "audio/mpeg");
+
+		final Matcher matcher = range == null ? null : RANGE_PATTERN.matcher(range);
+		final boolean partial = mRangeSupported && matcher != null && matcher.matches() &&
+				(ifRange == null || ifRange.equals(mMediaEtag));
+
+		if (!partial) {
+			send(exchange, 200, mMedia, truncateAfter);
+			return;
+		}
+
+		final long start = Long.parseLong(matcher.group(1));
+		final long end = matcher.group(2).isEmpty() ? mMedia.length - 1 :
+				Math.min(Long.parseLong(matcher.group(2)), mMedia.length - 1);
+
+		if (start >= mMedia.length || start > end) {
+			response.set("Content-Range", "bytes */" + mMedia.length);
+			send(exchange, 416, new byte[0], -1);
+			return;
+		}
+
+		response.set("Accept-Ranges", "bytes");
+		response.set("Content-Range",
+				String.format("bytes %d-%d/%d", start, end, mMedia.length));
+
+		final byte[] body = new byte[(int) (end - start + 1)];
+		System.arraycopy(mMedia, (int) start, body, 0, body.length);
+		send(exchange, 206, body, truncateAfter);
+	}
+
+	/**
+	 * Sends the body in chunks, as fast as the bandwidth limit allows.
+	 *
+	 * @param truncateAfter Close the connection after this many bytes, -1 to send everything.
+	 */
+	private void send(final HttpExchange exchange, final int code, final byte[] body,
+			final long truncateAfter) throws IOException {
+		exchange.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+		if (body.length == 0) {
+			return;
+		}
+
+		final OutputStream out = exchange.getResponseBody();
+		final long limit = truncateAfter < 0 ? body.length : Math.min(truncateAfter, body.length);
+		final long started = System.nanoTime();
+		int sent = 0;
+
+		while (sent < limit) {
+			final int length = (int) Math.min(CHUNK_SIZE, limit - sent);
+			out.write(body, sent, length);
+			out.flush();
+			sent += length;
+
+			final long bytesPerSecond = mBytesPerSecond;
+			if (bytesPerSecond > 0) {
+				final long dueMs = sent * 1000L / bytesPerSecond;
+				sleep(dueMs - (System.nanoTime() - started) / 1000000L);
+			}
+		}
+	}
+
+	private Fault takeFault(final String path) {
+		for (final Fault fault : mFaults) {
+			if (path.startsWith(fault.mPathPrefix) && fault.mRemaining.getAndDecrement() > 0) {
+				return fault;
+			}
+		}
+
+		return null;
+	}
+
+	private void updateMax(final int active) {
+		int max;
+		do {
+			max = mMaxActiveRequests.get();
+		} while (active > max && !mMaxActiveRequests.compareAndSet(max, active));
+	}
+
+	private static void sleep(final long ms) {
+		if (ms <= 0) {
+			return;
+		}
+
+		try {
+			Thread.sleep(ms);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static byte[] readFixture(final String name) throws IOException {
+		final InputStream stream = MockSoundcloudServer.class.getResourceAsStream(
+				"/fixtures/" + name);
+		if (stream == null) {
+			throw new IOException("Could not find test fixture " + name);
+		}
+
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[CHUNK_SIZE];
+			int read;
+
+			while ((read = stream.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+
+			return out.toByteArray();
+		} finally {
+			stream.close();
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package net.rdrei.android.scdl2.test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+
+import net.rdrei.android.scdl2.api.APIException;
+import net.rdrei.android.scdl2.api.ServiceManager;
+import net.rdrei.android.scdl2.api.URLConnectionFactory;
+import net.rdrei.android.scdl2.api.entity.ResolveEntity;
+import net.rdrei.android.scdl2.api.entity.TrackEntity;
+import net.rdrei.android.scdl2.api.service.DownloadService;
+import net.rdrei.android.scdl2.download.SegmentedDownload;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the API services and downloads against {@link MockSoundcloudServer} over real
+ * connections.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MockSoundcloudServerTest {
+	private static final int MEDIA_SIZE = 512 * 1024;
+
+	@Inject
+	private ServiceManager mServiceManager;
+
+	private MockSoundcloudServer mServer;
+	private ExecutorService mExecutor;
+	private File mTarget;
+
+	@Before
+	public void setUp() throws IOException {
+		mServer = new MockSoundcloudServer(MEDIA_SIZE);
+		mServer.start();
+		mExecutor = Executors.newFixedThreadPool(4);
+		mTarget = File.createTempFile("scdl", ".mp3");
+
+		TestHelper.overridenInjector(this, new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(URLConnectionFactory.class).toInstance(mServer.getConnectionFactory());
+			}
+		});
+	}
+
+	@After
+	public void tearDown() {
+		mExecutor.shutdownNow();
+		mServer.shutdown();
+		mTarget.delete();
+	}
+
+	private SegmentedDownload createDownload() throws IOException {
+		final SegmentedDownload download = new SegmentedDownload(mServer.getConnectionFactory(),
+				mExecutor, new URL(mServer.getBaseUrl() + MockSoundcloudServer.MEDIA_PATH +
+				"44276907.mp3"), mTarget);
+		download.setMinSegmentSize(64 * 1024);
+		download.setMaxSegments(4);
+		return download;
+	}
+
+	private byte[] readTarget() throws IOException {
+		final RandomAccessFile file = new RandomAccessFile(mTarget, "r");
+		try {
+			final byte[] content = new byte[(int) file.length()];
+			file.readFully(content);
+			return content;
+		} finally {
+			file.close();
+		}
+	}
+
+	@Test
+	public void testShouldResolveAndLoadTrack() throws APIException {
+		final ResolveEntity resolved = mServiceManager.resolveService()
+				.resolve("https://soundcloud.com/dj-newklear/newklear-contaminated-2");
+		final TrackEntity track = mServiceManager.trackService().getTrack("44276907");
+
+		assertThat(resolved.getLocation().contains("/tracks/44276907.json"), is(true));
+		assertThat(track.getId(), equalTo(44276907L));
+	}
+
+	@Test
+	public void testBatchResolveShouldOverlapLatency() throws InterruptedException {
+		mServer.setLatency(200);
+		final List<String> ids = Arrays.asList("1", "2", "3", "4");
+
+		final DownloadService.Batch batch = mServiceManager.downloadService()
+				.resolveUris(ids, 4);
+		while (batch.hasNext()) {
+			assertThat(batch.next().isSuccessful(), is(true));
+		}
+
+		// Overlapping requests are what hides the latency, unlike elapsed time this doesn't
+		// depend on how loaded the machine is.
+		assertThat(mServer.getMaxConcurrentRequests(), greaterThan(1));
+	}
+
+	@Test
+	public void testShouldReportInjectedErrors() throws APIException {
+		mServer.failRequests("/tracks/", 503, 1);
+
+		try {
+			mServiceManager.downloadService().resolveUri("44276907");
+			fail("Expected the injected error.");
+		} catch (final APIException e) {
+			assertThat(e.getCode(), is(503));
+		}
+
+		assertThat(mServiceManager.downloadService().resolveUri("44276907").getPath(),
+				equalTo(MockSoundcloudServer.MEDIA_PATH + "44276907.mp3"));
+	}
+
+	@Test
+	public void testSegmentedDownloadWithBandwidthCap() throws IOException {
+		mServer.setBandwidth(MEDIA_SIZE * 2);
+
+		createDownload().download();
+
+		assertThat(readTarget(), equalTo(mServer.getMedia()));
+		assertThat(mServer.getMaxConcurrentRequests(), greaterThan(1));
+	}
+
+	@Test
+	public void testSegmentedDownloadRetriesTruncatedResponses() throws IOException {
+		mServer.truncateResponses(MockSoundcloudServer.MEDIA_PATH, 16 * 1024, 2);
+
+		createDownload().download();
+
+		assertThat(readTarget(), equalTo(mServer.getMedia()));
+	}
+
+	@Test
+	public void testDownloadWithoutRangeSupport() throws IOException {
+		mServer.setRangeSupported(false);
+
+		createDownload().download();
+
+		assertThat(readTarget(), equalTo(mServer.getMedia()));
+	}
+}
@@ -0,0 +1,162 @@
+package net.rdrei.android.scdl2.test;
+
+import android.net.Uri;
+import android.os.Handler;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+
+import net.rdrei.android.scdl2.TrackDownloader;
+import net.rdrei.android.scdl2.TrackDownloaderFactory;
+import net.rdrei.android.scdl2.api.APIException;
+import net.rdrei.android.scdl2.api.entity.PlaylistEntity;
+import net.rdrei.android.scdl2.api.entity.TrackEntity;
+import net.rdrei.android.scdl2.api.service.DownloadService;
+import net.rdrei.android.scdl2.download.PlaylistDownloadPipeline;
+import net.rdrei.android.scdl2.download.PlaylistDownloadPipelineFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class PlaylistDownloadPipelineTest {
+	private static final long FAILING_TRACK_ID = 3;
+
+	@Inject
+	private PlaylistDownloadPipelineFactory mPipelineFactory;
+
+	private final List<Uri> mEnqueuedUris = Collections.synchronizedList(new ArrayList<Uri>());
+	private final List<Uri> mBackgroundUris = Collections.synchronizedList(new ArrayList<Uri>());
+	private final List<Long> mQueued = new ArrayList<>();
+	private final List<Long> mFailed = new ArrayList<>();
+	private int[] mResult;
+
+	@Before
+	public void setUp() {
+		final DownloadService downloadService = new DownloadService() {
+			@Override
+			public Uri resolveUri(final String id) throws APIException {
+				if (id.equals(String.valueOf(FAILING_TRACK_ID))) {
+					throw new APIException("Download is not available.",
+							HttpURLConnection.HTTP_NOT_FOUND);
+				}
+				return Uri.parse("http://ak-media.soundcloud.com/" + id + ".mp3");
+			}
+		};
+
+		final TrackDownloaderFactory downloaderFactory = new TrackDownloaderFactory() {
+			@Override
+			public TrackDownloader create(final Uri uri, final TrackEntity track,
+					final Handler handler) {
+				return new TrackDownloader() {
+					@Override
+					public void enqueue() {
+						mEnqueuedUris.add(uri);
+					}
+
+					@Override
+					public void setBackground(final boolean background) {
+						if (background) {
+							mBackgroundUris.add(uri);
+						}
+					}
+				};
+			}
+		};
+
+		final AbstractModule module = new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(DownloadService.class).toInstance(downloadService);
+				bind(TrackDownloaderFactory.class).toInstance(downloaderFactory);
+			}
+		};
+
+		TestHelper.overridenInjector(this, module);
+	}
+
+	private PlaylistEntity createPlaylist(final int size) {
+		final List<TrackEntity> tracks = new ArrayList<>();
+		for (int i = 1; i <= size; i++) {
+			final TrackEntity track = new TrackEntity();
+			track.setId(i);
+			track.setTitle("Track " + i);
+			// Every fifth track can't be downloaded at all.
+			track.setDownloadable(i % 5 != 0);
+			tracks.add(track);
+		}
+
+		final PlaylistEntity playlist = new PlaylistEntity();
+		playlist.setId(13028824);
+		playlist.setTracks(tracks);
+		return playlist;
+	}
+
+	private PlaylistDownloadPipeline createPipeline(final PlaylistEntity playlist) {
+		return mPipelineFactory.create(playlist, new Handler(),
+				new PlaylistDownloadPipeline.Listener() {
+					@Override
+					public void onTrackQueued(final TrackEntity track) {
+						mQueued.add(track.getId());
+					}
+
+					@Override
+					public void onTrackFailed(final TrackEntity track, final Exception e) {
+						mFailed.add(track.getId());
+					}
+
+					@Override
+					public void onFinished(final int queued, final int failed) {
+						mResult = new int[]{queued, failed};
+					}
+				});
+	}
+
+	@Test
+	public void testShouldQueueAllDownloadableTracks() {
+		final PlaylistDownloadPipeline pipeline = createPipeline(createPlaylist(20));
+		pipeline.setConcurrency(3);
+		pipeline.run();
+		Robolectric.runUiThreadTasksIncludingDelayedTasks();
+
+		// Four tracks are not downloadable and one fails to resolve.
+		assertThat(mQueued.size(), is(15));
+		assertThat(mEnqueuedUris.size(), is(15));
+		assertThat(mBackgroundUris, equalTo(mEnqueuedUris));
+		assertThat(mFailed.size(), is(5));
+		assertThat(mFailed, hasItems(FAILING_TRACK_ID, 5L, 10L, 15L, 20L));
+		assertThat(mResult, equalTo(new int[]{15, 5}));
+	}
+
+	@Test
+	public void testShouldFinishEmptyPlaylist() {
+		createPipeline(createPlaylist(0)).run();
+		Robolectric.runUiThreadTasksIncludingDelayedTasks();
+
+		assertThat(mResult, equalTo(new int[]{0, 0}));
+	}
+
+	@Test
+	public void testShouldStopAfterCancel() {
+		final PlaylistDownloadPipeline pipeline = createPipeline(createPlaylist(10));
+		pipeline.cancel();
+		pipeline.run();
+		Robolectric.runUiThreadTasksIncludingDelayedTasks();
+
+		assertThat(mQueued.size(), is(0));
+		assertThat(mResult, equalTo(new int[]{0, 0}));
+	}
+}
@@ -63,6 +63,7 @@ public class PlaylistServiceTest {
 		assertThat(entity.getDescription(), startsWith(
 				"At the tail end of 2013, few summer anthems"));
 		assertThat(entity.getTracks().get(0).getId(), equalTo(116980406l));
+		assertThat(entity.getTitle(), startsWith("3LAU, Paris & Simo"));
 	}
 
 }
@@ -0,0 +1,93 @@
+package net.rdrei.android.scdl2.test;
+
+import android.os.Handler;
+
+import com.squareup.otto.Bus;
+import com.squareup.otto.Subscribe;
+import com.squareup.otto.ThreadEnforcer;
+
+import net.rdrei.android.scdl2.download.DownloadProgressEvent;
+import net.rdrei.android.scdl2.download.ProgressPublisher;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class ProgressPublisherTest {
+	private final List<DownloadProgressEvent> mEvents = new ArrayList<>();
+	private ProgressPublisher mPublisher;
+
+	@Before
+	public void setUp() {
+		final Bus bus = new Bus(ThreadEnforcer.ANY);
+		bus.register(this);
+
+		mPublisher = new ProgressPublisher(bus, new Handler(), 250);
+	}
+
+	@Subscribe
+	public void onDownloadProgress(final DownloadProgressEvent event) {
+		mEvents.add(event);
+	}
+
+	@Test
+	public void testShouldCoalesceUpdatesPerFrame() {
+		for (int i = 1; i <= 100; i++) {
+			mPublisher.publish(1, "Track 1", i * 1000, 100000);
+			mPublisher.publish(2, "Track 2", i * 10, -1);
+		}
+
+		assertThat(mEvents.isEmpty(), is(true));
+
+		Robolectric.runUiThreadTasksIncludingDelayedTasks();
+
+		assertThat(mEvents.size(), is(2));
+		for (final DownloadProgressEvent event : mEvents) {
+			if (event.getTrackId() == 1) {
+				assertThat(event.getPercent(), is(100));
+			} else {
+				assertThat(event.getTransferredBytes(), is(1000L));
+				assertThat(event.getPercent(), is(-1));
+			}
+			assertThat(event.isFinished(), is(false));
+		}
+	}
+
+	@Test
+	public void testShouldOnlyPostChangedDownloads() {
+		mPublisher.publish(1, "Track 1", 1000, 100000);
+		mPublisher.publish(2, "Track 2", 1000, 100000);
+		Robolectric.runUiThreadTasksIncludingDelayedTasks();
+		mEvents.clear();
+
+		mPublisher.publish(2, "Track 2", 2000, 100000);
+		Robolectric.runUiThreadTasksIncludingDelayedTasks();
+
+		assertThat(mEvents.size(), is(1));
+		assertThat(mEvents.get(0).getTrackId(), is(2L));
+	}
+
+	@Test
+	public void testShouldPostFinishOnce() {
+		mPublisher.publish(1, "Track 1", 1000, 100000);
+		mPublisher.finish(1);
+		Robolectric.runUiThreadTasksIncludingDelayedTasks();
+
+		assertThat(mEvents.size(), is(1));
+		assertThat(mEvents.get(0).isFinished(), is(true));
+
+		mPublisher.finish(1);
+		Robolectric.runUiThreadTasksIncludingDelayedTasks();
+
+		assertThat(mEvents.size(), is(1));
+	}
+}
@@ -0,0 +1,95 @@
+package net.rdrei.android.scdl2.test;
+
+import net.rdrei.android.scdl2.download.RateLimiter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class RateLimiterTest {
+	private static final int RATE = 256 * 1024;
+	private static final int CHUNK = 8 * 1024;
+	private static final long NANOS_PER_SECOND = 1000000000L;
+
+	private FakeClock mClock;
+
+	/**
+	 * Only moves forward while the limiter sleeps or when told to.
+	 */
+	private static class FakeClock implements RateLimiter.Clock {
+		long mNanos;
+		long mSleptNanos;
+
+		@Override
+		public long nanoTime() {
+			return mNanos;
+		}
+
+		@Override
+		public void sleep(final long nanos) {
+			mNanos += nanos;
+			mSleptNanos += nanos;
+		}
+	}
+
+	@Before
+	public void setUp() {
+		mClock = new FakeClock();
+	}
+
+	/**
+	 * @return Nanoseconds the limiter waited.
+	 */
+	private long transfer(final RateLimiter limiter, final long bytes) throws IOException {
+		final long slept = mClock.mSleptNanos;
+		for (long sent = 0; sent < bytes; sent += CHUNK) {
+			limiter.acquire(CHUNK);
+		}
+		return mClock.mSleptNanos - slept;
+	}
+
+	@Test
+	public void testShouldPassBurstWithoutDelay() throws IOException {
+		assertThat(transfer(new RateLimiter(RATE, mClock), RATE), is(0L));
+	}
+
+	@Test
+	public void testShouldDelayBeyondBurst() throws IOException {
+		// One second of burst, then half a second worth of bytes at the limit.
+		final long waited = transfer(new RateLimiter(RATE, mClock), RATE + RATE / 2);
+
+		assertThat(waited, is(NANOS_PER_SECOND / 2));
+	}
+
+	@Test
+	public void testShouldRefillOverTime() throws IOException {
+		final RateLimiter limiter = new RateLimiter(RATE, mClock);
+		transfer(limiter, RATE);
+
+		mClock.mNanos += NANOS_PER_SECOND;
+
+		assertThat(transfer(limiter, RATE), is(0L));
+	}
+
+	@Test
+	public void testShouldNotLimitWithoutRate() throws IOException {
+		assertThat(transfer(new RateLimiter(0, mClock), 100L * RATE), is(0L));
+	}
+
+	@Test
+	public void testShouldApplyNewRate() throws IOException {
+		final RateLimiter limiter = new RateLimiter(RATE, mClock);
+		transfer(limiter, RATE);
+
+		limiter.setRate(0);
+
+		assertThat(transfer(limiter, 10L * RATE), is(0L));
+	}
+}
@@ -0,0 +1,105 @@
+package net.rdrei.android.scdl2.test;
+
+import net.rdrei.android.scdl2.api.APIException;
+import net.rdrei.android.scdl2.api.cache.MetadataCache;
+import net.rdrei.android.scdl2.api.cache.ResolutionCache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class ResolutionCacheTest {
+	private static final String KEY = "soundcloud.com/dj-newklear/newklear-contaminated-2";
+	private static final String LOCATION = "https://api.soundcloud.com/tracks/44276907.json";
+
+	private File mDirectory;
+	private ResolutionCache mCache;
+
+	@Before
+	public void setUp() throws IOException {
+		mDirectory = File.createTempFile("scdl", "resolutions");
+		mDirectory.delete();
+		mCache = new ResolutionCache(new MetadataCache(mDirectory, 2, 3), 60 * 1000L);
+	}
+
+	@After
+	public void tearDown() {
+		mCache.clear();
+		mDirectory.delete();
+	}
+
+	@Test
+	public void testShouldCoalesceConcurrentLookups() throws Exception {
+		final AtomicInteger calls = new AtomicInteger();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		final ResolutionCache.Resolver resolver = new ResolutionCache.Resolver() {
+			@Override
+			public String resolve() throws APIException {
+				calls.incrementAndGet();
+				started.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (final InterruptedException e) {
+					throw new APIException(e, -1);
+				}
+				return LOCATION;
+			}
+		};
+
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			final Future<String> first = executor.submit(() -> mCache.get(KEY, resolver));
+			started.await(5, TimeUnit.SECONDS);
+			final Future<String> second = executor.submit(() -> mCache.get(KEY, resolver));
+
+			// Give the second lookup the chance to join the running one.
+			Thread.sleep(100);
+			release.countDown();
+
+			assertThat(first.get(5, TimeUnit.SECONDS), equalTo(LOCATION));
+			assertThat(second.get(5, TimeUnit.SECONDS), equalTo(LOCATION));
+			assertThat(calls.get(), equalTo(1));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testShouldFallBackToStaleLocation() throws APIException {
+		final ResolutionCache stale = new ResolutionCache(new MetadataCache(mDirectory, 2, 3), 0);
+		stale.get(KEY, () -> LOCATION);
+
+		final String result = stale.get(KEY, () -> {
+			throw new APIException("offline", -1);
+		});
+
+		assertThat(result, equalTo(LOCATION));
+	}
+
+	@Test(expected = APIException.class)
+	public void testShouldNotHideServerErrors() throws APIException {
+		final ResolutionCache stale = new ResolutionCache(new MetadataCache(mDirectory, 2, 3), 0);
+		stale.get(KEY, () -> LOCATION);
+
+		stale.get(KEY, () -> {
+			throw new APIException("gone", 404);
+		});
+	}
+}
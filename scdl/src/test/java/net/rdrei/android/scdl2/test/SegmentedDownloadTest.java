@@ -0,0 +1,198 @@
+package net.rdrei.android.scdl2.test;
+
+import net.rdrei.android.scdl2.download.CheckpointJournal;
+import net.rdrei.android.scdl2.download.DownloadCheckpoint;
+import net.rdrei.android.scdl2.download.SegmentedDownload;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Adler32;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class SegmentedDownloadTest {
+	private static final int CONTENT_SIZE = 256 * 1024 + 17;
+	private static final long TRACK_ID = 23;
+
+	private byte[] mContent;
+	private File mTarget;
+	private ExecutorService mExecutor;
+	private FakeRangeURLConnectionFactory mConnectionFactory;
+	private File mJournalDirectory;
+	private CheckpointJournal mJournal;
+
+	@Before
+	public void setUp() throws IOException {
+		mContent = new byte[CONTENT_SIZE];
+		new Random(42).nextBytes(mContent);
+
+		mTarget = File.createTempFile("scdl", ".mp3");
+		mExecutor = Executors.newFixedThreadPool(4);
+		mConnectionFactory = new FakeRangeURLConnectionFactory(mContent);
+
+		mJournalDirectory = new File(mTarget.getPath() + ".checkpoints");
+		mJournal = new CheckpointJournal(mJournalDirectory);
+	}
+
+	@After
+	public void tearDown() {
+		mExecutor.shutdownNow();
+		mTarget.delete();
+		mJournal.remove(TRACK_ID);
+		mJournalDirectory.delete();
+	}
+
+	private SegmentedDownload createDownload() throws IOException {
+		final SegmentedDownload download = new SegmentedDownload(mConnectionFactory, mExecutor,
+				new URL("http://ak-media.soundcloud.com/track.mp3"), mTarget);
+		download.setMinSegmentSize(64 * 1024);
+		download.setMaxSegments(4);
+		return download;
+	}
+
+	private byte[] readTarget() throws IOException {
+		final RandomAccessFile file = new RandomAccessFile(mTarget, "r");
+		try {
+			final byte[] content = new byte[(int) file.length()];
+			file.readFully(content);
+			return content;
+		} finally {
+			file.close();
+		}
+	}
+
+	private long getContentChecksum() {
+		final Adler32 checksum = new Adler32();
+		checksum.update(mContent);
+		return checksum.getValue();
+	}
+
+	@Test
+	public void testShouldDownloadInSegments() throws IOException {
+		final SegmentedDownload download = createDownload();
+		download.download();
+
+		assertThat(readTarget(), equalTo(mContent));
+		assertThat(download.getChecksum(), is(getContentChecksum()));
+		// One probe plus one request per segment.
+		assertThat(mConnectionFactory.getRequestCount(), is(5));
+	}
+
+	@Test
+	public void testShouldFallBackWithoutRangeSupport() throws IOException {
+		mConnectionFactory.setSupportsRanges(false);
+		final SegmentedDownload download = createDownload();
+		download.download();
+
+		assertThat(readTarget(), equalTo(mContent));
+		assertThat(download.getChecksum(), is(getContentChecksum()));
+		assertThat(mConnectionFactory.getRequestCount(), is(1));
+	}
+
+	@Test
+	public void testShouldReportForbidden() throws IOException {
+		mConnectionFactory.setResponseCode(403);
+
+		try {
+			createDownload().download();
+		} catch (final SegmentedDownload.HttpStatusException e) {
+			assertThat(e.getCode(), is(403));
+			return;
+		}
+
+		throw new AssertionError("Expected HttpStatusException.");
+	}
+
+	/**
+	 * Starts a download and cancels it right after the first bytes arrived.
+	 */
+	private void downloadPartially() throws IOException {
+		final SegmentedDownload download = createDownload();
+		download.setBufferSize(1024);
+		download.setCheckpoint(mJournal, new DownloadCheckpoint(TRACK_ID, mTarget));
+		download.setListener((transferred, total) -> download.cancel());
+
+		try {
+			download.download();
+		} catch (final InterruptedIOException e) {
+			return;
+		}
+
+		throw new AssertionError("Expected InterruptedIOException.");
+	}
+
+	@Test
+	public void testShouldResumeFromCheckpoint() throws IOException {
+		mConnectionFactory.setEtag("\"v1\"");
+		downloadPartially();
+
+		final DownloadCheckpoint checkpoint = mJournal.load(TRACK_ID);
+		assertThat(checkpoint.isResumable(mTarget), is(true));
+		assertThat(checkpoint.getEtag(), equalTo("\"v1\""));
+		final long completed = checkpoint.getCompletedBytes();
+		assertThat(completed > 0 && completed < CONTENT_SIZE, is(true));
+
+		final SegmentedDownload download = createDownload();
+		download.setCheckpoint(mJournal, checkpoint);
+		final long[] firstProgress = {-1};
+		download.setListener((transferred, total) -> {
+			synchronized (firstProgress) {
+				if (firstProgress[0] == -1) {
+					firstProgress[0] = transferred;
+				}
+			}
+		});
+		download.download();
+
+		assertThat(readTarget(), equalTo(mContent));
+		// Counting continued from what was already on disk.
+		assertThat(firstProgress[0] > completed, is(true));
+		// The checksums of the bytes from the first attempt came from the checkpoint.
+		assertThat(download.getChecksum(), is(getContentChecksum()));
+	}
+
+	@Test
+	public void testShouldStartOverIfResourceChanged() throws IOException {
+		mConnectionFactory.setEtag("\"v1\"");
+		downloadPartially();
+
+		final DownloadCheckpoint checkpoint = mJournal.load(TRACK_ID);
+		mConnectionFactory.setEtag("\"v2\"");
+
+		final SegmentedDownload download = createDownload();
+		download.setCheckpoint(mJournal, checkpoint);
+		download.download();
+
+		assertThat(readTarget(), equalTo(mContent));
+		assertThat(mJournal.load(TRACK_ID).getEtag(), equalTo("\"v2\""));
+	}
+
+	@Test
+	public void testSplitCoversWholeRange() {
+		final List<SegmentedDownload.Segment> segments = SegmentedDownload.split(1001, 4, 100);
+
+		assertThat(segments.size(), is(4));
+		assertThat(segments.get(0).getStart(), is(0L));
+		assertThat(segments.get(3).getEnd(), is(1000L));
+
+		for (int i = 1; i < segments.size(); i++) {
+			assertThat(segments.get(i).getStart(), is(segments.get(i - 1).getEnd() + 1));
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package net.rdrei.android.scdl2.test;
+
+import android.content.SharedPreferences;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+
+import net.rdrei.android.scdl2.ApplicationPreferences;
+import net.rdrei.android.scdl2.api.ServiceManager;
+import net.rdrei.android.scdl2.api.service.TrackService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class ServiceManagerTest {
+	@Inject
+	private ServiceManager mServiceManager;
+
+	@Inject
+	private SharedPreferences mPreferences;
+
+	@Before
+	public void setUp() {
+		TestHelper.overridenInjector(this, new AbstractModule() {
+			@Override
+			protected void configure() {
+			}
+		});
+	}
+
+	@Test
+	public void testShouldReuseServices() {
+		assertThat(mServiceManager.trackService(),
+				sameInstance(mServiceManager.trackService()));
+		assertThat(TestHelper.getInjector().getInstance(ServiceManager.class),
+				sameInstance(mServiceManager));
+	}
+
+	@Test
+	public void testShouldRecreateServicesWhenSSLChanges() {
+		mPreferences.edit().putBoolean(ApplicationPreferences.KEY_SSL_ENABLED, false).commit();
+		final TrackService before = mServiceManager.trackService();
+
+		mPreferences.edit().putBoolean(ApplicationPreferences.KEY_SSL_ENABLED, true).commit();
+		final TrackService after = mServiceManager.trackService();
+
+		assertThat(after, not(sameInstance(before)));
+		assertThat(before.isUseSSL(), is(false));
+		assertThat(after.isUseSSL(), is(true));
+	}
+}
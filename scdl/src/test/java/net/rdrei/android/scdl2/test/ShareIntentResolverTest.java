@@ -30,10 +30,12 @@ public class ShareIntentResolverTest {
 	private Activity mActivity;
 	private Intent mIntent;
 	private ResolveService mResolveService;
+	private int mResolveCount;
 
 	@Before
 	public void setUp() {
 		mIntent = new Intent();
+		mResolveCount = 0;
 
 		mActivity = new Activity() {
 			@Override
@@ -45,6 +47,7 @@ public class ShareIntentResolverTest {
 		mResolveService = new ResolveService() {
 			@Override
 			public ResolveEntity resolve(String string) throws APIException {
+				mResolveCount++;
 				ResolveEntity entity = new ResolveEntity();
 				entity.setStatus("302 - Found");
 				if (string.contains("/sets/")) {
@@ -182,4 +185,27 @@ public class ShareIntentResolverTest {
 
 		resolver.resolvePendingDownload();
 	}
+
+	@Test
+	public void testShouldCacheNormalizedUrl() throws ShareIntentResolverException {
+		ShadowIntent intent = Robolectric.shadowOf(mIntent);
+		intent.setData(Uri.parse(
+				"https://m.soundcloud.com/dj-newklear/newklear-contaminated-2/?utm_source=clipboard"));
+		TestHelper.getInjector().getInstance(ShareIntentResolver.class).resolve();
+
+		intent.setData(Uri.parse("https://soundcloud.com/dj-newklear/newklear-contaminated-2"));
+		final String result = TestHelper.getInjector().getInstance(ShareIntentResolver.class)
+				.resolve();
+
+		assertThat(result, equalTo("https://api.soundcloud.com/tracks/44276907.json?client_id=429caab2811564cb27f52a7a4964269b"));
+		assertThat(mResolveCount, equalTo(1));
+	}
+
+	@Test
+	public void testNormalizeUriKeepsRelevantParameters() {
+		final String result = ShareIntentResolver.normalizeUri(Uri.parse(
+				"http://SoundCloud.com/user/track?si=abc&secret_token=s-1&in=user/sets/x#t=1:00"));
+
+		assertThat(result, equalTo("soundcloud.com/user/track?in=user/sets/x&secret_token=s-1"));
+	}
 }
@@ -7,6 +7,8 @@ import com.google.inject.Injector;
 import com.google.inject.Module;
 import com.google.inject.util.Modules;
 
+import net.rdrei.android.scdl2.api.cache.MetadataCache;
+import net.rdrei.android.scdl2.api.cache.ResolutionCache;
 import net.rdrei.android.scdl2.guice.SCDLModule;
 
 import org.robolectric.Robolectric;
@@ -28,6 +30,9 @@ public class TestHelper  {
 				moduleOverride);
 
 		final Injector injector = TestHelper.getInjector();
+		// The disk cache would otherwise leak responses from one test into the next.
+		injector.getInstance(MetadataCache.class).clear();
+		injector.getInstance(ResolutionCache.class).clear();
 		injector.injectMembers(instance);
 	}
 
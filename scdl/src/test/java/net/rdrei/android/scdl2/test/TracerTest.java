@@ -0,0 +1,121 @@
+package net.rdrei.android.scdl2.test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import net.rdrei.android.scdl2.trace.Tracer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class TracerTest {
+	@Test
+	public void testShouldRecordSpans() {
+		final Tracer tracer = new Tracer(4, true, false);
+		final Tracer.Span outer = tracer.begin("outer");
+		tracer.begin("inner").end();
+		outer.end();
+		outer.end();
+
+		final List<Tracer.Event> events = tracer.getEvents();
+		assertThat(events.size(), is(2));
+		assertThat(events.get(0).getName(), equalTo("inner"));
+		assertThat(events.get(1).getName(), equalTo("outer"));
+		assertThat(events.get(1).getStartNanos() <= events.get(0).getStartNanos(), is(true));
+		assertThat(events.get(1).getDurationNanos() >= events.get(0).getDurationNanos(),
+				is(true));
+	}
+
+	@Test
+	public void testShouldDropOldestSpans() {
+		final Tracer tracer = new Tracer(3, true, false);
+		for (int i = 0; i < 5; i++) {
+			tracer.begin("span" + i).end();
+		}
+
+		final List<Tracer.Event> events = tracer.getEvents();
+		assertThat(events.size(), is(3));
+		assertThat(events.get(0).getName(), equalTo("span2"));
+		assertThat(events.get(2).getName(), equalTo("span4"));
+	}
+
+	@Test
+	public void testShouldEndAsyncSpansOnOtherThreads() throws InterruptedException {
+		final Tracer tracer = new Tracer(4, true, false);
+		tracer.beginAsync("flow");
+
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				tracer.endAsync("flow");
+			}
+		});
+		thread.start();
+		thread.join();
+		tracer.endAsync("flow");
+
+		final List<Tracer.Event> events = tracer.getEvents();
+		assertThat(events.size(), is(1));
+		assertThat(events.get(0).isAsync(), is(true));
+		assertThat(events.get(0).getThreadId(), is(Thread.currentThread().getId()));
+	}
+
+	@Test
+	public void testShouldRecordSpansThatBeganEarlier() {
+		final Tracer tracer = new Tracer(4, true, false);
+		final long start = System.nanoTime() - 1000;
+		tracer.record("first_frame", start);
+
+		final List<Tracer.Event> events = tracer.getEvents();
+		assertThat(events.size(), is(1));
+		assertThat(events.get(0).getStartNanos(), is(start));
+		assertThat(events.get(0).getDurationNanos() >= 1000, is(true));
+		assertThat(events.get(0).isAsync(), is(false));
+	}
+
+	@Test
+	public void testShouldNotRecordWhenDisabled() {
+		final Tracer tracer = new Tracer(4, false, true);
+		tracer.begin("span").end();
+		tracer.beginAsync("flow");
+		tracer.endAsync("flow");
+		tracer.record("span", System.nanoTime());
+
+		assertThat(tracer.getEvents().isEmpty(), is(true));
+	}
+
+	@Test
+	public void testShouldExportChromeTrace() throws IOException {
+		final Tracer tracer = new Tracer(4, true, false);
+		tracer.beginAsync("flow");
+		tracer.begin("span").end();
+		tracer.endAsync("flow");
+
+		final StringWriter writer = new StringWriter();
+		tracer.export(writer, 42);
+
+		final JsonArray events = new JsonParser().parse(writer.toString()).getAsJsonObject()
+				.getAsJsonArray("traceEvents");
+		// One complete event, a begin and end pair and the thread name.
+		assertThat(events.size(), is(4));
+
+		final JsonObject span = events.get(0).getAsJsonObject();
+		assertThat(span.get("name").getAsString(), equalTo("span"));
+		assertThat(span.get("ph").getAsString(), equalTo("X"));
+		assertThat(span.get("pid").getAsInt(), is(42));
+		assertThat(events.get(1).getAsJsonObject().get("ph").getAsString(), equalTo("b"));
+		assertThat(events.get(2).getAsJsonObject().get("ph").getAsString(), equalTo("e"));
+		assertThat(events.get(3).getAsJsonObject().get("ph").getAsString(), equalTo("M"));
+	}
+}
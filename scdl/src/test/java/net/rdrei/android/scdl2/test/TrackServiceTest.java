@@ -6,6 +6,8 @@ import static org.junit.Assert.assertThat;
 import net.rdrei.android.scdl2.api.APIException;
 import net.rdrei.android.scdl2.api.ServiceManager;
 import net.rdrei.android.scdl2.api.URLConnectionFactory;
+import net.rdrei.android.scdl2.api.cache.CacheEntry;
+import net.rdrei.android.scdl2.api.cache.MetadataCache;
 import net.rdrei.android.scdl2.api.entity.TrackEntity;
 import net.rdrei.android.scdl2.api.service.TrackService;
 
@@ -24,6 +26,9 @@ public class TrackServiceTest {
 	@Inject
 	private ServiceManager mServiceManager;
 
+	@Inject
+	private MetadataCache mCache;
+
 	private FakeURLConnectionFactoryImpl mUrlConnectionFactory;
 
 	@Before
@@ -62,4 +67,23 @@ public class TrackServiceTest {
 				equalTo("Newklear - Contaminated Selection *SPECIAL GUEST SHOW BOUNFM RADIO APRIL. 24TH*"));
 	}
 
+	@Test
+	public void testRepeatedResolveUsesCache() throws APIException {
+		mServiceManager.trackService().getTrack("44276907");
+		// Would fail if it went to the network again.
+		mUrlConnectionFactory.setResponseCode(500);
+
+		final TrackEntity entity = mServiceManager.trackService().getTrack("44276907");
+		assertThat(entity.getId(), equalTo(44276907l));
+	}
+
+	@Test
+	public void testUnreadableCacheEntryIsFetchedAgain() throws APIException {
+		mCache.put(new CacheEntry("track:44276907", "<html>", null, null));
+
+		final TrackEntity entity = mServiceManager.trackService().getTrack("44276907");
+		assertThat(entity.getId(), equalTo(44276907l));
+		assertThat(mCache.get("track:44276907").getBody().startsWith("{"), equalTo(true));
+	}
+
 }